@@ -0,0 +1,42 @@
+package com.buy01.common.changes;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact description of one committed write: which document changed and how, without its content.
+ * {@code fields} lists the updated and removed top-level paths of an update and is empty otherwise,
+ * so consumers re-read the document when they need more than the id.
+ */
+public record ChangeEvent(String collection, String operation, String id, List<String> fields, long timestamp) {
+
+    /**
+     * @return the event, or null for stream-level changes (drop, rename, invalidate) that name no document
+     */
+    public static ChangeEvent of(String collection, ChangeStreamDocument<Document> change) {
+        BsonDocument key = change.getDocumentKey();
+        if (key == null || !key.containsKey("_id")) return null;
+
+        List<String> fields = new ArrayList<>();
+        UpdateDescription update = change.getUpdateDescription();
+        if (update != null) {
+            if (update.getUpdatedFields() != null) fields.addAll(update.getUpdatedFields().keySet());
+            if (update.getRemovedFields() != null) fields.addAll(update.getRemovedFields());
+        }
+
+        long timestamp = change.getClusterTime() != null ? change.getClusterTime().getTime() * 1000L : System.currentTimeMillis();
+        return new ChangeEvent(collection, change.getOperationTypeString(), id(key.get("_id")), fields, timestamp);
+    }
+
+    private static String id(BsonValue id) {
+        if (id.isObjectId()) return id.asObjectId().getValue().toHexString();
+        if (id.isString()) return id.asString().getValue();
+        return id.toString();
+    }
+}
@@ -0,0 +1,259 @@
+package com.buy01.common.changes;
+
+import com.buy01.common.lease.Leases;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails one collection's change stream and publishes a {@link ChangeEvent} per write on the configured topic,
+ * keyed by document id so each document's changes stay ordered.
+ * The resume token is stored once the events before it are acknowledged by Kafka, so a restart
+ * continues where the last publisher stopped (delivery is at-least-once).
+ * Every replica runs one, but only the holder of the collection's {@link Leases lease} tails the stream and
+ * writes the token; the others stand by and take over once the lease expires.
+ * Change streams need a replica set; on a standalone server the publisher logs a warning and stays off.
+ * Services declare one as a bean per collection, or extend it to publish more per change.
+ */
+@Slf4j
+public class ChangeStreamPublisher {
+    public static final String TOKENS_COLLECTION = "change_stream_tokens";
+    // Resume point no longer in the oplog, or not resumable at all
+    private static final Set<Integer> LOST_TOKEN_CODES = Set.of(260, 280, 286);
+    private static final Duration LEASE_TTL = Duration.ofSeconds(30);
+    private static final long LEASE_RENEW_MS = LEASE_TTL.toMillis() / 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Leases leases;
+    private final Settings settings;
+    private final String leaseName;
+    private final List<CompletableFuture<?>> inFlight = new ArrayList<>();
+    private volatile boolean running;
+    private Thread worker;
+    private BsonDocument savedToken;
+    private long leaseRenewedAt;
+
+    /**
+     * @param collection      the collection to tail
+     * @param topic           where its {@link ChangeEvent}s are published
+     * @param enabled         whether to start at all
+     * @param flushIntervalMs how often the resume token is stored while changes stream in
+     * @param retryDelayMs    wait before reopening a failed stream, and between attempts to take the lease
+     */
+    public record Settings(String collection, String topic, boolean enabled, long flushIntervalMs, long retryDelayMs) {
+    }
+
+    public ChangeStreamPublisher(
+            MongoTemplate mongoTemplate,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            Leases leases,
+            Settings settings
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.leases = leases;
+        this.settings = settings;
+        this.leaseName = "change-stream:" + settings.collection();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!settings.enabled()) return;
+        running = true;
+        worker = new Thread(this::run, settings.collection() + "-change-stream");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker == null) return;
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        try {
+            leases.release(leaseName);
+        } catch (MongoException e) {
+            log.warn("====== Could not release the {} change stream lease: {} ======", settings.collection(), e.getMessage());
+        }
+    }
+
+    /**
+     * Lets a subclass ask more of the stream, such as full documents on updates.
+     */
+    protected ChangeStreamIterable<Document> watch(ChangeStreamIterable<Document> stream) {
+        return stream;
+    }
+
+    /**
+     * Called once the stream is open when there was no usable resume token (first run, or the oplog moved past it).
+     */
+    protected void onFreshStart() throws Exception {
+    }
+
+    /**
+     * Called for every change after its {@link ChangeEvent} was queued.
+     */
+    protected void onChange(ChangeStreamDocument<Document> change) {
+    }
+
+    /**
+     * Queues a message; it is acknowledged before the next resume token is stored.
+     */
+    protected final void publish(String topic, String key, Object value) {
+        inFlight.add(kafkaTemplate.send(topic, key, value));
+    }
+
+    /**
+     * Waits for the queued messages, for subclasses publishing in bulk; also keeps the lease.
+     */
+    protected final void awaitPublished() throws Exception {
+        if (!inFlight.isEmpty()) {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            inFlight.clear();
+        }
+        if (!renewLease()) throw new IllegalStateException("Lost the " + settings.collection() + " change stream lease");
+    }
+
+    protected final MongoTemplate mongoTemplate() {
+        return mongoTemplate;
+    }
+
+    protected final String collection() {
+        return settings.collection();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (!supportsChangeStreams()) {
+                    log.warn("====== MongoDB is not a replica set, {} changes will not be published ======", settings.collection());
+                    return;
+                }
+                if (!leases.tryAcquire(leaseName, LEASE_TTL)) {
+                    pause();
+                    continue;
+                }
+                leaseRenewedAt = System.currentTimeMillis();
+                log.info("====== Took the {} change stream lease as {} ======", settings.collection(), leases.owner());
+                tail();
+            } catch (MongoException e) {
+                if (LOST_TOKEN_CODES.contains(e.getCode())) {
+                    log.warn("====== Stored {} resume token is no longer usable, restarting from now: {} ======", settings.collection(), e.getMessage());
+                    mongoTemplate.getCollection(TOKENS_COLLECTION).deleteOne(Filters.eq("_id", settings.collection()));
+                    savedToken = null;
+                    continue;
+                }
+                retryLater(e);
+            } catch (Exception e) {
+                retryLater(e);
+            } finally {
+                inFlight.clear();
+            }
+        }
+    }
+
+    private void tail() throws Exception {
+        BsonDocument token = loadToken();
+        var stream = watch(mongoTemplate.getCollection(settings.collection()).watch()).maxAwaitTime(1, TimeUnit.SECONDS);
+        // startAfter, unlike resumeAfter, also accepts the token of an invalidate event
+        if (token != null) stream = stream.startAfter(token);
+
+        long lastFlush = System.currentTimeMillis();
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            // The stream is opened first so nothing written during a snapshot is missed
+            if (token == null) onFreshStart();
+            log.info("====== Publishing {} changes on {} ======", settings.collection(), settings.topic());
+            while (running && renewLease()) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    ChangeEvent event = ChangeEvent.of(settings.collection(), change);
+                    if (event != null) publish(settings.topic(), event.id(), event);
+                    onChange(change);
+                }
+                // The cursor's token also moves forward while idle, so restarts don't rescan quiet periods
+                if (change == null || System.currentTimeMillis() - lastFlush >= settings.flushIntervalMs()) {
+                    flush(cursor.getResumeToken());
+                    lastFlush = System.currentTimeMillis();
+                }
+            }
+            if (running) {
+                log.warn("====== Lost the {} change stream lease, standing by ======", settings.collection());
+                return;
+            }
+            flush(cursor.getResumeToken());
+        }
+    }
+
+    /**
+     * Extends the lease once a third of its TTL has passed, so a holder that stalls past the TTL stops publishing.
+     */
+    private boolean renewLease() {
+        long now = System.currentTimeMillis();
+        if (now - leaseRenewedAt < LEASE_RENEW_MS) return true;
+        if (!leases.tryAcquire(leaseName, LEASE_TTL)) return false;
+        leaseRenewedAt = now;
+        return true;
+    }
+
+    private void flush(BsonDocument token) throws Exception {
+        awaitPublished();
+        if (token != null && !token.equals(savedToken)) saveToken(token);
+    }
+
+    private void retryLater(Exception e) {
+        if (!running) return;
+        log.error("====== {} change stream failed, retrying in {} ms: {} ======", settings.collection(), settings.retryDelayMs(), e.getMessage());
+        pause();
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(settings.retryDelayMs());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private BsonDocument loadToken() {
+        Document stored = mongoTemplate.getCollection(TOKENS_COLLECTION).find(Filters.eq("_id", settings.collection())).first();
+        savedToken = stored == null ? null : BsonDocument.parse(stored.getString("token"));
+        return savedToken;
+    }
+
+    private void saveToken(BsonDocument token) {
+        MongoCollection<Document> tokens = mongoTemplate.getCollection(TOKENS_COLLECTION);
+        tokens.replaceOne(
+                Filters.eq("_id", settings.collection()),
+                new Document("_id", settings.collection()).append("token", token.toJson()).append("updatedAt", new Date()),
+                new ReplaceOptions().upsert(true)
+        );
+        savedToken = token;
+    }
+
+    private boolean supportsChangeStreams() {
+        Document hello = mongoTemplate.executeCommand(new Document("hello", 1));
+        return hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.buy01.common.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.AbstractKafkaListenerContainerFactory;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Virtual-thread mode of every service, active with {@code spring.threads.virtual.enabled=true} on a Java 21+ runtime.
+ * Boot switches Tomcat, {@code @Async} and {@code @Scheduled} over by itself; the services' own Kafka listener
+ * factories are not auto-configured, so their listener threads are switched here.
+ * Pinned virtual threads (a blocking call made while holding a monitor) are logged with their stack.
+ */
+@AutoConfiguration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadsConfig {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final Duration PINNED_THRESHOLD = Duration.ofMillis(20);
+    private static final int PINNED_STACK_DEPTH = 12;
+
+    @Bean
+    public static BeanPostProcessor virtualThreadKafkaListeners() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractKafkaListenerContainerFactory<?, ?, ?> factory
+                        && factory.getContainerProperties().getListenerTaskExecutor() == null) {
+                    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(beanName + "-");
+                    executor.setVirtualThreads(true);
+                    factory.getContainerProperties().setListenerTaskExecutor(executor);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public RecordingStream virtualThreadPinningMonitor() {
+        RecordingStream stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(PINNED_THRESHOLD).withStackTrace();
+        stream.onEvent(PINNED_EVENT, event -> log.warn("====== Virtual thread pinned for {} ms ======\n{}",
+                event.getDuration().toMillis(), stack(event)));
+        stream.startAsync();
+        log.info("====== Virtual threads enabled, reporting pins over {} ms ======", PINNED_THRESHOLD.toMillis());
+        return stream;
+    }
+
+    private static String stack(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "\tat <no stack>";
+        return event.getStackTrace().getFrames().stream()
+                .limit(PINNED_STACK_DEPTH)
+                .map(VirtualThreadsConfig::frame)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,75 @@
+package com.buy01.common.lease;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Named leases kept in the {@value #COLLECTION} collection, so work that must run on a single replica
+ * (change-stream publishing, full rebuilds) is done by whichever instance holds the lease.
+ * A lease is taken when free or expired and extended by its holder; expiry is computed with the server's
+ * {@code $$NOW}, so the instances' clocks play no part. A holder that stops renewing loses the lease after its TTL.
+ */
+public class Leases {
+    public static final String COLLECTION = "leases";
+
+    private final MongoTemplate mongoTemplate;
+    private final String owner;
+
+    public Leases(MongoTemplate mongoTemplate, String owner) {
+        this.mongoTemplate = mongoTemplate;
+        this.owner = owner;
+    }
+
+    public String owner() {
+        return owner;
+    }
+
+    /**
+     * Takes the lease, or extends it when this instance already holds it, in one atomic update.
+     *
+     * @return whether this instance holds the lease for the next {@code ttl}
+     */
+    public boolean tryAcquire(String name, Duration ttl) {
+        Document takeable = new Document("$or", List.of(
+                new Document("$eq", List.of("$owner", owner)),
+                new Document("$lte", List.of(new Document("$ifNull", List.of("$expiresAt", new Date(0))), "$$NOW"))
+        ));
+        // Both fields are computed from the document as it was before this update
+        Document update = new Document("$set", new Document()
+                .append("owner", new Document("$cond", List.of(takeable, owner, "$owner")))
+                .append("expiresAt", new Document("$cond", List.of(
+                        takeable, new Document("$add", List.of("$$NOW", ttl.toMillis())), "$expiresAt")))
+        );
+
+        try {
+            Document lease = leases().findOneAndUpdate(Filters.eq("_id", name), List.of(update),
+                    new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+            return lease != null && owner.equals(lease.getString("owner"));
+        } catch (MongoException e) {
+            // Another instance created the lease first
+            if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Gives the lease up early so another instance can take it without waiting for the TTL.
+     */
+    public void release(String name) {
+        leases().deleteOne(Filters.and(Filters.eq("_id", name), Filters.eq("owner", owner)));
+    }
+
+    private MongoCollection<Document> leases() {
+        return mongoTemplate.getCollection(COLLECTION);
+    }
+}
@@ -0,0 +1,26 @@
+package com.buy01.common.lease;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.UUID;
+
+/**
+ * One {@link Leases} per service instance. The owner name carries the application name for
+ * readability and a random suffix, so two instances on the same host never share a lease.
+ */
+@AutoConfiguration(after = MongoDataAutoConfiguration.class)
+@ConditionalOnBean(MongoTemplate.class)
+public class LeasesAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Leases leases(MongoTemplate mongoTemplate, @Value("${spring.application.name:app}") String applicationName) {
+        return new Leases(mongoTemplate, applicationName + "-" + UUID.randomUUID());
+    }
+}
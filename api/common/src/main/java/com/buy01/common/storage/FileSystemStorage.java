@@ -0,0 +1,156 @@
+package com.buy01.common.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Keeps objects under the upload directory, a key being a path relative to it. Renames are atomic,
+ * so an object can be parked aside and put back without a window where it is half there.
+ * Subclasses can place some keys elsewhere under the directory through {@link #file} and {@link #target}.
+ */
+public class FileSystemStorage implements ObjectStorage {
+    private final Path base;
+
+    public FileSystemStorage(String baseUploadDirectory) {
+        this.base = Paths.get(baseUploadDirectory).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        return stat(key, file(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(file(key));
+    }
+
+    @Override
+    public void put(String key, InputStream body, String contentType) throws IOException {
+        Path target = target(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".put-", ".tmp");
+        try {
+            Files.copy(body, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * The file must be on the same file system as the upload directory.
+     */
+    @Override
+    public void store(String key, Path file, String contentType) throws IOException {
+        Path target = target(key);
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Looks for the source a second time when it is gone, in case {@link #file} finds it somewhere
+     * else by then. The file is stamped with the time of the move, as a copy is in S3, so an object
+     * parked aside ages from when it got there rather than from when it was written.
+     */
+    @Override
+    public boolean move(String source, String target) throws IOException {
+        Path from = file(source);
+        Path to = target(target);
+        Files.createDirectories(to.getParent());
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                // Stamped before the move, so it never shows up at its target with its old time
+                Files.setLastModifiedTime(from, FileTime.from(Instant.now()));
+                Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (NoSuchFileException e) {
+                Path moved = file(source);
+                if (moved.equals(from)) return false;
+                from = moved;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(file(key));
+    }
+
+    /**
+     * The prefix must name a directory (or be empty for the whole store), listed recursively.
+     */
+    @Override
+    public Stream<StoredObject> list(String prefix) throws IOException {
+        Path directory = prefix.isEmpty() ? base : file(prefix);
+        if (!Files.isDirectory(directory)) return Stream.empty();
+        return Files.walk(directory)
+                .map(file -> statUnchecked(keyOf(file), file))
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Path localFile(String key) {
+        return file(key);
+    }
+
+    @Override
+    public URI presign(String key, Duration ttl) {
+        return null;
+    }
+
+    /**
+     * @return where the object is, or where it is written when it doesn't exist yet
+     * @throws IllegalArgumentException for a key leading outside the upload directory
+     */
+    protected Path file(String key) {
+        Path file = base.resolve(key).normalize();
+        if (!file.startsWith(base) || file.equals(base))
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        return file;
+    }
+
+    /**
+     * @return where a new object is written, {@link #file} unless a subclass moves keys around
+     */
+    protected Path target(String key) {
+        return file(key);
+    }
+
+    protected String keyOf(Path file) {
+        return base.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    protected static StoredObject stat(String key, Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) return null;
+            return new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    protected static StoredObject statUnchecked(String key, Path file) {
+        try {
+            return stat(key, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
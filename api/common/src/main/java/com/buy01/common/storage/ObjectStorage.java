@@ -0,0 +1,72 @@
+package com.buy01.common.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Where stored files are kept, addressed by slash-separated keys such as {@code blobs/<name>} or an
+ * avatar's file name. {@link FileSystemStorage} keeps them under the upload directory of one host;
+ * {@link S3Storage} keeps them in a bucket of any S3-compatible service, so every replica of a
+ * service shares them.
+ */
+public interface ObjectStorage {
+
+    record StoredObject(String key, long size, Instant lastModified) {
+    }
+
+    /**
+     * @return the object's size and modification time, or null when there is none
+     */
+    StoredObject stat(String key) throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException when there is no such object
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Stores a stream of unknown length. The object only becomes visible once complete.
+     */
+    void put(String key, InputStream body, String contentType) throws IOException;
+
+    /**
+     * Stores a local file under the key. The file is taken over: it is moved in place, or deleted
+     * once uploaded.
+     */
+    void store(String key, Path file, String contentType) throws IOException;
+
+    /**
+     * Renames an object, replacing any object at {@code target}. The moved object's modification
+     * time is the time of the move.
+     *
+     * @return false when there was nothing to move
+     */
+    boolean move(String source, String target) throws IOException;
+
+    /**
+     * Deletes the object if there is one.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Lists the objects under a prefix, fetching further pages while the stream is consumed.
+     * The stream must be closed.
+     */
+    Stream<StoredObject> list(String prefix) throws IOException;
+
+    /**
+     * @return the object's file when this storage keeps it on the local disk, otherwise null
+     */
+    Path localFile(String key);
+
+    /**
+     * @return a URL anyone can download the object from until {@code ttl} has passed, or null when
+     * this storage can't hand out such URLs
+     */
+    URI presign(String key, Duration ttl);
+}
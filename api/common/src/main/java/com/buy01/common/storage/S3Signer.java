@@ -0,0 +1,169 @@
+package com.buy01.common.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * AWS Signature Version 4 for S3 requests, both as an {@code Authorization} header and as a
+ * presigned query string. Request URIs must already be encoded with {@link #encode}.
+ */
+final class S3Signer {
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+
+    S3Signer(String accessKey, String secretKey, String region) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    /**
+     * @param headers further headers to sign, with lower-case names; sent as they are by the caller
+     * @return the headers to add to the request: the date, the payload hash and the authorization
+     */
+    Map<String, String> sign(String method, URI uri, Map<String, String> headers, String payloadHash, Instant now) {
+        String timestamp = TIMESTAMP.format(now);
+        Map<String, String> signed = new TreeMap<>(headers);
+        signed.put("host", host(uri));
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", timestamp);
+        String signedHeaders = String.join(";", signed.keySet());
+        String canonicalHeaders = signed.entrySet().stream()
+                .map(header -> header.getKey() + ":" + header.getValue().trim() + "\n")
+                .collect(Collectors.joining());
+
+        String canonicalRequest = method + "\n" + canonicalPath(uri) + "\n" + canonicalQuery(uri.getRawQuery()) + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+        String signature = signature(canonicalRequest, timestamp);
+
+        Map<String, String> added = new LinkedHashMap<>();
+        added.put("x-amz-content-sha256", payloadHash);
+        added.put("x-amz-date", timestamp);
+        added.put("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope(timestamp)
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        return added;
+    }
+
+    /**
+     * @return the URI with a query string that authorizes the request until {@code ttl} has passed
+     */
+    URI presign(String method, URI uri, Duration ttl, Instant now) {
+        String timestamp = TIMESTAMP.format(now);
+        String query = (uri.getRawQuery() != null ? uri.getRawQuery() + "&" : "")
+                + "X-Amz-Algorithm=" + ALGORITHM
+                + "&X-Amz-Credential=" + encode(accessKey + "/" + scope(timestamp))
+                + "&X-Amz-Date=" + timestamp
+                + "&X-Amz-Expires=" + ttl.toSeconds()
+                + "&X-Amz-SignedHeaders=host";
+        String canonicalRequest = method + "\n" + canonicalPath(uri) + "\n" + canonicalQuery(query) + "\n"
+                + "host:" + host(uri) + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        String signature = signature(canonicalRequest, timestamp);
+
+        String base = uri.toString();
+        int queryStart = base.indexOf('?');
+        if (queryStart >= 0) base = base.substring(0, queryStart);
+        return URI.create(base + "?" + query + "&X-Amz-Signature=" + signature);
+    }
+
+    /**
+     * Percent-encodes everything but RFC 3986 unreserved characters, and {@code /} too unless
+     * {@code keepSlashes}, the way S3 expects keys and query values.
+     */
+    static String encode(String value, boolean keepSlashes) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlashes && c == '/'))
+                encoded.append(c);
+            else
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+        }
+        return encoded.toString();
+    }
+
+    static String encode(String value) {
+        return encode(value, false);
+    }
+
+    static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String signature(String canonicalRequest, String timestamp) {
+        String stringToSign = ALGORITHM + "\n" + timestamp + "\n" + scope(timestamp) + "\n"
+                + sha256Hex(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), timestamp.substring(0, 8));
+        key = hmac(key, region);
+        key = hmac(key, SERVICE);
+        key = hmac(key, "aws4_request");
+        return HexFormat.of().formatHex(hmac(key, stringToSign));
+    }
+
+    private String scope(String timestamp) {
+        return timestamp.substring(0, 8) + "/" + region + "/" + SERVICE + "/aws4_request";
+    }
+
+    private static String canonicalPath(URI uri) {
+        String path = uri.getRawPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    /**
+     * Parameters sorted by name; a parameter without a value gets an empty one.
+     */
+    private static String canonicalQuery(String query) {
+        if (query == null || query.isEmpty()) return "";
+        return Arrays.stream(query.split("&"))
+                .map(parameter -> parameter.contains("=") ? parameter : parameter + "=")
+                .sorted(Comparator.comparing((String parameter) -> parameter.substring(0, parameter.indexOf('=')))
+                        .thenComparing(parameter -> parameter.substring(parameter.indexOf('=') + 1)))
+                .collect(Collectors.joining("&"));
+    }
+
+    /**
+     * The Host header as the HTTP client sends it: without the port when it is the scheme's default.
+     */
+    static String host(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || (port == 80 && "http".equals(uri.getScheme()))
+                || (port == 443 && "https".equals(uri.getScheme()));
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.buy01.common.storage;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Keeps objects in a bucket of an S3-compatible service (AWS S3, MinIO, Ceph), speaking the REST
+ * API directly with Signature V4. Uploads above the part size go up as multipart uploads, a part at
+ * a time, so memory use stays at one part per upload whatever the file size. Downloads are
+ * streamed, and presigned URLs let clients fetch objects from the service without going through
+ * this one.
+ */
+public class S3Storage implements ObjectStorage {
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final HttpClient client;
+    private final S3Signer signer;
+    private final URI endpoint;
+    private final URI publicEndpoint;
+    private final String bucket;
+    private final String prefix;
+    private final boolean pathStyle;
+    private final int partSize;
+    private final Duration timeout;
+
+    /**
+     * @param publicEndpoint the endpoint as clients reach it, for presigned URLs (their signature covers the host)
+     * @param prefix         prepended to every key, so several services can share a bucket
+     * @param pathStyle      address the bucket as {@code endpoint/bucket/key} (MinIO) instead of {@code bucket.endpoint/key}
+     */
+    public S3Storage(String endpoint, String publicEndpoint, String region, String bucket, String accessKey, String secretKey,
+                     String prefix, boolean pathStyle, int partSize, Duration timeout) {
+        this.endpoint = endpoint(endpoint);
+        this.publicEndpoint = publicEndpoint.isBlank() ? this.endpoint : endpoint(publicEndpoint);
+        this.signer = new S3Signer(accessKey, secretKey, region);
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.pathStyle = pathStyle;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", uri(key, null), Map.of(), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) return null;
+        check(response, "HEAD", key, null);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        Instant lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())
+                .orElse(Instant.EPOCH);
+        return new StoredObject(key, size, lastModified);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        HttpResponse<InputStream> response = send("GET", uri(key, null), Map.of(), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 == 2) return response.body();
+
+        byte[] error;
+        try (InputStream body = response.body()) {
+            error = body.readAllBytes();
+        }
+        if (response.statusCode() == 404) throw new NoSuchFileException(key);
+        throw failure("GET", key, response.statusCode(), error);
+    }
+
+    @Override
+    public void put(String key, InputStream body, String contentType) throws IOException {
+        byte[] first = body.readNBytes(partSize);
+        if (first.length < partSize) {
+            putObject(key, HttpRequest.BodyPublishers.ofByteArray(first), contentType);
+            return;
+        }
+
+        String uploadId = createMultipartUpload(key, contentType);
+        try {
+            List<String> etags = new ArrayList<>();
+            etags.add(uploadPart(key, uploadId, 1, first));
+            for (byte[] part; (part = body.readNBytes(partSize)).length > 0; )
+                etags.add(uploadPart(key, uploadId, etags.size() + 1, part));
+            completeMultipartUpload(key, uploadId, etags);
+        } catch (IOException | RuntimeException e) {
+            try {
+                send("DELETE", uri(key, Map.of("uploadId", uploadId)), Map.of(), HttpRequest.BodyPublishers.noBody(),
+                        HttpResponse.BodyHandlers.discarding());
+            } catch (IOException abort) {
+                e.addSuppressed(abort);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void store(String key, Path file, String contentType) throws IOException {
+        if (Files.size(file) <= partSize) {
+            putObject(key, HttpRequest.BodyPublishers.ofFile(file), contentType);
+        } else {
+            try (InputStream input = Files.newInputStream(file)) {
+                put(key, input, contentType);
+            }
+        }
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * S3 has no rename: the object is copied within the service, then the source deleted.
+     */
+    @Override
+    public boolean move(String source, String target) throws IOException {
+        String copySource = "/" + bucket + "/" + S3Signer.encode(prefix + source, true);
+        HttpResponse<byte[]> response = send("PUT", uri(target, null), Map.of("x-amz-copy-source", copySource),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 404) return false;
+        check(response, "COPY", source, response.body());
+        // A copy can fail after its 200 OK was sent, with the error in the body
+        if (new String(response.body(), StandardCharsets.UTF_8).contains("<Error>"))
+            throw failure("COPY", source, response.statusCode(), response.body());
+        delete(source);
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<byte[]> response = send("DELETE", uri(key, null), Map.of(), HttpRequest.BodyPublishers.noBody(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 404) check(response, "DELETE", key, response.body());
+    }
+
+    @Override
+    public Stream<StoredObject> list(String keyPrefix) {
+        Iterator<StoredObject> pages = new Iterator<>() {
+            private final Deque<StoredObject> page = new ArrayDeque<>();
+            private String continuationToken;
+            private boolean truncated = true;
+
+            @Override
+            public boolean hasNext() {
+                while (page.isEmpty() && truncated) fetch();
+                return !page.isEmpty();
+            }
+
+            @Override
+            public StoredObject next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return page.poll();
+            }
+
+            private void fetch() {
+                Map<String, String> query = new LinkedHashMap<>();
+                query.put("list-type", "2");
+                query.put("prefix", prefix + keyPrefix);
+                if (continuationToken != null) query.put("continuation-token", continuationToken);
+                try {
+                    HttpResponse<byte[]> response = send("GET", bucketUri(query), Map.of(),
+                            HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofByteArray());
+                    check(response, "LIST", keyPrefix, response.body());
+                    Element result = parse(response.body());
+                    NodeList contents = result.getElementsByTagName("Contents");
+                    for (int i = 0; i < contents.getLength(); i++) {
+                        Element object = (Element) contents.item(i);
+                        String key = text(object, "Key");
+                        if (key == null || !key.startsWith(prefix)) continue;
+                        page.add(new StoredObject(key.substring(prefix.length()),
+                                Long.parseLong(text(object, "Size")), Instant.parse(text(object, "LastModified"))));
+                    }
+                    truncated = "true".equals(text(result, "IsTruncated"));
+                    continuationToken = text(result, "NextContinuationToken");
+                    if (continuationToken == null) truncated = false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Path localFile(String key) {
+        return null;
+    }
+
+    @Override
+    public URI presign(String key, Duration ttl) {
+        return signer.presign("GET", uri(publicEndpoint, key, null), ttl, Instant.now());
+    }
+
+    private void putObject(String key, HttpRequest.BodyPublisher body, String contentType) throws IOException {
+        HttpResponse<byte[]> response = send("PUT", uri(key, null), contentHeaders(contentType), body,
+                HttpResponse.BodyHandlers.ofByteArray());
+        check(response, "PUT", key, response.body());
+    }
+
+    private String createMultipartUpload(String key, String contentType) throws IOException {
+        HttpResponse<byte[]> response = send("POST", uri(key, Map.of("uploads", "")), contentHeaders(contentType),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofByteArray());
+        check(response, "POST", key, response.body());
+        String uploadId = text(parse(response.body()), "UploadId");
+        if (uploadId == null) throw new IOException("S3 returned no upload id for " + key);
+        return uploadId;
+    }
+
+    private String uploadPart(String key, String uploadId, int number, byte[] part) throws IOException {
+        Map<String, String> query = new LinkedHashMap<>();
+        query.put("partNumber", Integer.toString(number));
+        query.put("uploadId", uploadId);
+        HttpResponse<byte[]> response = send("PUT", uri(key, query), Map.of(),
+                HttpRequest.BodyPublishers.ofByteArray(part), HttpResponse.BodyHandlers.ofByteArray());
+        check(response, "PUT part " + number, key, response.body());
+        return response.headers().firstValue("ETag")
+                .orElseThrow(() -> new IOException("S3 returned no ETag for part " + number + " of " + key));
+    }
+
+    private void completeMultipartUpload(String key, String uploadId, List<String> etags) throws IOException {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < etags.size(); i++)
+            xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(etags.get(i).replace("&", "&amp;").replace("\"", "&quot;"))
+                    .append("</ETag></Part>");
+        xml.append("</CompleteMultipartUpload>");
+
+        HttpResponse<byte[]> response = send("POST", uri(key, Map.of("uploadId", uploadId)), Map.of(),
+                HttpRequest.BodyPublishers.ofString(xml.toString()), HttpResponse.BodyHandlers.ofByteArray());
+        check(response, "COMPLETE", key, response.body());
+        if (new String(response.body(), StandardCharsets.UTF_8).contains("<Error>"))
+            throw failure("COMPLETE", key, response.statusCode(), response.body());
+    }
+
+    private static Map<String, String> contentHeaders(String contentType) {
+        return contentType == null ? Map.of() : Map.of("content-type", contentType);
+    }
+
+    private <T> HttpResponse<T> send(String method, URI uri, Map<String, String> headers,
+                                     HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<T> handler) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .method(method, body);
+        headers.forEach(request::header);
+        signer.sign(method, uri, headers, S3Signer.UNSIGNED_PAYLOAD, Instant.now()).forEach(request::header);
+        try {
+            return client.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling S3", e);
+        }
+    }
+
+    private URI uri(String key, Map<String, String> query) {
+        return uri(endpoint, key, query);
+    }
+
+    private URI uri(URI endpoint, String key, Map<String, String> query) {
+        String path = S3Signer.encode(prefix + key, true);
+        String base = pathStyle
+                ? endpoint + "/" + bucket + "/" + path
+                : endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/" + path;
+        return URI.create(base + queryString(query));
+    }
+
+    private URI bucketUri(Map<String, String> query) {
+        String base = pathStyle
+                ? endpoint + "/" + bucket
+                : endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/";
+        return URI.create(base + queryString(query));
+    }
+
+    private static URI endpoint(String endpoint) {
+        return URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+    }
+
+    private static String queryString(Map<String, String> query) {
+        if (query == null || query.isEmpty()) return "";
+        StringBuilder string = new StringBuilder();
+        query.forEach((name, value) -> string.append(string.isEmpty() ? "?" : "&")
+                .append(S3Signer.encode(name)).append('=').append(S3Signer.encode(value)));
+        return string.toString();
+    }
+
+    private static void check(HttpResponse<?> response, String operation, String key, byte[] body) throws IOException {
+        if (response.statusCode() / 100 != 2) throw failure(operation, key, response.statusCode(), body);
+    }
+
+    private static IOException failure(String operation, String key, int status, byte[] body) {
+        String code = null;
+        if (body != null && body.length > 0) {
+            try {
+                code = text(parse(body), "Code");
+            } catch (IOException e) {
+                // Not an S3 error document
+            }
+        }
+        return new IOException("S3 " + operation + " " + key + " failed with status " + status + (code != null ? " (" + code + ")" : ""));
+    }
+
+    private static Element parse(byte[] xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+            return document.getDocumentElement();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Unreadable S3 response", e);
+        }
+    }
+
+    private static String text(Element parent, String tag) {
+        NodeList nodes = parent.getElementsByTagName(tag);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+}
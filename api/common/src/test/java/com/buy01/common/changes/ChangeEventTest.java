@@ -0,0 +1,48 @@
+package com.buy01.common.changes;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ChangeEventTest {
+
+    @Test
+    @DisplayName("Should describe an update by document id and changed fields only")
+    @SuppressWarnings("unchecked")
+    void of_Update() {
+        ObjectId id = new ObjectId();
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getDocumentKey()).thenReturn(new BsonDocument("_id", new BsonObjectId(id)));
+        when(change.getOperationTypeString()).thenReturn("update");
+        when(change.getClusterTime()).thenReturn(new BsonTimestamp(1700000000, 1));
+        when(change.getUpdateDescription()).thenReturn(new UpdateDescription(
+                List.of("description"), new BsonDocument("price", new BsonInt32(10)).append("quantity", new BsonInt32(2))));
+
+        ChangeEvent event = ChangeEvent.of("products", change);
+
+        assertEquals(new ChangeEvent("products", "update", id.toHexString(),
+                List.of("price", "quantity", "description"), 1700000000000L), event);
+    }
+
+    @Test
+    @DisplayName("Should skip stream-level changes that name no document")
+    @SuppressWarnings("unchecked")
+    void of_Drop() {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getDocumentKey()).thenReturn(null);
+
+        assertNull(ChangeEvent.of("products", change));
+    }
+}
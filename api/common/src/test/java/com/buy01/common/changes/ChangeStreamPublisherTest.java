@@ -0,0 +1,59 @@
+package com.buy01.common.changes;
+
+import com.buy01.common.lease.Leases;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeStreamPublisherTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private Leases leases;
+
+    @Test
+    @DisplayName("Should stand by without opening the stream while another instance holds the lease")
+    void start_StandsByWithoutLease() throws Exception {
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(new Document("setName", "rs0"));
+        when(leases.tryAcquire(eq("change-stream:products"), any(Duration.class))).thenReturn(false);
+        ChangeStreamPublisher publisher = new ChangeStreamPublisher(mongoTemplate, kafkaTemplate, leases,
+                new ChangeStreamPublisher.Settings("products", "product-changes", true, 1000, 10));
+
+        publisher.start();
+        verify(leases, timeout(1000).atLeast(2)).tryAcquire(eq("change-stream:products"), any(Duration.class));
+        publisher.stop();
+
+        verify(mongoTemplate, never()).getCollection("products");
+        verify(mongoTemplate, never()).getCollection(ChangeStreamPublisher.TOKENS_COLLECTION);
+        verifyNoInteractions(kafkaTemplate);
+        verify(leases).release("change-stream:products");
+    }
+
+    @Test
+    @DisplayName("Should not start when disabled")
+    void start_Disabled() throws Exception {
+        ChangeStreamPublisher publisher = new ChangeStreamPublisher(mongoTemplate, kafkaTemplate, leases,
+                new ChangeStreamPublisher.Settings("products", "product-changes", false, 1000, 10));
+
+        publisher.start();
+        publisher.stop();
+
+        verifyNoInteractions(mongoTemplate, leases);
+    }
+}
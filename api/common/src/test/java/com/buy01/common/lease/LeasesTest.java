@@ -0,0 +1,99 @@
+package com.buy01.common.lease;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeasesTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoCollection<Document> collection;
+
+    private Leases leases;
+
+    @BeforeEach
+    void setUp() {
+        leases = new Leases(mongoTemplate, "product-1");
+        when(mongoTemplate.getCollection(Leases.COLLECTION)).thenReturn(collection);
+    }
+
+    @Test
+    @DisplayName("Should hold the lease when the update leaves this instance as owner")
+    void tryAcquire_Taken() {
+        when(collection.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(new Document("_id", "job").append("owner", "product-1"));
+
+        assertTrue(leases.tryAcquire("job", Duration.ofSeconds(30)));
+    }
+
+    @Test
+    @DisplayName("Should not hold a lease another live instance owns")
+    void tryAcquire_HeldElsewhere() {
+        when(collection.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(new Document("_id", "job").append("owner", "product-2"));
+
+        assertFalse(leases.tryAcquire("job", Duration.ofSeconds(30)));
+    }
+
+    @Test
+    @DisplayName("Should lose the race quietly when another instance creates the lease first")
+    void tryAcquire_ConcurrentCreate() {
+        BsonDocument error = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(11000))
+                .append("errmsg", new BsonString("E11000 duplicate key error"));
+        when(collection.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class)))
+                .thenThrow(new MongoCommandException(error, new ServerAddress()));
+
+        assertFalse(leases.tryAcquire("job", Duration.ofSeconds(30)));
+    }
+
+    @Test
+    @DisplayName("Should compute the expiry on the server and only take free or expired leases")
+    @SuppressWarnings("unchecked")
+    void tryAcquire_ServerClock() {
+        ArgumentCaptor<List<Bson>> update = ArgumentCaptor.forClass(List.class);
+        when(collection.findOneAndUpdate(any(Bson.class), update.capture(), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(null);
+
+        leases.tryAcquire("job", Duration.ofSeconds(30));
+
+        String pipeline = update.getValue().get(0).toBsonDocument().toJson();
+        assertTrue(pipeline.contains("$$NOW"));
+        assertTrue(pipeline.contains("30000"));
+        assertTrue(pipeline.contains("product-1"));
+    }
+
+    @Test
+    @DisplayName("Should only release a lease this instance owns")
+    void release_OwnLeaseOnly() {
+        leases.release("job");
+
+        verify(collection).deleteOne(argThat((Bson filter) ->
+                filter.toBsonDocument().toJson().contains("\"owner\": \"product-1\"")));
+    }
+}
@@ -0,0 +1,100 @@
+package com.buy01.common.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemStorageTest {
+    @TempDir
+    Path base;
+
+    private FileSystemStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new FileSystemStorage(base.toString());
+    }
+
+    @Test
+    @DisplayName("Should put, stat, open and delete an object under the upload directory")
+    void putAndDelete() throws IOException {
+        storage.put("a.png", new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)), "image/png");
+
+        assertEquals(5, storage.stat("a.png").size());
+        assertEquals(base.resolve("a.png"), storage.localFile("a.png"));
+        try (InputStream input = storage.open("a.png")) {
+            assertEquals("hello", new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertNull(storage.presign("a.png", Duration.ofMinutes(1)));
+
+        storage.delete("a.png");
+        storage.delete("a.png");
+        assertNull(storage.stat("a.png"));
+        assertThrows(NoSuchFileException.class, () -> storage.open("a.png"));
+    }
+
+    @Test
+    @DisplayName("Should reject keys leading outside the upload directory")
+    void invalidKeys() {
+        assertThrows(IllegalArgumentException.class, () -> storage.stat("../outside.png"));
+        assertThrows(IllegalArgumentException.class, () -> storage.localFile("a/../.."));
+        assertThrows(IllegalArgumentException.class, () -> storage.delete(""));
+    }
+
+    @Test
+    @DisplayName("Should list every object with slash-separated keys, the whole store for an empty prefix")
+    void list() throws IOException {
+        storage.put("a.png", InputStream.nullInputStream(), "image/png");
+        storage.put("archive/b.png", InputStream.nullInputStream(), "image/png");
+
+        try (Stream<ObjectStorage.StoredObject> all = storage.list("");
+             Stream<ObjectStorage.StoredObject> archived = storage.list("archive");
+             Stream<ObjectStorage.StoredObject> none = storage.list("missing")) {
+            assertEquals(List.of("a.png", "archive/b.png"), all.map(ObjectStorage.StoredObject::key).sorted().toList());
+            assertEquals(List.of("archive/b.png"), archived.map(ObjectStorage.StoredObject::key).toList());
+            assertEquals(0, none.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should move an object and date it from the move, and report a missing source")
+    void move() throws IOException {
+        Path old = Files.writeString(base.resolve("a.png"), "hello");
+        Instant written = Instant.now().minus(Duration.ofDays(2));
+        Files.setLastModifiedTime(old, FileTime.from(written));
+
+        assertTrue(storage.move("a.png", ".trash/a.png"));
+
+        assertFalse(Files.exists(old));
+        ObjectStorage.StoredObject moved = storage.stat(".trash/a.png");
+        assertTrue(moved.lastModified().isAfter(written.plus(Duration.ofDays(1))));
+        assertFalse(storage.move("a.png", ".trash/a.png"));
+    }
+
+    @Test
+    @DisplayName("Should take over a stored file")
+    void store() throws IOException {
+        Path file = Files.writeString(base.resolve("upload.tmp"), "hello");
+
+        storage.store("avatars/a.png", file, "image/png");
+
+        assertFalse(Files.exists(file));
+        assertEquals("hello", Files.readString(base.resolve("avatars/a.png")));
+    }
+}
@@ -0,0 +1,212 @@
+package com.buy01.common.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory, path-style S3 endpoint for one bucket, covering the calls {@link S3Storage} makes the
+ * way MinIO answers them. Requests without a SigV4 authorization header or presigned query are refused.
+ */
+class S3StandIn implements AutoCloseable {
+    static final String BUCKET = "media";
+    private static final int PAGE_SIZE = 2;
+
+    record Stored(byte[] data, String contentType, Instant lastModified) {
+    }
+
+    final Map<String, Stored> objects = new ConcurrentHashMap<>();
+    final AtomicInteger multipartUploads = new AtomicInteger();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final HttpServer server;
+
+    S3StandIn() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            boolean signed = authorization != null && authorization.startsWith("AWS4-HMAC-SHA256 Credential=")
+                    || query.containsKey("X-Amz-Signature");
+            if (!signed) {
+                error(exchange, 403, "AccessDenied");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String bucketPath = "/" + BUCKET;
+            if (path.equals(bucketPath) || path.equals(bucketPath + "/")) {
+                list(exchange, query);
+                return;
+            }
+            String key = path.substring(bucketPath.length() + 1);
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            switch (exchange.getRequestMethod()) {
+                case "HEAD" -> head(exchange, key);
+                case "GET" -> get(exchange, key);
+                case "PUT" -> put(exchange, key, query, body);
+                case "POST" -> post(exchange, key, query, body);
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) uploads.remove(query.get("uploadId"));
+                    else objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> error(exchange, 405, "MethodNotAllowed");
+            }
+        }
+    }
+
+    private void head(HttpExchange exchange, String key) throws IOException {
+        Stored stored = objects.get(key);
+        if (stored == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Length", Integer.toString(stored.data().length));
+        exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(stored.lastModified().atOffset(ZoneOffset.UTC)));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void get(HttpExchange exchange, String key) throws IOException {
+        Stored stored = objects.get(key);
+        if (stored == null) {
+            error(exchange, 404, "NoSuchKey");
+            return;
+        }
+        if (stored.contentType() != null) exchange.getResponseHeaders().set("Content-Type", stored.contentType());
+        send(exchange, 200, stored.data());
+    }
+
+    private void put(HttpExchange exchange, String key, Map<String, String> query, byte[] body) throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource != null) {
+            String sourceKey = URLDecoder.decode(copySource, StandardCharsets.UTF_8).substring(bucketPrefix().length());
+            Stored source = objects.get(sourceKey);
+            if (source == null) {
+                error(exchange, 404, "NoSuchKey");
+                return;
+            }
+            objects.put(key, new Stored(source.data(), source.contentType(), Instant.now()));
+            send(exchange, 200, "<CopyObjectResult></CopyObjectResult>".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (query.containsKey("uploadId")) {
+            Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+            if (parts == null) {
+                error(exchange, 404, "NoSuchUpload");
+                return;
+            }
+            int number = Integer.parseInt(query.get("partNumber"));
+            parts.put(number, body);
+            exchange.getResponseHeaders().set("ETag", "\"part-" + number + "\"");
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        objects.put(key, new Stored(body, exchange.getRequestHeaders().getFirst("Content-Type"), Instant.now()));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void post(HttpExchange exchange, String key, Map<String, String> query, byte[] body) throws IOException {
+        if (query.containsKey("uploads")) {
+            String uploadId = "upload-" + multipartUploads.incrementAndGet();
+            uploads.put(uploadId, new TreeMap<>());
+            send(exchange, 200, ("<InitiateMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>" + key
+                    + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>").getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload");
+            return;
+        }
+        int listed = new String(body, StandardCharsets.UTF_8).split("<Part>", -1).length - 1;
+        if (listed != parts.size()) {
+            error(exchange, 400, "InvalidPart");
+            return;
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (byte[] part : parts.values()) data.writeBytes(part);
+        objects.put(key, new Stored(data.toByteArray(), null, Instant.now()));
+        send(exchange, 200, "<CompleteMultipartUploadResult></CompleteMultipartUploadResult>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String after = query.get("continuation-token");
+        StringBuilder xml = new StringBuilder("<ListBucketResult>");
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (Map.Entry<String, Stored> object : new TreeMap<>(objects).entrySet()) {
+            String key = object.getKey();
+            if (!key.startsWith(prefix) || (after != null && key.compareTo(after) <= 0)) continue;
+            if (count == PAGE_SIZE) {
+                truncated = true;
+                break;
+            }
+            xml.append("<Contents><Key>").append(key).append("</Key><LastModified>")
+                    .append(object.getValue().lastModified()).append("</LastModified><Size>")
+                    .append(object.getValue().data().length).append("</Size></Contents>");
+            last = key;
+            count++;
+        }
+        xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated) xml.append("<NextContinuationToken>").append(last).append("</NextContinuationToken>");
+        xml.append("</ListBucketResult>");
+        send(exchange, 200, xml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String bucketPrefix() {
+        return "/" + BUCKET + "/";
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void error(HttpExchange exchange, int status, String code) throws IOException {
+        send(exchange, status, ("<Error><Code>" + code + "</Code></Error>").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.zone01.media.changes;
+
+import com.buy01.common.changes.ChangeStreamPublisher;
+import com.buy01.common.lease.Leases;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the media collection's writes on {@value #TOPIC}, keyed by media id, from whichever instance holds its lease.
+ * Every change is also published as a {@link ProductMediaChange} for the product cards; with no stored token
+ * (first run, or the oplog moved past it) the current media are published first so cards can catch up.
+ */
+@Component
+@Slf4j
+public class MediaChangePublisher extends ChangeStreamPublisher {
+    public static final String TOPIC = "media-changes";
+    private static final int SNAPSHOT_BATCH_SIZE = 1000;
+
+    public MediaChangePublisher(
+            MongoTemplate mongoTemplate,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            Leases leases,
+            @Value("${media.change-stream.enabled:true}") boolean enabled,
+            @Value("${media.change-stream.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${media.change-stream.retry-delay-ms:5000}") long retryDelayMs
+    ) {
+        super(mongoTemplate, kafkaTemplate, leases, new Settings("media", TOPIC, enabled, flushIntervalMs, retryDelayMs));
+    }
+
+    @Override
+    protected ChangeStreamIterable<Document> watch(ChangeStreamIterable<Document> stream) {
+        return stream.fullDocument(FullDocument.UPDATE_LOOKUP);
+    }
+
+    @Override
+    protected void onFreshStart() throws Exception {
+        log.info("====== Publishing current {} for product cards ======", collection());
+        int queued = 0;
+        for (Document media : mongoTemplate().getCollection(collection()).find(Filters.eq("deleted", false))) {
+            publish(ProductMediaChange.of(media));
+            if (++queued % SNAPSHOT_BATCH_SIZE == 0) awaitPublished();
+        }
+    }
+
+    @Override
+    protected void onChange(ChangeStreamDocument<Document> change) {
+        publish(ProductMediaChange.of(change.getFullDocument()));
+    }
+
+    private void publish(ProductMediaChange change) {
+        if (change != null) publish(ProductMediaChange.TOPIC, change.productId(), change);
+    }
+}
@@ -0,0 +1,28 @@
+package com.zone01.media.changes;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+/**
+ * One media file of a product added, replaced or removed, published on {@value #TOPIC} keyed by product id.
+ * It carries the full state of that media, so the product service can keep its product cards up to date
+ * without asking for the product's media list.
+ */
+public record ProductMediaChange(String productId, String mediaId, String imagePath, boolean removed) {
+    public static final String TOPIC = "product-media-changes";
+
+    /**
+     * @return the change, or null when the document is gone (hard deletes only happen with their product)
+     */
+    public static ProductMediaChange of(Document media) {
+        if (media == null || media.getString("productId") == null) return null;
+        Object id = media.get("_id");
+        String mediaId = id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+        return new ProductMediaChange(
+                media.getString("productId"),
+                mediaId,
+                media.getString("image_path"),
+                media.getBoolean("deleted", false)
+        );
+    }
+}
@@ -0,0 +1,49 @@
+package com.zone01.media.config;
+
+import com.buy01.common.storage.ObjectStorage;
+import com.buy01.common.storage.S3Storage;
+import com.zone01.media.service.StorageLayout;
+import com.zone01.media.storage.LayoutFileSystemStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Picks where stored images live: {@code media.storage.backend=filesystem} keeps them under the
+ * upload directory, {@code s3} in a bucket shared by every media replica.
+ */
+@Configuration
+@Slf4j
+public class StorageConfig {
+
+    @Bean
+    public ObjectStorage objectStorage(
+            StorageLayout layout,
+            @Value("${media.storage.backend:filesystem}") String backend,
+            @Value("${media.storage.s3.endpoint:}") String endpoint,
+            @Value("${media.storage.s3.public-endpoint:}") String publicEndpoint,
+            @Value("${media.storage.s3.region:us-east-1}") String region,
+            @Value("${media.storage.s3.bucket:media}") String bucket,
+            @Value("${media.storage.s3.access-key:}") String accessKey,
+            @Value("${media.storage.s3.secret-key:}") String secretKey,
+            @Value("${media.storage.s3.prefix:}") String prefix,
+            @Value("${media.storage.s3.path-style:true}") boolean pathStyle,
+            @Value("${media.storage.s3.part-size:8388608}") int partSize,
+            @Value("${media.storage.s3.timeout-ms:30000}") long timeoutMs
+    ) {
+        return switch (backend.toLowerCase(Locale.ROOT)) {
+            case "filesystem" -> new LayoutFileSystemStorage(layout);
+            case "s3" -> {
+                if (endpoint.isBlank()) throw new IllegalArgumentException("media.storage.s3.endpoint is required with the s3 backend");
+                log.info("====== Storing media in bucket {} at {} ======", bucket, endpoint);
+                yield new S3Storage(endpoint, publicEndpoint, region, bucket, accessKey, secretKey, prefix, pathStyle, partSize,
+                        Duration.ofMillis(timeoutMs));
+            }
+            default -> throw new IllegalArgumentException("Unknown media.storage.backend: " + backend);
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.zone01.media.config.kafka;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.media.media.MediaService;
+import com.zone01.media.model.Response;
+import com.zone01.media.model.dto.MediaDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaKafkaListener {
+    public static final String MEDIA_BY_PRODUCTS_REQUEST = "media-by-products-request";
+    private static final String PRODUCT_RESPONSE = "media-response-to-product";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper jacksonObjectMapper;
+    private final MediaService mediaService;
+
+    /**
+     * Takes a JSON array of product ids and answers with a map of product id to its media.
+     */
+    @KafkaListener(
+            topics = MEDIA_BY_PRODUCTS_REQUEST,
+            containerFactory = "requestKafkaListenerContainerFactory"
+    )
+    public void handleMediaByProductsRequest(ConsumerRecord<String, Object> record) {
+        log.info("====== Received media lookup request from topic: {} ======", record.topic());
+        Response<Map<String, List<MediaDTO>>> response;
+        try {
+            List<String> productIds = jacksonObjectMapper.convertValue(record.value(), new TypeReference<>() {});
+            response = mediaService.getMediaByProductIds(productIds);
+        } catch (IllegalArgumentException e) {
+            response = Response.badRequest("Invalid media lookup request: " + e.getMessage());
+        }
+        reply(record, response);
+    }
+
+    private void reply(ConsumerRecord<String, Object> record, Response<?> response) {
+        String replyTopic = Optional.ofNullable(record.headers().lastHeader(KafkaHeaders.REPLY_TOPIC))
+                .map(header -> new String(header.value(), StandardCharsets.UTF_8))
+                .orElse(PRODUCT_RESPONSE);
+        byte[] correlationId = Optional.ofNullable(record.headers().lastHeader(KafkaHeaders.CORRELATION_ID))
+                .map(Header::value)
+                .orElse(null);
+
+        Message<Response<?>> message = MessageBuilder
+                .<Response<?>>withPayload(response)
+                .setHeader(KafkaHeaders.TOPIC, replyTopic)
+                .setHeader(KafkaHeaders.CORRELATION_ID, correlationId)
+                .build();
+        kafkaTemplate.send(message);
+    }
+}
@@ -51,13 +51,16 @@ public class ProductServices {
         }
     }
 
-    public Response<List<ProductsDTO>> markProductAsActive(Map<String, Boolean> product) {
+    /**
+     * Product service replies with the IDs of the products whose status was updated.
+     */
+    public Response<List<String>> markProductAsActive(Map<String, Boolean> product) {
         try {
             ProducerRecord<String, Object> record = new ProducerRecord<>(MARK_PRODUCT_ACTIVE_MEDIA_REQUEST, product);
             Response<?> response = this.handleKafkaRequest(record);
             if (response.isError()) return Response.mapper(response);
-            List<ProductsDTO> products = convertToProductDTOList(response.getData());
-            return Response.build(products, response.getMessage(), HttpStatus.valueOf(response.getStatus()));
+            List<String> productIds = jacksonObjectMapper.convertValue(response.getData(), new TypeReference<>() {});
+            return Response.build(productIds, response.getMessage(), HttpStatus.valueOf(response.getStatus()));
         } catch (Exception e) {
             return Response.badRequest(e.getMessage());
         }
@@ -75,30 +78,4 @@ public class ProductServices {
 
         return productResponse;
     }
-
-    private List<ProductsDTO> convertToProductDTOList(Object data) throws Exception {
-        if (data == null) return null;
-
-
-        if (data instanceof List<?> list) {
-            // Check if all elements are ProductsDTO instances
-            boolean allProductsDTO = !list.isEmpty() &&
-                    list.stream().allMatch(item -> item instanceof ProductsDTO);
-
-            if (allProductsDTO) {
-                @SuppressWarnings("unchecked")
-                List<ProductsDTO> productList = (List<ProductsDTO>) data;
-                return productList;
-            }
-
-            // Fallback to JSON conversion
-            String json = jacksonObjectMapper.writeValueAsString(data);
-            return jacksonObjectMapper.readValue(json, new TypeReference<>() {});
-        } else {
-            String json = jacksonObjectMapper.writeValueAsString(data);
-            ProductsDTO product = jacksonObjectMapper.readValue(json, ProductsDTO.class);
-            return List.of(product);
-        }
-    }
-
 }
@@ -6,17 +6,27 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Document(collection = "media")
+// Serves the per-product lookups and upload counts
+@CompoundIndex(name = "media_product", def = "{'productId': 1, 'deleted': 1}")
+// Serves the variant sweep: media without variants share the null key
+@CompoundIndex(name = "media_variants_pending", def = "{'variants': 1, 'deleted': 1}")
 public class Media {
+    public static final String VARIANT_FAILURES = "variantFailures";
+
     @Id
     private String id;
 
@@ -25,6 +35,17 @@ public class Media {
     private String productId;
 
     private boolean deleted = false;
+    // When it was soft-deleted; its files are reclaimed once this is older than the retention
+    private Date deletedAt;
+
+    // Content-addressed file in the blob store, null for media stored before it under the product
+    @Indexed
+    private String blob;
+
+    // Variant key to file name in the product's directory, absent until generated
+    private Map<String, String> variants;
+    // Failed variant generations of the current image, absent when none
+    private Integer variantFailures;
 
     public MediaDTO toDTO() {
         return MediaDTO.builder()
@@ -2,23 +2,27 @@ package com.zone01.media.media;
 
 import com.zone01.media.model.Response;
 import com.zone01.media.model.dto.MediaDTO;
+import com.zone01.media.service.FileSender;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @AllArgsConstructor
 @RestController
 @RequestMapping("/api/v1/media")
 public class MediaController {
     private final MediaService mediaService;
+    private final FileSender fileSender;
 
     @GetMapping("/{id}/all")
     public ResponseEntity<Response<MediaDTO>> getMediaByIdEvenDeleted(@PathVariable String id) {
@@ -33,29 +37,36 @@ public class MediaController {
     }
 
     @GetMapping("/{productId}/{imagePath}")
-    public ResponseEntity<Object> getMetadataMedia(@PathVariable String productId, @PathVariable String imagePath) {
-        Response<Object> response = mediaService.getMetadataMedia(productId, imagePath);
+    public ResponseEntity<Object> getMetadataMedia(
+            @PathVariable String productId,
+            @PathVariable String imagePath,
+            @RequestParam(required = false) String variant,
+            HttpServletRequest request,
+            HttpServletResponse httpResponse
+    ) throws IOException {
+        Response<Object> response = mediaService.getMetadataMedia(productId, imagePath, variant);
         if (response.isError()) return ResponseEntity.status(response.getStatus()).body(response);
 
-        Resource resource = (Resource) response.getData();
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.IMAGE_JPEG);
-        headers.setContentDispositionFormData("inline", resource.getFilename());
-
-        return ResponseEntity.status(response.getStatus()).headers(headers).body(resource);
+        return serve((StoredImage) response.getData(), request, httpResponse);
     }
 
     @GetMapping("/{productId}/{imagePath}/all")
-    public ResponseEntity<Object> getMetadataMediaEvenDelete(@PathVariable String productId, @PathVariable String imagePath) {
+    public ResponseEntity<Object> getMetadataMediaEvenDelete(
+            @PathVariable String productId,
+            @PathVariable String imagePath,
+            HttpServletRequest request,
+            HttpServletResponse httpResponse
+    ) throws IOException {
         Response<Object> response = mediaService.getMetadataMediaEvenDelete(productId, imagePath);
         if (response.isError()) return ResponseEntity.status(response.getStatus()).body(response);
 
-        Resource resource = (Resource) response.getData();
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.IMAGE_JPEG);
-        headers.setContentDispositionFormData("inline", resource.getFilename());
+        return serve((StoredImage) response.getData(), request, httpResponse);
+    }
 
-        return ResponseEntity.status(response.getStatus()).headers(headers).body(resource);
+    @GetMapping("/product")
+    public ResponseEntity<Response<Map<String, List<MediaDTO>>>> getMediaByProductIds(@RequestParam List<String> ids) {
+        Response<Map<String, List<MediaDTO>>> response = mediaService.getMediaByProductIds(ids);
+        return ResponseEntity.status(response.getStatus()).body(response);
     }
 
     @GetMapping("/product/{id}")
@@ -80,6 +91,15 @@ public class MediaController {
         return ResponseEntity.status(response.getStatus()).body(response);
     }
 
+    @PostMapping(value = "/{product_id}/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Response<List<MediaDTO>>> createMediaStreaming(
+            @PathVariable String product_id,
+            HttpServletRequest request
+    ) {
+        Response<List<MediaDTO>> response = mediaService.createMediaStreaming(product_id, request);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
     @PutMapping("/{media_id}")
     public ResponseEntity<Response<MediaDTO>> updateMedia(
             @PathVariable String media_id,
@@ -95,4 +115,15 @@ public class MediaController {
         Response<MediaDTO> response = mediaService.deleteMedia(media_id, request);
         return ResponseEntity.status(response.getStatus()).body(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Sends a local image, or redirects to where the storage serves it. The redirect is not cached:
+     * the presigned URL it points to expires, and the variant it names may not exist yet next time.
+     */
+    private ResponseEntity<Object> serve(StoredImage image, HttpServletRequest request, HttpServletResponse httpResponse) throws IOException {
+        if (image.location() != null)
+            return ResponseEntity.status(HttpStatus.FOUND).cacheControl(CacheControl.noStore()).location(image.location()).build();
+        fileSender.send(image.file(), image.immutable(), request, httpResponse);
+        return null;
+    }
+}
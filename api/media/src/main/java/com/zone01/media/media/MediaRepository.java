@@ -1,9 +1,11 @@
 package com.zone01.media.media;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,10 +22,15 @@ public interface MediaRepository extends MongoRepository<Media, String> {
 
     Optional<Media> findByIdAndDeletedFalse(String id);
     Optional<Media> findMediaByProductIdAndImagePathAndDeletedFalse(String productId, String imagePath);
+    Optional<Media> findFirstByProductIdAndImagePath(String productId, String imagePath);
 
     List<Media> findMediaByProductIdAndDeletedFalse(String id);
 
     long countByProductIdAndDeletedFalse(String productId);
 
     List<Media> findByDeletedFalseAndProductIdIn(List<String> productIds);
+
+    // Found through the (productId, deleted) index; the documents are still read, only what the DTO needs is returned
+    @Query(value = "{ 'productId': { $in: ?0 }, 'deleted': false }", fields = "{ 'image_path': 1, 'productId': 1 }")
+    List<Media> findSummariesByProductIdIn(Collection<String> productIds);
 }
\ No newline at end of file
@@ -2,25 +2,35 @@ package com.zone01.media.media;
 
 import com.zone01.media.model.dto.MediaDTO;
 import com.zone01.media.model.dto.ProductsDTO;
+import com.zone01.media.service.BlobStore;
 import com.zone01.media.service.FileServices;
+import com.zone01.media.service.MultipartReader;
+import com.zone01.media.variant.ImageVariant;
+import com.zone01.media.variant.VariantPipeline;
 import com.zone01.media.config.kafka.ProductServices;
 import com.zone01.media.model.Response;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class MediaService {
 
+    private static final int MAX_BATCH_PRODUCT_IDS = 100;
+
     private final MediaRepository mediaRepository;
     private final ProductServices productServices;
     private final FileServices fileServices;
+    private final VariantPipeline variantPipeline;
+    private final BlobStore blobStore;
 
     public Response<MediaDTO> getMediaById(String id) {
         Media media = mediaRepository.findByIdAndDeletedFalse(id).orElse(null);
@@ -34,14 +44,41 @@ public class MediaService {
         return Response.ok(media.toDTO());
     }
 
-    public Response<Object> getMetadataMedia(String productId, String imagePath) {
+    /**
+     * Resolves the original image or one of its variants. A variant that isn't generated yet (or
+     * whose file is gone) is answered with the original, and one the image is too small for as well.
+     */
+    public Response<Object> getMetadataMedia(String productId, String imagePath, String variant) {
         Media media = mediaRepository.findMediaByProductIdAndImagePathAndDeletedFalse(productId, imagePath).orElse(null);
         if (media == null) return Response.notFound("Media not found!");
-        return fileServices.getImages(productId, imagePath);
+        if (variant == null || variant.isBlank()) return storedImage(media, true);
+
+        ImageVariant requested;
+        try {
+            requested = ImageVariant.parse(variant);
+        } catch (IllegalArgumentException e) {
+            return Response.badRequest(e.getMessage());
+        }
+        if (media.getVariants() == null) return storedImage(media, false);
+
+        String variantFile = media.getVariants().get(requested.key());
+        if (variantFile == null) return storedImage(media, true);
+        Response<Object> response = fileServices.getImages(media, variantFile);
+        if (response.isError()) return storedImage(media, false);
+        return Response.ok(StoredImage.of(response.getData(), true));
     }
 
     public Response<Object> getMetadataMediaEvenDelete(String productId, String imagePath) {
-        return fileServices.getImages(productId, imagePath);
+        Media media = mediaRepository.findFirstByProductIdAndImagePath(productId, imagePath).orElse(null);
+        if (media == null) return Response.notFound("Media not found!");
+        return storedImage(media, true);
+    }
+
+    private Response<Object> storedImage(Media media, boolean immutable) {
+        String original = media.getBlob() != null ? media.getBlob() : media.getImagePath();
+        Response<Object> response = fileServices.getImages(media, original);
+        if (response.isError()) return response;
+        return Response.ok(StoredImage.of(response.getData(), immutable));
     }
 
     public Response<List<MediaDTO>> getMediaByProductId(String id) {
@@ -49,6 +86,28 @@ public class MediaService {
         return Response.ok(Media.toDTO(media));
     }
 
+    /**
+     * Media of many products with one query, for pages showing several products. Every requested
+     * product is a key of the result, with an empty list when it has no media.
+     */
+    public Response<Map<String, List<MediaDTO>>> getMediaByProductIds(List<String> productIds) {
+        if (productIds == null || productIds.isEmpty())
+            return Response.badRequest("No product IDs provided");
+
+        Set<String> ids = new LinkedHashSet<>();
+        productIds.stream().filter(id -> id != null && !id.isBlank()).map(String::trim).forEach(ids::add);
+        if (ids.isEmpty())
+            return Response.badRequest("No product IDs provided");
+        if (ids.size() > MAX_BATCH_PRODUCT_IDS)
+            return Response.badRequest("Too many product IDs, at most " + MAX_BATCH_PRODUCT_IDS + " per request");
+
+        Map<String, List<MediaDTO>> media = new LinkedHashMap<>();
+        ids.forEach(id -> media.put(id, new ArrayList<>()));
+        mediaRepository.findSummariesByProductIdIn(ids)
+                .forEach(m -> media.get(m.getProductId()).add(m.toDTO()));
+        return Response.ok(media);
+    }
+
     public Response<List<MediaDTO>> getMediaByProductIdEvenDeleted(String id) {
         List<Media> media = mediaRepository.findMediaByProductId(id);
         return Response.ok(Media.toDTO(media));
@@ -79,6 +138,7 @@ public class MediaService {
 
     @Transactional
     public Response<List<MediaDTO>> createMedia(String productId, List<MultipartFile> files, HttpServletRequest request) {
+        List<BlobStore.Staged> staged = new ArrayList<>();
         try {
 
             Response<Object> mediaValidationResponse = fileServices.validateFiles(files, productId, false);
@@ -87,25 +147,106 @@ public class MediaService {
             Response<ProductsDTO> authorizationResponse = authorization(request, productId);
             if (authorizationResponse.isError()) return Response.mapper(authorizationResponse);
 
-            long remainingMediaCount = mediaRepository.countByProductIdAndDeletedFalse(productId);
-            List<String> savedFilesName = fileServices.saveFiles(files, productId);
-            var savedFiles = savedFilesName.stream().map(filename -> {
-                Media newMedia = Media.builder()
-                        .imagePath(filename)
-                        .productId(productId)
-                        .build();
+            staged.addAll(blobStore.stageAll(files));
+            List<String> filenames = files.stream().map(MultipartFile::getOriginalFilename).toList();
+            return saveStaged(productId, filenames, staged);
+        } catch (Exception e) {
+            return Response.badRequest("Media upload failed: " + e.getMessage());
+        } finally {
+            staged.forEach(blobStore::discard);
+        }
+    }
+
+    /**
+     * Same as {@link #createMedia}, but reads the multipart body itself instead of letting the
+     * container spool it first: each {@code files} part is checked and hashed while it is written
+     * to the blob staging directory, so an upload touches the disk once. Other parts are skipped.
+     */
+    @Transactional
+    public Response<List<MediaDTO>> createMediaStreaming(String productId, HttpServletRequest request) {
+        List<BlobStore.Staged> staged = new ArrayList<>();
+        try {
+            String boundary = MultipartReader.boundary(request.getContentType());
+            if (boundary == null) return Response.badRequest("Expected a multipart/form-data body");
+
+            Response<ProductsDTO> authorizationResponse = authorization(request, productId);
+            if (authorizationResponse.isError()) return Response.mapper(authorizationResponse);
 
-                return mediaRepository.save(newMedia).toDTO();
-            }).collect(Collectors.toList());
+            long room = fileServices.getMaxFileCount() - mediaRepository.countByProductId(productId);
+            List<String> filenames = new ArrayList<>();
+            MultipartReader reader = new MultipartReader(request.getInputStream(), boundary, fileServices.getMaxRequestSize());
+            for (MultipartReader.Part part = reader.nextPart(); part != null; part = reader.nextPart()) {
+                if (!"files".equals(part.name()) || part.filename() == null) continue;
+                if (staged.size() >= room)
+                    return Response.badRequest("Maximum file count exceeded: " + fileServices.getMaxFileCount());
 
-            if (remainingMediaCount == 0 && !savedFiles.isEmpty()) {
-                Response<List<ProductsDTO>> response = productServices.markProductAsActive(Collections.singletonMap(productId, true));
-                if (response.isError()) return Response.mapper(response);
+                staged.add(fileServices.stageUpload(part.contentType(), part.body()));
+                filenames.add(part.filename());
             }
+            if (staged.isEmpty()) return Response.badRequest("No files provided");
 
-            return Response.created(savedFiles);
+            return saveStaged(productId, filenames, staged);
+        } catch (IllegalArgumentException e) {
+            return Response.badRequest(e.getMessage());
+        } catch (MultipartReader.BodyTooLargeException e) {
+            return Response.build(null, e.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
         } catch (Exception e) {
             return Response.badRequest("Media upload failed: " + e.getMessage());
+        } finally {
+            staged.forEach(blobStore::discard);
+        }
+    }
+
+    /**
+     * Inserts the media of staged uploads with one bulk insert, then moves the uploads into place.
+     * Ids are assigned up front, so a failure at either step can remove exactly the media of this
+     * upload again, along with the blobs already moved (unless other media use them too).
+     */
+    private Response<List<MediaDTO>> saveStaged(String productId, List<String> filenames, List<BlobStore.Staged> staged) throws IOException {
+        long remainingMediaCount = mediaRepository.countByProductIdAndDeletedFalse(productId);
+
+        List<Media> newMedia = new ArrayList<>();
+        for (int i = 0; i < staged.size(); i++) {
+            newMedia.add(Media.builder()
+                    .id(new ObjectId().toHexString())
+                    .imagePath(fileServices.generateUniqueFilename(filenames.get(i), productId))
+                    .productId(productId)
+                    .blob(staged.get(i).name())
+                    .build());
+        }
+        List<String> ids = newMedia.stream().map(Media::getId).toList();
+
+        List<Media> saved;
+        List<String> committed = new ArrayList<>();
+        try {
+            saved = mediaRepository.insert(newMedia);
+            for (BlobStore.Staged upload : staged) {
+                blobStore.commit(upload);
+                committed.add(upload.name());
+            }
+        } catch (IOException | RuntimeException e) {
+            compensate(ids, committed, e);
+            throw e;
+        }
+        saved.forEach(variantPipeline::submit);
+
+        if (remainingMediaCount == 0 && !saved.isEmpty()) {
+            Response<List<String>> response = productServices.markProductAsActive(Collections.singletonMap(productId, true));
+            if (response.isError()) return Response.mapper(response);
+        }
+
+        return Response.created(Media.toDTO(saved));
+    }
+
+    /**
+     * Undoes a partly saved upload; a bulk insert stopped by an error may have written some media.
+     */
+    private void compensate(List<String> ids, List<String> committed, Exception cause) {
+        try {
+            mediaRepository.deleteAllById(ids);
+            for (String blob : committed) blobStore.collect(blob);
+        } catch (IOException | RuntimeException e) {
+            cause.addSuppressed(e);
         }
     }
 
@@ -120,13 +261,32 @@ public class MediaService {
                 return Response.mapper(fileValidationResponse);
 
 
-            List<String> newFilename = fileServices.saveFiles(newFile, media.getProductId());
-            Response<Object> mediaDeleteResponse= fileServices.deleteOldFile(media.getProductId(), media.getImagePath());
-            if (mediaDeleteResponse != null)  return Response.mapper(mediaDeleteResponse);
-            media.setImagePath(newFilename.get(0));
-
-            Media updatedMedia = mediaRepository.save(media);
-            return Response.ok(updatedMedia.toDTO());
+            BlobStore.Staged staged = blobStore.stage(newFile);
+            try {
+                String oldBlob = media.getBlob();
+                String oldImagePath = media.getImagePath();
+                Map<String, String> oldVariants = media.getVariants();
+                media.setImagePath(fileServices.generateUniqueFilename(newFile, media.getProductId()));
+                media.setBlob(staged.name());
+                media.setVariants(null);
+                media.setVariantFailures(null);
+
+                Media updatedMedia = mediaRepository.save(media);
+                blobStore.commit(staged);
+                variantPipeline.submit(updatedMedia);
+
+                // The old image goes once nothing else references it
+                if (oldBlob != null) {
+                    blobStore.collect(oldBlob);
+                } else {
+                    Response<Object> mediaDeleteResponse = fileServices.deleteOldFile(media.getProductId(), oldImagePath);
+                    if (mediaDeleteResponse != null) return Response.mapper(mediaDeleteResponse);
+                    variantPipeline.discard(media.getProductId(), oldVariants);
+                }
+                return Response.ok(updatedMedia.toDTO());
+            } finally {
+                blobStore.discard(staged);
+            }
         } catch (Exception e) {
             return Response.badRequest("Media update failed: " + e.getMessage());
         }
@@ -139,11 +299,12 @@ public class MediaService {
 
             Media media = authorizationResponse.getData();
             media.setDeleted(true);
+            media.setDeletedAt(new Date());
             mediaRepository.save(media);
 
             long remainingMediaCount = mediaRepository.countByProductIdAndDeletedFalse(media.getProductId());
             if (remainingMediaCount == 0) {
-                Response<List<ProductsDTO>> productUpdateResponse = productServices.markProductAsActive(Collections.singletonMap(media.getProductId(), false));
+                Response<List<String>> productUpdateResponse = productServices.markProductAsActive(Collections.singletonMap(media.getProductId(), false));
                 if (productUpdateResponse.isError()) return Response.mapper(productUpdateResponse);
             }
 
@@ -163,6 +324,7 @@ public class MediaService {
                 return Response.ok(Media.toDTO(media),"No media found for the given product IDs.");
             var deletedMedia = media.stream().map(m -> {
                 m.setDeleted(true);
+                m.setDeletedAt(new Date());
                 return mediaRepository.save(m).toDTO();
             }).toList();
 
@@ -0,0 +1,21 @@
+package com.zone01.media.media;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * An image about to be served, either from a local {@code file} or by sending the client to a
+ * {@code location} it can download the image from. {@code immutable} is false when a variant was
+ * asked for but is still being generated, so the original sent in its place must not be cached for long.
+ */
+public record StoredImage(Path file, URI location, boolean immutable) {
+
+    /**
+     * @param stored the local path or the download URL of the image
+     */
+    public static StoredImage of(Object stored, boolean immutable) {
+        return stored instanceof URI location
+                ? new StoredImage(null, location, immutable)
+                : new StoredImage((Path) stored, null, immutable);
+    }
+}
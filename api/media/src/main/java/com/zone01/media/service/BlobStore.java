@@ -0,0 +1,361 @@
+package com.zone01.media.service;
+
+import com.buy01.common.storage.ObjectStorage;
+import com.buy01.common.storage.ObjectStorage.StoredObject;
+import com.zone01.media.media.Media;
+import com.zone01.media.variant.ImageVariant;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image store: every distinct upload is kept once as {@code <sha256>.<ext>} under
+ * {@code blobs/} of the {@link ObjectStorage} (sharded on the local disk, see {@link StorageLayout}),
+ * however many {@link Media} point at it, and its variants sit next to it. The media documents naming
+ * a blob are its references, so a blob is collected once none is left. Uploads are always staged on
+ * the local disk, where they are hashed before their name is known.
+ * <p>
+ * A blob is only moved into place after the media referencing it is saved, and collecting moves it
+ * aside before counting references a last time, so an upload of the same image racing a collection
+ * either keeps the blob or puts it back.
+ */
+@Service
+@Slf4j
+public class BlobStore {
+    private static final Pattern BLOB_NAME = Pattern.compile("[0-9a-f]{64}(-[a-z]+)?\\.[a-z0-9]+");
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/webp", ".webp");
+    private static final List<String> VARIANT_FORMATS = List.of("jpg", "png");
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String BLOBS = "blobs/";
+    static final String TRASH = "blobs/.trash/";
+    private static final String ARCHIVE = "archive/";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectStorage storage;
+    private final Path staging;
+    private final Duration presignTtl;
+    private final ExecutorService writers;
+
+    public BlobStore(
+            MongoTemplate mongoTemplate,
+            StorageLayout layout,
+            ObjectStorage storage,
+            @Value("${media.upload.io-threads:4}") int ioThreads,
+            @Value("${media.storage.presign-ttl-seconds:3600}") long presignTtlSeconds
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.storage = storage;
+        this.staging = layout.getBlobs().resolve(".staging");
+        this.presignTtl = Duration.ofSeconds(presignTtlSeconds);
+        AtomicInteger count = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(ioThreads, task -> {
+            Thread thread = new Thread(task, "media-upload-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * An upload hashed and written to the staging directory, not visible under its name yet.
+     */
+    public record Staged(String name, Path temp) {
+    }
+
+    public Staged stage(MultipartFile file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            return stage(input, file.getContentType(), Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Stages several uploads at once on the upload I/O pool, which bounds how many are hashed and
+     * written at the same time across requests.
+     *
+     * @return the staged uploads in the order of {@code files}; if any failed, none is left staged
+     */
+    public List<Staged> stageAll(List<MultipartFile> files) throws IOException {
+        if (files.size() == 1) return List.of(stage(files.get(0)));
+
+        List<Future<Staged>> pending = new ArrayList<>();
+        for (MultipartFile file : files) pending.add(writers.submit(() -> stage(file)));
+
+        // Every upload is waited for, so none is left staged behind a failed one
+        List<Staged> staged = new ArrayList<>();
+        Throwable failure = null;
+        for (Future<Staged> future : pending) {
+            try {
+                staged.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.forEach(other -> other.cancel(true));
+                failure = new IOException("Interrupted while storing uploads", e);
+                break;
+            }
+        }
+        if (failure != null) {
+            staged.forEach(this::discard);
+            if (failure instanceof IOException io) throw io;
+            if (failure instanceof RuntimeException runtime) throw runtime;
+            throw new IOException(failure);
+        }
+        return staged;
+    }
+
+    /**
+     * Copies a stream to the staging directory through a file channel, hashing it on the way.
+     *
+     * @throws IllegalArgumentException once more than {@code maxSize} bytes arrived, without reading further
+     */
+    public Staged stage(InputStream input, String contentType, long maxSize) throws IOException {
+        Path temp = newStagingFile();
+        MessageDigest digest = sha256();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            long size = 0;
+            for (int read; (read = input.read(chunk)) != -1; ) {
+                size += read;
+                if (size > maxSize) throw new IllegalArgumentException("File size exceeds limit: " + maxSize / 1024 / 1024 + " MB");
+                digest.update(chunk, 0, read);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        String extension = EXTENSIONS.getOrDefault(contentType, ".bin");
+        return new Staged(HexFormat.of().formatHex(digest.digest()) + extension, temp);
+    }
+
+    /**
+     * Puts a staged upload in place, to be called once its media is saved. An existing blob of the
+     * same name has the same bytes, so it is simply replaced.
+     */
+    public void commit(Staged staged) throws IOException {
+        storage.store(key(staged.name()), staged.temp(), contentType(staged.name()));
+    }
+
+    /**
+     * Drops a staged upload that was not committed; does nothing after a commit.
+     */
+    public void discard(Staged staged) {
+        try {
+            Files.deleteIfExists(staged.temp());
+        } catch (IOException e) {
+            log.warn("====== Failed to delete staged upload {}: {} ======", staged.temp(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the local path of a blob or blob variant, or null for a name that isn't one or when
+     * blobs aren't kept on this host
+     */
+    public Path resolve(String name) {
+        return isBlobName(name) ? storage.localFile(key(name)) : null;
+    }
+
+    /**
+     * @return a URL the blob can be downloaded from directly, or null when the storage has none
+     */
+    public URI presign(String name) {
+        return isBlobName(name) ? storage.presign(key(name), presignTtl) : null;
+    }
+
+    public boolean exists(String name) throws IOException {
+        return isBlobName(name) && storage.stat(key(name)) != null;
+    }
+
+    /**
+     * Copies a blob to a staging file, for work that needs it on the local disk; the caller deletes it.
+     *
+     * @return the copy, or null when there is no such blob
+     */
+    public Path download(String name) throws IOException {
+        if (!isBlobName(name)) return null;
+        Path temp = newStagingFile();
+        try (InputStream input = storage.open(key(name))) {
+            Files.copy(input, temp, StandardCopyOption.REPLACE_EXISTING);
+            return temp;
+        } catch (NoSuchFileException e) {
+            Files.deleteIfExists(temp);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    public Path newStagingFile() throws IOException {
+        Files.createDirectories(staging);
+        return Files.createTempFile(staging, "upload-", ".tmp");
+    }
+
+    /**
+     * Stores a generated variant of a blob, taking over the file.
+     */
+    public void storeVariant(String name, Path file) throws IOException {
+        if (!isBlobName(name)) throw new IllegalArgumentException("Invalid variant name: " + name);
+        storage.store(key(name), file, contentType(name));
+    }
+
+    public static boolean isBlobName(String name) {
+        return name != null && BLOB_NAME.matcher(name).matches();
+    }
+
+    static boolean isVariantName(String name) {
+        return name.indexOf('-') > 0;
+    }
+
+    /**
+     * @return whether the blob a variant was generated from is still stored
+     */
+    boolean hasOriginal(String variant) throws IOException {
+        String digest = variant.substring(0, variant.indexOf('-'));
+        for (String extension : EXTENSIONS.values())
+            if (storage.stat(key(digest + extension)) != null) return true;
+        return storage.stat(key(digest + ".bin")) != null;
+    }
+
+    /**
+     * Deletes the blob and its variants if no media references it any more.
+     *
+     * @return true when the blob was deleted
+     */
+    public boolean collect(String blob) throws IOException {
+        return reclaim(blob, null, null) >= 0;
+    }
+
+    /**
+     * Deletes the blob and its variants unless a media matching {@code live} (any media, when null)
+     * references it; the bytes of the blob itself are moved to {@code archive} instead when given
+     * (under {@code archive/} of the storage when it isn't the local disk).
+     *
+     * @return the bytes freed, or -1 when the blob was kept
+     */
+    public long reclaim(String blob, Criteria live, Path archive) throws IOException {
+        if (!isBlobName(blob) || isReferenced(blob, live)) return -1;
+
+        StoredObject original = storage.stat(key(blob));
+        if (original == null || !storage.move(key(blob), TRASH + blob)) return -1;
+        long freed = original.size();
+        String digest = blob.substring(0, blob.indexOf('.'));
+        for (ImageVariant variant : ImageVariant.values())
+            for (String format : VARIANT_FORMATS)
+                freed += deleteAndMeasure(key(digest + "-" + variant.key() + "." + format));
+
+        if (isReferenced(blob, live)) {
+            // Uploaded again meanwhile: keep the bytes, and have the variants generated again
+            storage.move(TRASH + blob, key(blob));
+            mongoTemplate.updateMulti(Query.query(Criteria.where("blob").is(blob)), new Update().unset("variants").unset(Media.VARIANT_FAILURES), Media.class);
+            return -1;
+        }
+        if (archive == null) {
+            storage.delete(TRASH + blob);
+        } else if (storage.localFile(TRASH + blob) != null) {
+            Files.createDirectories(archive);
+            Files.move(storage.localFile(TRASH + blob), archive.resolve(blob), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            storage.move(TRASH + blob, ARCHIVE + blob);
+        }
+        log.info("====== Blob {} has no media left, {} ======", blob, archive != null ? "archived" : "deleted");
+        return freed;
+    }
+
+    /**
+     * Settles a blob left in the trash by a collection that didn't finish: it goes back in place if
+     * media reference it, and is deleted otherwise.
+     *
+     * @param trashed a key listed under {@link #TRASH}
+     * @return the bytes freed, or -1 when it was put back
+     */
+    public long settleTrashed(String trashed) throws IOException {
+        String blob = trashed.substring(TRASH.length());
+        if (isBlobName(blob) && isReferenced(blob, null)) {
+            storage.move(trashed, key(blob));
+            return -1;
+        }
+        return deleteAndMeasure(trashed);
+    }
+
+    public Path getStaging() {
+        return staging;
+    }
+
+    public ObjectStorage getStorage() {
+        return storage;
+    }
+
+    private long deleteAndMeasure(String key) throws IOException {
+        StoredObject stored = storage.stat(key);
+        if (stored == null) return 0;
+        storage.delete(key);
+        return stored.size();
+    }
+
+    private static String key(String name) {
+        return BLOBS + name;
+    }
+
+    private static String contentType(String name) {
+        String extension = name.substring(name.lastIndexOf('.'));
+        return EXTENSIONS.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(extension))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElse("application/octet-stream");
+    }
+
+    @PreDestroy
+    public void stop() {
+        writers.shutdownNow();
+    }
+
+    private boolean isReferenced(String blob, Criteria live) {
+        Criteria referenced = Criteria.where("blob").is(blob);
+        if (live != null) referenced = new Criteria().andOperator(referenced, live);
+        return mongoTemplate.exists(Query.query(referenced), Media.class);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.zone01.media.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.ServletResponseWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * Writes stored images straight to the response. Stored names are never reused for other bytes,
+ * so the name is a strong ETag and clients may cache for a year without revalidating.
+ * Hot images are written from {@link ImageCache}; other bodies go out through Tomcat's sendfile
+ * when the connector offers it (the kernel copies the file to the socket), and through
+ * {@link FileChannel#transferTo} otherwise.
+ */
+@Component
+public class FileSender {
+    // Set by Tomcat's connector, read back when the response is committed
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String CACHE_CONTROL_TEMPORARY = "public, max-age=60";
+
+    private static final int COPY_CHUNK_SIZE = 8192;
+
+    private final long sendfileMinSize;
+    private final ImageCache imageCache;
+
+    public FileSender(@Value("${media.serve.sendfile-min-size:49152}") long sendfileMinSize, ImageCache imageCache) {
+        this.sendfileMinSize = sendfileMinSize;
+        this.imageCache = imageCache;
+    }
+
+    /**
+     * @param immutable false when the same URL will later serve other bytes, which keeps the
+     *                  validators but caches for a minute only
+     */
+    public void send(Path file, boolean immutable, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        String name = file.getFileName().toString();
+        String eTag = "\"" + name + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? CACHE_CONTROL : CACHE_CONTROL_TEMPORARY);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Sets ETag and Last-Modified, and answers If-None-Match / If-Modified-Since with 304
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, attributes.lastModifiedTime().toMillis())) return;
+
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges = requestedRanges(request, eTag, attributes.lastModifiedTime().toMillis());
+        // Several ranges would need a multipart body; sending the whole image is also allowed
+        if (ranges != null && ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            if (length == 0 || !satisfiable(range, length)) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().filename(name).build().toString());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) return;
+
+        ByteBuffer cached = imageCache.get(file, attributes);
+        if (cached != null) {
+            write(response, cached.limit((int) (end + 1)).position((int) start));
+            return;
+        }
+
+        if (canSendfile(request, response, count)) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end + 1 - position, out);
+                if (sent <= 0) break;
+                position += sent;
+            }
+        }
+    }
+
+    /**
+     * @return the parsed Range header, or null when there is none, it is malformed, or If-Range says
+     * the client's copy is outdated
+     */
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String eTag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) return null;
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        try {
+            if (ifRange != null) {
+                boolean current = ifRange.startsWith("\"")
+                        ? ifRange.equals(eTag)
+                        : request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+                if (!current) return null;
+            }
+            return HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean satisfiable(HttpRange range, long length) {
+        try {
+            return range.getRangeStart(length) < length;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tomcat only sends the file itself when nothing wraps the response, otherwise a filter
+     * expecting to see the body would get none.
+     */
+    private boolean canSendfile(HttpServletRequest request, HttpServletResponse response, long count) {
+        return count >= sendfileMinSize
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+                && "org.apache.catalina.connector.RequestFacade".equals(request.getClass().getName())
+                && "org.apache.catalina.connector.ResponseFacade".equals(unwrap(response).getClass().getName());
+    }
+
+    /**
+     * Tomcat's own stream takes the off-heap buffer as it is; any other stream gets it through a
+     * small heap chunk.
+     */
+    private static void write(HttpServletResponse response, ByteBuffer body) throws IOException {
+        ServletOutputStream out = unwrap(response).getOutputStream();
+        if (out instanceof CoyoteOutputStream coyote) {
+            coyote.write(body);
+            return;
+        }
+        byte[] chunk = new byte[Math.min(body.remaining(), COPY_CHUNK_SIZE)];
+        while (body.hasRemaining()) {
+            int length = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Looks through Spring MVC's own wrapper, which only guards against writes after an async
+     * request completed.
+     */
+    private static ServletResponse unwrap(HttpServletResponse response) {
+        ServletResponse unwrapped = response;
+        while (unwrapped instanceof ServletResponseWrapper wrapper
+                && wrapper.getClass().getName().startsWith(StandardServletAsyncWebRequest.class.getName()))
+            unwrapped = wrapper.getResponse();
+        return unwrapped;
+    }
+}
@@ -1,19 +1,19 @@
 package com.zone01.media.service;
 
+import com.zone01.media.media.Media;
 import com.zone01.media.media.MediaRepository;
 import com.zone01.media.model.Response;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,22 +21,30 @@ import java.util.stream.Collectors;
 public class FileServices {
     private final long maxFileSize;
     private final int maxFileCount;
+    private final long maxRequestSize;
     private final List<String> allowedContentTypes;
-    private final String baseUploadDirectory;
+    private final StorageLayout layout;
     private final MediaRepository mediaRepository;
+    private final BlobStore blobStore;
+    // Long enough for the JPEG, PNG and WebP signatures
+    private static final int SIGNATURE_LENGTH = 12;
 
     public FileServices(
             @Value("${media.upload.max.file.size}") long maxFileSize,
             @Value("${media.upload.max.file.count}") int maxFileCount,
+            @Value("${media.upload.max.request.size:10485760}") long maxRequestSize,
             @Value("${media.allowed.content.types}") List<String> allowedContentTypes,
-            @Value("${media.upload.base.dir}") String baseUploadDirectory,
-            MediaRepository mediaRepository
+            StorageLayout layout,
+            MediaRepository mediaRepository,
+            BlobStore blobStore
     ) {
         this.maxFileSize = maxFileSize;
         this.maxFileCount = maxFileCount;
+        this.maxRequestSize = maxRequestSize;
         this.allowedContentTypes = allowedContentTypes;
-        this.baseUploadDirectory = baseUploadDirectory;
+        this.layout = layout;
         this.mediaRepository = mediaRepository;
+        this.blobStore = blobStore;
     }
 
     public Response<Object> validateFiles(Object files, String productId, boolean isSingleFiles) {
@@ -50,7 +58,7 @@ public class FileServices {
         }
 
         if (!isSingleFiles) {
-            int uploadFileCount = mediaRepository.findMediaByProductId(productId).size();
+            long uploadFileCount = mediaRepository.countByProductId(productId);
             if (fileList.size() + uploadFileCount > maxFileCount) {
                 return buildErrorResponse("Maximum file count exceeded: " + maxFileCount);
             }
@@ -74,30 +82,56 @@ public class FileServices {
         return null;
     }
 
-    public List<String> saveFiles(Object files, String productId) throws IOException {
-        List<MultipartFile> fileList = convertToFileList(files);
-        if (fileList == null || fileList.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        String uploadDir = baseUploadDirectory + "/" + productId + "/";
-        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-        Files.createDirectories(uploadPath);
+    public int getMaxFileCount() {
+        return maxFileCount;
+    }
 
-        List<String> savedFiles = new ArrayList<>();
-        for (MultipartFile file : fileList) {
-            String uniqueFilename = generateUniqueFilename(file, productId);
-            Path targetLocation = uploadPath.resolve(uniqueFilename).normalize();
+    /**
+     * Most a streamed upload body may carry, parts that aren't files included.
+     */
+    public long getMaxRequestSize() {
+        return maxRequestSize;
+    }
 
-            if (!targetLocation.startsWith(uploadPath)) {
-                throw new IOException("Invalid file path detected");
-            }
+    /**
+     * Stages one streamed part, applying the same limits as {@link #validateFiles} while it arrives:
+     * the declared type is checked before anything is written, the leading bytes must match it, and
+     * the copy stops as soon as the size limit is passed.
+     *
+     * @throws IllegalArgumentException when the part breaks a limit
+     */
+    public BlobStore.Staged stageUpload(String contentType, InputStream body) throws IOException {
+        if (contentType == null || !allowedContentTypes.contains(contentType)) {
+            throw new IllegalArgumentException("Invalid file type. Allowed: " + allowedContentTypes);
+        }
 
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            savedFiles.add(uniqueFilename);
+        PushbackInputStream input = new PushbackInputStream(body, SIGNATURE_LENGTH);
+        byte[] head = input.readNBytes(SIGNATURE_LENGTH);
+        if (head.length == 0) {
+            throw new IllegalArgumentException("Empty file detected");
+        }
+        if (!matchesSignature(contentType, head)) {
+            throw new IllegalArgumentException("File content does not match its type " + contentType);
         }
+        input.unread(head);
+        return blobStore.stage(input, contentType, maxFileSize);
+    }
 
-        return savedFiles;
+    private static boolean matchesSignature(String contentType, byte[] head) {
+        return switch (contentType) {
+            case "image/jpeg" -> startsWith(head, 0, 0xFF, 0xD8, 0xFF);
+            case "image/png" -> startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A);
+            case "image/webp" -> startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P');
+            default -> true;
+        };
+    }
+
+    private static boolean startsWith(byte[] head, int offset, int... signature) {
+        if (head.length < offset + signature.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[offset + i] & 0xFF) != signature[i]) return false;
+        }
+        return true;
     }
 
     private List<MultipartFile> convertToFileList(Object files) {
@@ -114,8 +148,15 @@ public class FileServices {
         return new ArrayList<>();
     }
 
-    private String generateUniqueFilename(MultipartFile file, String productId) {
-        String sanitizedName = sanitizeFilename(file.getOriginalFilename());
+    /**
+     * Name under which an upload is served; the bytes themselves are stored by {@link BlobStore}.
+     */
+    public String generateUniqueFilename(MultipartFile file, String productId) {
+        return generateUniqueFilename(file.getOriginalFilename(), productId);
+    }
+
+    public String generateUniqueFilename(String originalFilename, String productId) {
+        String sanitizedName = sanitizeFilename(originalFilename);
         String extension = getFileExtension(sanitizedName);
         return UUID.randomUUID() + "_" + productId + extension;
     }
@@ -145,31 +186,60 @@ public class FileServices {
     }
 
     public Response<Object> deleteOldFile(String productId, String imagePath) throws IOException {
-        Path filePath = Paths.get(baseUploadDirectory).resolve(productId).resolve(imagePath).normalize();
-        if (!filePath.startsWith(Paths.get(baseUploadDirectory))) {
+        Path filePath = resolveFile(productId, imagePath);
+        if (filePath == null) {
             return buildErrorResponse("Invalid file path");
         }
         Files.deleteIfExists(filePath);
         return null;
     }
 
-    public Response<Object> getImages(String productId, String imagePath) {
+    /**
+     * Resolves a file stored in a product's directory, in whichever {@link StorageLayout} it is.
+     *
+     * @return the stored file's path, or null when the names would lead outside the product's directory
+     */
+    public Path resolveFile(String productId, String filename) {
+        Path directory = layout.productDirectory(productId);
+        if (directory == null || !StorageLayout.isPlainName(filename)) return null;
+        return directory.resolve(filename);
+    }
+
+    /**
+     * Resolves one of the media's files: its original or a variant. Media uploaded before the blob
+     * store keep their files in the product's directory.
+     */
+    public Path resolve(Media media, String filename) {
+        return media.getBlob() != null ? blobStore.resolve(filename) : resolveFile(media.getProductId(), filename);
+    }
+
+    public Path resolveOriginal(Media media) {
+        return resolve(media, media.getBlob() != null ? media.getBlob() : media.getImagePath());
+    }
+
+    public Response<Object> getImages(Media media, String filename) {
         try {
-            if (productId == null || imagePath == null || productId.isBlank() || imagePath.isBlank()) {
-                return buildErrorResponse("Invalid product ID or imagePath");
+            if (filename == null || filename.isBlank()) {
+                return buildErrorResponse("Invalid imagePath");
             }
 
-            Path filePath = Paths.get(baseUploadDirectory).resolve(productId).resolve(imagePath).normalize();
-            if (!filePath.startsWith(Paths.get(baseUploadDirectory))) {
+            if (media.getBlob() != null && !BlobStore.isBlobName(filename)) {
                 return buildErrorResponse("Invalid file path");
             }
 
-            Resource resource = new UrlResource(filePath.toUri());
-            if (!resource.exists() || !resource.isReadable()) {
+            Path filePath = resolve(media, filename);
+            if (filePath == null) {
+                // Blobs kept off this host are fetched by the client straight from the storage
+                if (!blobStore.exists(filename)) return buildErrorResponse("File not found");
+                URI location = blobStore.presign(filename);
+                return location != null ? Response.ok(location) : buildErrorResponse("Invalid file path");
+            }
+
+            if (!Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
                 return buildErrorResponse("File not found");
             }
 
-            return Response.ok(resource);
+            return Response.ok(filePath);
         } catch (Exception e) {
             return buildErrorResponse("Failed to retrieve file");
         }
@@ -0,0 +1,95 @@
+package com.zone01.media.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Keeps the bytes of frequently requested images in direct buffers, outside the Java heap, so hot
+ * images are answered from memory without opening the file and without adding garbage.
+ * <p>
+ * The cache is bounded by total bytes and evicts with Caffeine's W-TinyLFU, which weighs how often
+ * an image was requested recently against the entry it would displace. Files above
+ * {@code media.cache.max-entry-size} are never admitted, and a file is only read into memory on its
+ * second request within the doorkeeper's window, so one-off images keep going out with sendfile.
+ * Entries are checked against the file's size and modification time on every hit.
+ */
+@Component
+public class ImageCache {
+    private final long maxEntrySize;
+    private final Cache<String, CachedImage> images;
+    private final Cache<String, Boolean> seen;
+
+    public ImageCache(
+            MeterRegistry meterRegistry,
+            @Value("${media.cache.max-bytes:268435456}") long maxBytes,
+            @Value("${media.cache.max-entry-size:1048576}") long maxEntrySize,
+            @Value("${media.cache.doorkeeper-size:100000}") long doorkeeperSize
+    ) {
+        this.maxEntrySize = Math.min(maxEntrySize, maxBytes);
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedImage image) -> image.data().capacity())
+                .recordStats()
+                .build();
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(doorkeeperSize)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, images, "media-images");
+        Gauge.builder("media.image.cache.hit.ratio", images, cache -> cache.stats().hitRate())
+                .register(meterRegistry);
+        Gauge.builder("media.image.cache.size.bytes", images, cache -> cache.policy().eviction()
+                        .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                        .orElse(0L))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private record CachedImage(ByteBuffer data, long lastModified) {
+    }
+
+    /**
+     * @return a read-only view of the whole file, or null when it isn't (or can't be) cached
+     */
+    public ByteBuffer get(Path file, BasicFileAttributes attributes) throws IOException {
+        if (attributes.size() > maxEntrySize || attributes.size() == 0) return null;
+
+        String key = file.toString();
+        CachedImage cached = images.getIfPresent(key);
+        if (cached != null && cached.data().capacity() == attributes.size()
+                && cached.lastModified() == attributes.lastModifiedTime().toMillis())
+            return cached.data().duplicate();
+        if (cached == null && seen.asMap().putIfAbsent(key, Boolean.TRUE) == null) return null;
+
+        CachedImage loaded = load(file, attributes);
+        if (loaded == null) return null;
+        images.put(key, loaded);
+        return loaded.data().duplicate();
+    }
+
+    /**
+     * Reads the file straight into a direct buffer; returns null if it changed size while being read.
+     */
+    private static CachedImage load(Path file, BasicFileAttributes attributes) throws IOException {
+        ByteBuffer data = ByteBuffer.allocateDirect((int) attributes.size());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (data.hasRemaining() && channel.read(data) != -1) {
+                // Filled by the channel
+            }
+            if (data.hasRemaining() || channel.size() != attributes.size()) return null;
+        }
+        data.flip();
+        return new CachedImage(data.asReadOnlyBuffer(), attributes.lastModifiedTime().toMillis());
+    }
+}
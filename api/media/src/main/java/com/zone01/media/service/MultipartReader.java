@@ -0,0 +1,217 @@
+package com.zone01.media.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a {@code multipart/form-data} body one part at a time, handing each part's content out as a
+ * stream while it arrives, so nothing is buffered beyond a fixed window. A part's stream ends at the
+ * next boundary; moving to the next part skips whatever the caller left unread. Every byte read from
+ * the body, skipped parts included, counts against the body size limit.
+ */
+public class MultipartReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+    private static final int MAX_HEADERS = 16;
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=(?:\"([^\"]+)\"|([^;\\s]+))", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NAME = Pattern.compile("[;\\s]name=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FILENAME = Pattern.compile("[;\\s]filename=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+
+    private final InputStream input;
+    private final byte[] delimiter;
+    private final long maxBodySize;
+    private long bodySize;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean finished;
+    private PartInputStream current;
+
+    public record Part(String name, String filename, String contentType, InputStream body) {
+    }
+
+    /**
+     * Thrown once more than the allowed body size has been read.
+     */
+    public static class BodyTooLargeException extends IOException {
+        public BodyTooLargeException(long maxBodySize) {
+            super("Request body exceeds limit: " + maxBodySize / 1024 / 1024 + " MB");
+        }
+    }
+
+    public MultipartReader(InputStream input, String boundary) {
+        this(input, boundary, Long.MAX_VALUE);
+    }
+
+    public MultipartReader(InputStream input, String boundary, long maxBodySize) {
+        this.input = input;
+        this.maxBodySize = maxBodySize;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // The first boundary has no line break before it; pretending it has one lets the preamble be skipped like a part
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+        current = new PartInputStream();
+    }
+
+    /**
+     * @return the boundary of a multipart content type, or null when there is none
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) return null;
+        Matcher matcher = BOUNDARY.matcher(contentType);
+        if (!matcher.find()) return null;
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    /**
+     * @return the next part, or null after the closing boundary
+     */
+    public Part nextPart() throws IOException {
+        if (finished) return null;
+        current.skipRest();
+        position += delimiter.length;
+
+        ensure(2);
+        if (limit - position >= 2 && buffer[position] == '-' && buffer[position + 1] == '-') {
+            finished = true;
+            return null;
+        }
+
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        skipLine();
+        int headers = 0;
+        for (String line = readHeaderLine(); !line.isEmpty(); line = readHeaderLine()) {
+            if (++headers > MAX_HEADERS) throw new IOException("Too many multipart part headers");
+            int colon = line.indexOf(':');
+            if (colon < 0) continue;
+            String header = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (header.equals("content-disposition")) {
+                Matcher matcher = NAME.matcher(value);
+                if (matcher.find()) name = matcher.group(1);
+                matcher = FILENAME.matcher(value);
+                if (matcher.find()) filename = matcher.group(1);
+            } else if (header.equals("content-type")) {
+                contentType = value;
+            }
+        }
+
+        current = new PartInputStream();
+        return new Part(name, filename, contentType, current);
+    }
+
+    /**
+     * Ends the line following a boundary; transport padding before its line break is ignored.
+     */
+    private void skipLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            ensure(2);
+            if (limit - position < 2) throw new IOException("Unexpected end of multipart body");
+            if (buffer[position] == '\r' && buffer[position + 1] == '\n') {
+                position += 2;
+                return;
+            }
+            if (buffer[position] != ' ' && buffer[position] != '\t')
+                throw new IOException("Malformed multipart boundary");
+            position++;
+            if (++scanned > MAX_HEADER_SIZE) throw new IOException("Multipart boundary line too long");
+        }
+    }
+
+    private String readHeaderLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true) {
+            ensure(2);
+            if (limit - position < 2) throw new IOException("Unexpected end of multipart headers");
+            if (buffer[position] == '\r' && buffer[position + 1] == '\n') {
+                position += 2;
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            line.write(buffer[position++]);
+            if (line.size() > MAX_HEADER_SIZE) throw new IOException("Multipart part header too large");
+        }
+    }
+
+    /**
+     * Makes at least {@code count} unread bytes available, unless the body ends first.
+     */
+    private void ensure(int count) throws IOException {
+        if (limit - position >= count) return;
+        compact();
+        while (limit - position < count) {
+            int read = input.read(buffer, limit, buffer.length - limit);
+            if (read == -1) return;
+            limit += read;
+            bodySize += read;
+            if (bodySize > maxBodySize) throw new BodyTooLargeException(maxBodySize);
+        }
+    }
+
+    private void compact() {
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+    }
+
+    private int indexOfDelimiter(int end) {
+        byte first = delimiter[0];
+        for (int i = position; i <= end - delimiter.length; i++) {
+            if (buffer[i] != first) continue;
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j]) j++;
+            if (j == delimiter.length) return i;
+        }
+        return -1;
+    }
+
+    private class PartInputStream extends InputStream {
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (ended) return -1;
+            if (length == 0) return 0;
+            while (true) {
+                ensure(delimiter.length);
+                // Only look as far as this read can return, so a large buffer isn't rescanned by small reads
+                int end = Math.min(limit, position + length + delimiter.length - 1);
+                int found = indexOfDelimiter(end);
+                // Bytes that can't be the start of a boundary
+                int available = found >= 0 ? found - position : end - position - (delimiter.length - 1);
+                if (found == position) {
+                    ended = true;
+                    return -1;
+                }
+                if (available > 0) {
+                    int count = Math.min(length, available);
+                    System.arraycopy(buffer, position, target, offset, count);
+                    position += count;
+                    return count;
+                }
+                if (limit - position < delimiter.length) throw new IOException("Unexpected end of multipart body");
+            }
+        }
+
+        void skipRest() throws IOException {
+            byte[] skipped = new byte[BUFFER_SIZE];
+            while (read(skipped, 0, skipped.length) != -1) {
+                // Discarded
+            }
+        }
+    }
+}
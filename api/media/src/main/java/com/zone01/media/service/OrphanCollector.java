@@ -0,0 +1,319 @@
+package com.zone01.media.service;
+
+import com.buy01.common.lease.Leases;
+import com.buy01.common.storage.ObjectStorage;
+import com.buy01.common.storage.ObjectStorage.StoredObject;
+import com.zone01.media.media.Media;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reclaims stored files no live media needs any more: blobs whose media were all deleted longer
+ * than the retention ago (deleted media stay viewable through the {@code /all} endpoints until
+ * then), files of pre-blob media in product directories, orphaned blob variants, and staging or
+ * trash leftovers of uploads and collections that didn't finish.
+ * <p>
+ * The upload tree is walked at a bounded rate and checked against the media collection in batches.
+ * Files younger than the grace period are never touched, which covers uploads between writing
+ * their file and saving their media. Blobs are listed from the {@link ObjectStorage}; product
+ * directories and staged uploads only ever exist on the local disk. Blobs go through {@link BlobStore#reclaim}, so one uploaded
+ * again while being collected is kept.
+ */
+@Component
+@Slf4j
+public class OrphanCollector {
+    private static final String BLOBS = "blobs/";
+    private static final String LEASE = "media-gc";
+
+    private final MongoTemplate mongoTemplate;
+    private final StorageLayout layout;
+    private final BlobStore blobStore;
+    private final Leases leases;
+    private final boolean enabled;
+    private final Duration leaseTtl;
+    private final Duration gracePeriod;
+    private final Duration deletedRetention;
+    private final int batchSize;
+    private final int maxFilesPerSecond;
+    private final Path archive;
+    private final Counter reclaimedBytes;
+    private final Counter reclaimedFiles;
+
+    public OrphanCollector(
+            MongoTemplate mongoTemplate,
+            StorageLayout layout,
+            BlobStore blobStore,
+            MeterRegistry meterRegistry,
+            Leases leases,
+            @Value("${media.gc.enabled:true}") boolean enabled,
+            @Value("${media.gc.interval-ms:3600000}") long intervalMs,
+            @Value("${media.gc.grace-hours:24}") long graceHours,
+            @Value("${media.gc.deleted-retention-days:30}") long deletedRetentionDays,
+            @Value("${media.gc.batch-size:500}") int batchSize,
+            @Value("${media.gc.max-files-per-second:500}") int maxFilesPerSecond,
+            @Value("${media.gc.archive-dir:}") String archiveDirectory
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.layout = layout;
+        this.blobStore = blobStore;
+        this.leases = leases;
+        this.enabled = enabled;
+        this.leaseTtl = Duration.ofMillis(intervalMs);
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.deletedRetention = Duration.ofDays(deletedRetentionDays);
+        this.batchSize = batchSize;
+        this.maxFilesPerSecond = maxFilesPerSecond;
+        this.archive = archiveDirectory.isBlank() ? null : Paths.get(archiveDirectory).toAbsolutePath().normalize();
+        this.reclaimedBytes = meterRegistry.counter("media.gc.reclaimed.bytes");
+        this.reclaimedFiles = meterRegistry.counter("media.gc.reclaimed.files");
+    }
+
+    /**
+     * What one run went through and freed.
+     */
+    public static final class Report {
+        private final long startNanos = System.nanoTime();
+        private long examined;
+        private long files;
+        private long bytes;
+
+        public long getExamined() {
+            return examined;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        void reclaimed(long freed) {
+            if (freed < 0) return;
+            files++;
+            bytes += freed;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.gc.interval-ms:3600000}", initialDelayString = "${media.gc.initial-delay-ms:300000}")
+    public void scheduledRun() {
+        if (!enabled) return;
+        // Held for an interval and not released, so the other instances' runs of the same schedule are skipped
+        if (!leases.tryAcquire(LEASE, leaseTtl)) {
+            log.info("====== Orphan files are being collected by another instance ======");
+            return;
+        }
+        try {
+            run();
+        } catch (IOException | UncheckedIOException | DataAccessException e) {
+            log.error("====== Orphan file collection failed: {} ======", e.getMessage());
+        }
+    }
+
+    public Report run() throws IOException {
+        Report report = new Report();
+        Instant now = Instant.now();
+        Instant graceCutoff = now.minus(gracePeriod);
+
+        // Media deleted before deletedAt was recorded start their retention now
+        mongoTemplate.updateMulti(Query.query(Criteria.where("deleted").is(true).and("deletedAt").exists(false)),
+                new Update().set("deletedAt", Date.from(now)), Media.class);
+        Criteria live = new Criteria().orOperator(
+                Criteria.where("deleted").is(false),
+                Criteria.where("deletedAt").gt(Date.from(now.minus(deletedRetention))));
+
+        settleLeftovers(graceCutoff, report);
+        collectBlobs(live, graceCutoff, report);
+        collectProductFiles(live, graceCutoff, report);
+
+        reclaimedFiles.increment(report.files);
+        reclaimedBytes.increment(report.bytes);
+        log.info("====== Orphan file collection examined {} files, reclaimed {} ({} MB) in {} ms ======",
+                report.examined, report.files, report.bytes / 1024 / 1024,
+                Duration.ofNanos(System.nanoTime() - report.startNanos).toMillis());
+        return report;
+    }
+
+    private void settleLeftovers(Instant graceCutoff, Report report) throws IOException {
+        for (Path file : listFiles(blobStore.getStaging())) {
+            pace(report);
+            if (isRecent(file, graceCutoff)) continue;
+            report.reclaimed(deleteFile(file));
+        }
+        try (Stream<StoredObject> trashed = blobStore.getStorage().list(BlobStore.TRASH)) {
+            for (StoredObject object : (Iterable<StoredObject>) trashed::iterator) {
+                pace(report);
+                if (object.lastModified().isAfter(graceCutoff)) continue;
+                report.reclaimed(blobStore.settleTrashed(object.key()));
+            }
+        }
+    }
+
+    private void collectBlobs(Criteria live, Instant graceCutoff, Report report) throws IOException {
+        ObjectStorage storage = blobStore.getStorage();
+        List<String> batch = new ArrayList<>();
+        try (Stream<StoredObject> objects = storage.list(BLOBS)) {
+            for (StoredObject object : (Iterable<StoredObject>) objects::iterator) {
+                String name = object.key().substring(BLOBS.length());
+                if (!BlobStore.isBlobName(name)) continue;
+                pace(report);
+                if (object.lastModified().isAfter(graceCutoff)) continue;
+
+                if (BlobStore.isVariantName(name)) {
+                    if (!blobStore.hasOriginal(name)) {
+                        storage.delete(object.key());
+                        report.reclaimed(object.size());
+                    }
+                    continue;
+                }
+                batch.add(name);
+                if (batch.size() >= batchSize) reclaimBlobs(batch, live, report);
+            }
+        }
+        reclaimBlobs(batch, live, report);
+    }
+
+    private void reclaimBlobs(List<String> batch, Criteria live, Report report) throws IOException {
+        if (batch.isEmpty()) return;
+
+        Query query = Query.query(new Criteria().andOperator(Criteria.where("blob").in(batch), live));
+        Set<String> used = new HashSet<>(mongoTemplate.findDistinct(query, "blob", Media.class, String.class));
+        for (String blob : batch) {
+            if (!used.contains(blob)) report.reclaimed(blobStore.reclaim(blob, live, archive));
+        }
+        batch.clear();
+    }
+
+    /**
+     * Product directories only hold files of media stored before the blob store; no upload adds to
+     * them any more, only variant generation does.
+     */
+    private void collectProductFiles(Criteria live, Instant graceCutoff, Report report) throws IOException {
+        Map<String, Path> batch = new LinkedHashMap<>();
+        for (Path directory : productDirectories()) {
+            batch.put(directory.getFileName().toString(), directory);
+            if (batch.size() >= batchSize) reclaimProductFiles(batch, live, graceCutoff, report);
+        }
+        reclaimProductFiles(batch, live, graceCutoff, report);
+    }
+
+    private void reclaimProductFiles(Map<String, Path> batch, Criteria live, Instant graceCutoff, Report report) throws IOException {
+        if (batch.isEmpty()) return;
+
+        Query query = Query.query(new Criteria().andOperator(Criteria.where("productId").in(batch.keySet()), live));
+        query.fields().include("productId", "image_path", "variants");
+        Map<String, Set<String>> used = new HashMap<>();
+        for (Media media : mongoTemplate.find(query, Media.class)) {
+            Set<String> names = used.computeIfAbsent(media.getProductId(), id -> new HashSet<>());
+            names.add(media.getImagePath());
+            if (media.getVariants() != null) names.addAll(media.getVariants().values());
+        }
+
+        for (Map.Entry<String, Path> product : batch.entrySet()) {
+            Set<String> names = used.getOrDefault(product.getKey(), Set.of());
+            for (Path file : listFiles(product.getValue())) {
+                pace(report);
+                if (names.contains(file.getFileName().toString()) || isRecent(file, graceCutoff)) continue;
+                report.reclaimed(archive != null
+                        ? archiveFile(file, archive.resolve(StorageLayout.PRODUCTS).resolve(product.getKey()))
+                        : deleteFile(file));
+            }
+            try {
+                Files.deleteIfExists(product.getValue());
+            } catch (DirectoryNotEmptyException e) {
+                // Still holds live files
+            }
+        }
+        batch.clear();
+    }
+
+    private List<Path> productDirectories() throws IOException {
+        List<Path> directories = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(layout.getBase(), entry -> {
+            String name = entry.getFileName().toString();
+            return !name.equals(StorageLayout.BLOBS) && !name.equals(StorageLayout.PRODUCTS)
+                    && !name.startsWith(".") && Files.isDirectory(entry);
+        })) {
+            entries.forEach(directories::add);
+        }
+        if (Files.isDirectory(layout.getProducts())) {
+            try (Stream<Path> sharded = Files.walk(layout.getProducts(), 3)) {
+                sharded.filter(path -> layout.getProducts().relativize(path).getNameCount() == 3 && Files.isDirectory(path))
+                        .forEach(directories::add);
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Keeps the walk under {@code max-files-per-second}, sparing the disk and the database.
+     */
+    private void pace(Report report) {
+        report.examined++;
+        if (maxFilesPerSecond <= 0) return;
+        long due = report.examined * 1_000_000_000L / maxFilesPerSecond;
+        long ahead = due - (System.nanoTime() - report.startNanos);
+        if (ahead <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(ahead);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean isRecent(Path file, Instant cutoff) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isAfter(cutoff);
+        } catch (NoSuchFileException e) {
+            return true; // Gone already
+        }
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            entries.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long deleteFile(Path file) throws IOException {
+        try {
+            long size = Files.size(file);
+            return Files.deleteIfExists(file) ? size : -1;
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    private static long archiveFile(Path file, Path directory) throws IOException {
+        try {
+            long size = Files.size(file);
+            Files.createDirectories(directory);
+            Files.move(file, directory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            return size;
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+}
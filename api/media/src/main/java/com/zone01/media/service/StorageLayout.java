@@ -0,0 +1,120 @@
+package com.zone01.media.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Where files live under the upload directory. In the flat layout blobs sit directly in
+ * {@code blobs/} and legacy product directories directly in the upload directory, so both grow
+ * without bound. The sharded layout fans them out over two levels of two hex digits:
+ * {@code blobs/ab/cd/abcd….jpg} (the blob's own digest) and {@code products/ab/cd/<productId>/}
+ * (the SHA-256 of the product id, since ids aren't evenly spread), which keeps every directory
+ * small however large the store gets.
+ * <p>
+ * Files are written in the configured layout and looked up there first, then in the other one,
+ * so the store keeps working while {@link StorageMigration} moves files across.
+ */
+@Component
+public class StorageLayout {
+    static final String BLOBS = "blobs";
+    static final String PRODUCTS = "products";
+
+    private final Path base;
+    private final Path blobs;
+    private final Path products;
+    private final boolean sharded;
+
+    public StorageLayout(
+            @Value("${media.upload.base.dir}") String baseUploadDirectory,
+            @Value("${media.storage.layout:sharded}") String layout
+    ) {
+        this.base = Paths.get(baseUploadDirectory).toAbsolutePath().normalize();
+        this.blobs = base.resolve(BLOBS);
+        this.products = base.resolve(PRODUCTS);
+        this.sharded = switch (layout.toLowerCase(Locale.ROOT)) {
+            case "sharded" -> true;
+            case "flat" -> false;
+            default -> throw new IllegalArgumentException("Unknown media.storage.layout: " + layout);
+        };
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public Path getBase() {
+        return base;
+    }
+
+    public Path getBlobs() {
+        return blobs;
+    }
+
+    public Path getProducts() {
+        return products;
+    }
+
+    /**
+     * @param name a blob or blob variant name, already validated
+     * @return where the blob is, or where it is written when it doesn't exist yet
+     */
+    public Path blob(String name) {
+        return locate(shardedBlob(name), blobs.resolve(name));
+    }
+
+    public Path blobTarget(String name) {
+        return sharded ? shardedBlob(name) : blobs.resolve(name);
+    }
+
+    public Path shardedBlob(String name) {
+        return blobs.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    /**
+     * @return the directory holding a product's legacy files, or null for an id that isn't a plain name
+     */
+    public Path productDirectory(String productId) {
+        if (!isPlainName(productId)) return null;
+        return locate(shardedProductDirectory(productId), base.resolve(productId));
+    }
+
+    Path shardedProductDirectory(String productId) {
+        String digest = HexFormat.of().formatHex(sha256(productId));
+        return products.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(productId);
+    }
+
+    /**
+     * Each lookup costs at most two stats. A file in neither place comes back as the preferred path
+     * without a third look: the migration only moves files into the preferred layout, so one moved
+     * between the two checks is found there.
+     */
+    private Path locate(Path shardedPath, Path flatPath) {
+        Path preferred = sharded ? shardedPath : flatPath;
+        Path other = sharded ? flatPath : shardedPath;
+        if (Files.exists(preferred)) return preferred;
+        if (Files.exists(other)) return other;
+        return preferred;
+    }
+
+    static boolean isPlainName(String name) {
+        return name != null && !name.isBlank() && !name.equals(".") && !name.equals("..")
+                && name.indexOf('/') < 0 && name.indexOf('\\') < 0;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.zone01.media.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+
+/**
+ * Moves files stored in the flat layout into the sharded one while the service runs, a batch at a
+ * time. Every move is an atomic rename within the upload directory, and {@link StorageLayout} looks
+ * in both layouts, so a file is readable at every point of its move. Once nothing is left in the
+ * flat layout a run only lists the two roots.
+ */
+@Component
+@Slf4j
+public class StorageMigration {
+    private static final Set<String> RESERVED = Set.of(StorageLayout.BLOBS, StorageLayout.PRODUCTS);
+
+    private final StorageLayout layout;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public StorageMigration(
+            StorageLayout layout,
+            @Value("${media.storage.migration.enabled:true}") boolean enabled,
+            @Value("${media.storage.migration.batch-size:2000}") int batchSize
+    ) {
+        this.layout = layout;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${media.storage.migration.interval-ms:30000}")
+    public void run() {
+        if (!enabled || !layout.isSharded()) return;
+        try {
+            int moved = migrateBlobs(batchSize);
+            moved += migrateProductDirectories(batchSize - moved);
+            if (moved > 0) log.info("====== Moved {} stored files to the sharded layout ======", moved);
+        } catch (IOException e) {
+            log.error("====== Storage migration failed: {} ======", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of blobs and blob variants moved, at most {@code limit}
+     */
+    int migrateBlobs(int limit) throws IOException {
+        if (limit <= 0 || !Files.isDirectory(layout.getBlobs())) return 0;
+
+        int moved = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(layout.getBlobs(),
+                entry -> BlobStore.isBlobName(entry.getFileName().toString()) && Files.isRegularFile(entry))) {
+            for (Path file : entries) {
+                Path target = layout.shardedBlob(file.getFileName().toString());
+                Files.createDirectories(target.getParent());
+                try {
+                    // A blob with the same name has the same bytes
+                    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (NoSuchFileException e) {
+                    continue; // Collected meanwhile
+                }
+                if (++moved >= limit) break;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Moves whole product directories with one rename each; a product already present in the sharded
+     * layout has its files moved one by one instead.
+     *
+     * @return the number of directories and files moved, at most about {@code limit}
+     */
+    int migrateProductDirectories(int limit) throws IOException {
+        if (limit <= 0) return 0;
+
+        int moved = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(layout.getBase(), entry -> {
+            String name = entry.getFileName().toString();
+            return !RESERVED.contains(name) && !name.startsWith(".") && Files.isDirectory(entry);
+        })) {
+            for (Path directory : entries) {
+                Path target = layout.shardedProductDirectory(directory.getFileName().toString());
+                Files.createDirectories(target.getParent());
+                if (Files.exists(target)) {
+                    moved += mergeInto(directory, target);
+                } else {
+                    try {
+                        Files.move(directory, target, StandardCopyOption.ATOMIC_MOVE);
+                        moved++;
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    } catch (FileSystemException e) {
+                        // Created by a concurrent write; rename(2) reports it as a plain failure
+                        if (!Files.exists(target)) throw e;
+                        moved += mergeInto(directory, target);
+                    }
+                }
+                if (moved >= limit) break;
+            }
+        }
+        return moved;
+    }
+
+    private int mergeInto(Path directory, Path target) throws IOException {
+        int moved = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                try {
+                    Files.move(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                } catch (NoSuchFileException e) {
+                    // Deleted meanwhile
+                }
+            }
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (DirectoryNotEmptyException e) {
+            // Written to meanwhile, picked up by the next run
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,78 @@
+package com.zone01.media.storage;
+
+import com.buy01.common.storage.FileSystemStorage;
+import com.zone01.media.service.BlobStore;
+import com.zone01.media.service.StorageLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * The upload directory as {@link FileSystemStorage} keeps it, except that blob keys
+ * ({@code blobs/<name>}) go through {@link StorageLayout}, so they are found in either layout and
+ * written in the configured one. Atomic renames let {@link BlobStore} park a blob aside and put it
+ * back without a window where it is half there.
+ */
+public class LayoutFileSystemStorage extends FileSystemStorage {
+    private static final String BLOBS = "blobs/";
+
+    private final StorageLayout layout;
+
+    public LayoutFileSystemStorage(StorageLayout layout) {
+        super(layout.getBase().toString());
+        this.layout = layout;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        String blob = blobName(key);
+        if (blob == null) {
+            super.delete(key);
+            return;
+        }
+        // Not migrated yet, or written in the old place while being migrated
+        Files.deleteIfExists(layout.shardedBlob(blob));
+        Files.deleteIfExists(layout.getBlobs().resolve(blob));
+    }
+
+    /**
+     * Listing {@code blobs/} returns the blobs and variants of both layouts, leaving out the staging
+     * and trash directories; any other prefix is listed as a plain directory.
+     */
+    @Override
+    public Stream<StoredObject> list(String prefix) throws IOException {
+        if (!prefix.equals(BLOBS)) return super.list(prefix);
+
+        Path blobs = layout.getBlobs();
+        if (!Files.isDirectory(blobs)) return Stream.empty();
+        return Files.walk(blobs)
+                .filter(file -> !blobs.relativize(file).toString().startsWith("."))
+                .filter(file -> BlobStore.isBlobName(file.getFileName().toString()))
+                .map(file -> statUnchecked(BLOBS + file.getFileName(), file))
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * A blob moved by the migration meanwhile is found again by {@link #move}'s second look.
+     */
+    @Override
+    protected Path file(String key) {
+        String blob = blobName(key);
+        return blob != null ? layout.blob(blob) : super.file(key);
+    }
+
+    @Override
+    protected Path target(String key) {
+        String blob = blobName(key);
+        return blob != null ? layout.blobTarget(blob) : super.target(key);
+    }
+
+    private static String blobName(String key) {
+        if (!key.startsWith(BLOBS)) return null;
+        String name = key.substring(BLOBS.length());
+        return BlobStore.isBlobName(name) ? name : null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.zone01.media.variant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Downscaled copies kept next to each upload, bounded by their longest side.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    THUMB(200),
+    MEDIUM(600),
+    LARGE(1200);
+
+    private final int maxSize;
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static ImageVariant parse(String key) {
+        return Arrays.stream(values())
+                .filter(variant -> variant.key().equalsIgnoreCase(key.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Unknown variant '" + key + "', expected one of " + Arrays.stream(values()).map(ImageVariant::key).toList()));
+    }
+}
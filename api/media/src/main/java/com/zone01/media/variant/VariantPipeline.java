@@ -0,0 +1,203 @@
+package com.zone01.media.variant;
+
+import com.mongodb.client.result.UpdateResult;
+import com.zone01.media.media.Media;
+import com.zone01.media.service.BlobStore;
+import com.zone01.media.service.FileServices;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Derives the {@link ImageVariant}s of uploaded images in the background and records them on the
+ * {@link Media} document. A fixed number of workers takes media from a bounded queue, which caps
+ * the memory held by decoded images; when the queue is full the upload is left for the sweep,
+ * which also picks up media stored before the service restarted. A generation that fails is counted
+ * on the media, and the sweep gives up on it after {@code media.variants.max-attempts}.
+ */
+@Component
+@Slf4j
+public class VariantPipeline {
+    private final MongoTemplate mongoTemplate;
+    private final FileServices fileServices;
+    private final BlobStore blobStore;
+    private final float jpegQuality;
+    private final long maxPixels;
+    private final int maxAttempts;
+    private final ThreadPoolExecutor executor;
+    // Keyed by media and image, so a replaced image is queued even while the old one still is
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    public VariantPipeline(
+            MongoTemplate mongoTemplate,
+            FileServices fileServices,
+            BlobStore blobStore,
+            @Value("${media.variants.threads:2}") int threads,
+            @Value("${media.variants.queue-capacity:1000}") int queueCapacity,
+            @Value("${media.variants.jpeg-quality:0.8}") float jpegQuality,
+            @Value("${media.variants.max-pixels:40000000}") long maxPixels,
+            @Value("${media.variants.max-attempts:3}") int maxAttempts
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.fileServices = fileServices;
+        this.blobStore = blobStore;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+        this.maxAttempts = maxAttempts;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "media-variants-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues the media without waiting; returns false when the queue is full.
+     */
+    public boolean submit(Media media) {
+        String key = media.getId() + "/" + media.getImagePath();
+        if (!queued.add(key)) return true;
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(media);
+                } finally {
+                    queued.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(key);
+            return false;
+        }
+    }
+
+    /**
+     * Queues media without a recorded variant set and attempts left, as many as the queue has room for.
+     */
+    @Scheduled(fixedDelayString = "${media.variants.sweep-interval-ms:600000}")
+    public void sweep() {
+        int room = executor.getQueue().remainingCapacity();
+        if (room == 0) return;
+
+        Query query = Query.query(Criteria.where("variants").exists(false).and("deleted").is(false)
+                .and(Media.VARIANT_FAILURES).not().gte(maxAttempts)).limit(room);
+        int submitted = 0;
+        for (Media media : mongoTemplate.find(query, Media.class)) {
+            if (!submit(media)) break;
+            submitted++;
+        }
+        if (submitted > 0) log.info("====== Queued {} media for variant generation ======", submitted);
+    }
+
+    /**
+     * Removes the variant files of a replaced image stored under its product. Blob variants are shared
+     * by every media with the same image and go with the blob.
+     */
+    public void discard(String productId, Map<String, String> variants) {
+        if (variants == null) return;
+        variants.values().forEach(name -> {
+            try {
+                Path file = fileServices.resolveFile(productId, name);
+                if (file != null) Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("====== Failed to delete variant {}/{}: {} ======", productId, name, e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void generate(Media media) {
+        String productId = media.getProductId();
+        String imagePath = media.getImagePath();
+        Map<String, String> variants = new LinkedHashMap<>();
+        Path download = null;
+        try {
+            Path original = fileServices.resolveOriginal(media);
+            // Blobs kept off this host are decoded from a local copy
+            if (original == null && media.getBlob() != null) original = download = blobStore.download(media.getBlob());
+            BufferedImage image = original == null || !Files.isRegularFile(original) ? null : VariantImages.read(original, maxPixels);
+            if (image == null) {
+                log.warn("====== No variants for {}/{}: missing, too large or unsupported format ======", productId, imagePath);
+            } else {
+                // PNG keeps transparency, everything else becomes JPEG
+                String format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+                String originalName = media.getBlob() != null ? media.getBlob() : original.getFileName().toString();
+                String stem = originalName.contains(".") ? originalName.substring(0, originalName.lastIndexOf('.')) : originalName;
+                for (ImageVariant variant : ImageVariant.values()) {
+                    // Images already within a variant's size are served as they are
+                    if (Math.max(image.getWidth(), image.getHeight()) <= variant.getMaxSize()) continue;
+
+                    String name = stem + "-" + variant.key() + "." + format;
+                    if (media.getBlob() == null) {
+                        Path target = original.resolveSibling(name);
+                        if (!Files.exists(target))
+                            VariantImages.write(VariantImages.scale(image, variant.getMaxSize()), format, jpegQuality, target);
+                    } else if (!blobStore.exists(name)) {
+                        // Another media with the same blob may have generated it already
+                        Path temp = blobStore.newStagingFile();
+                        try {
+                            VariantImages.write(VariantImages.scale(image, variant.getMaxSize()), format, jpegQuality, temp);
+                            blobStore.storeVariant(name, temp);
+                        } finally {
+                            Files.deleteIfExists(temp);
+                        }
+                    }
+                    variants.put(variant.key(), name);
+                }
+            }
+
+            // Only record them if the image wasn't replaced meanwhile; an empty set still stops the sweep retrying
+            UpdateResult result = mongoTemplate.updateFirst(
+                    sameImage(media),
+                    new Update().set("variants", variants).unset(Media.VARIANT_FAILURES),
+                    Media.class);
+            if (result.getMatchedCount() == 0 && media.getBlob() == null) discard(productId, variants);
+        } catch (IOException | RuntimeException e) {
+            log.error("====== Failed to generate variants for {}/{}: {} ======", productId, imagePath, e.getMessage());
+            if (media.getBlob() == null) discard(productId, variants);
+            recordFailure(media);
+        } finally {
+            if (download != null) {
+                try {
+                    Files.deleteIfExists(download);
+                } catch (IOException e) {
+                    log.warn("====== Failed to delete {}: {} ======", download, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void recordFailure(Media media) {
+        try {
+            mongoTemplate.updateFirst(sameImage(media), new Update().inc(Media.VARIANT_FAILURES, 1), Media.class);
+        } catch (RuntimeException e) {
+            log.warn("====== Failed to record the variant failure of {}: {} ======", media.getId(), e.getMessage());
+        }
+    }
+
+    private static Query sameImage(Media media) {
+        return Query.query(Criteria.where("_id").is(media.getId()).and("imagePath").is(media.getImagePath()));
+    }
+}
@@ -0,0 +1,90 @@
+package com.zone01.media.config.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.media.media.MediaService;
+import com.zone01.media.model.Response;
+import com.zone01.media.model.dto.MediaDTO;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaKafkaListenerTest {
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private MediaService mediaService;
+
+    @Captor
+    private ArgumentCaptor<Message<Response<?>>> sent;
+
+    private MediaKafkaListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new MediaKafkaListener(kafkaTemplate, new ObjectMapper(), mediaService);
+    }
+
+    @Test
+    @DisplayName("Should answer a lookup on the reply topic with the request's correlation id")
+    void handleMediaByProductsRequest_Replies() {
+        Map<String, List<MediaDTO>> media = Map.of("p1", List.of(MediaDTO.builder().id("m1").productId("p1").build()));
+        when(mediaService.getMediaByProductIds(List.of("p1", "p2"))).thenReturn(Response.ok(media));
+        ConsumerRecord<String, Object> record = request(List.of("p1", "p2"));
+        record.headers().add(KafkaHeaders.REPLY_TOPIC, "product-replies".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaHeaders.CORRELATION_ID, new byte[]{1, 2, 3});
+
+        listener.handleMediaByProductsRequest(record);
+
+        verify(kafkaTemplate).send(sent.capture());
+        Message<Response<?>> message = sent.getValue();
+        assertEquals("product-replies", message.getHeaders().get(KafkaHeaders.TOPIC));
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) message.getHeaders().get(KafkaHeaders.CORRELATION_ID));
+        assertEquals(media, message.getPayload().getData());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the product response topic when the request names none")
+    void handleMediaByProductsRequest_DefaultReplyTopic() {
+        when(mediaService.getMediaByProductIds(List.of("p1"))).thenReturn(Response.ok(Map.of("p1", List.of())));
+
+        listener.handleMediaByProductsRequest(request(List.of("p1")));
+
+        verify(kafkaTemplate).send(sent.capture());
+        assertEquals("media-response-to-product", sent.getValue().getHeaders().get(KafkaHeaders.TOPIC));
+    }
+
+    @Test
+    @DisplayName("Should reply with a bad request when the payload is not a list of ids")
+    void handleMediaByProductsRequest_InvalidPayload() {
+        listener.handleMediaByProductsRequest(request(Map.of("ids", "p1")));
+
+        verify(kafkaTemplate).send(sent.capture());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), sent.getValue().getPayload().getStatus());
+        verifyNoInteractions(mediaService);
+    }
+
+    private static ConsumerRecord<String, Object> request(Object value) {
+        return new ConsumerRecord<>(MediaKafkaListener.MEDIA_BY_PRODUCTS_REQUEST, 0, 0L, null, value);
+    }
+}
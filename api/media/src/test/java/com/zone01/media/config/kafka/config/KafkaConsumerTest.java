@@ -0,0 +1,50 @@
+package com.zone01.media.config.kafka.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaConsumerTest {
+
+    private KafkaConsumer kafkaConsumer;
+
+    @BeforeEach
+    void setUp() {
+        kafkaConsumer = new KafkaConsumer();
+        ReflectionTestUtils.setField(kafkaConsumer, "bootstrapServers", "localhost:9092");
+    }
+
+    @Test
+    @DisplayName("Should consume requests in their own group")
+    void requestKafkaListenerContainerFactory_Group() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = kafkaConsumer.requestKafkaListenerContainerFactory();
+
+        Map<String, Object> properties = factory.getConsumerFactory().getConfigurationProperties();
+        assertEquals("media-requests", properties.get(ConsumerConfig.GROUP_ID_CONFIG));
+        assertEquals("localhost:9092", properties.get(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG));
+    }
+
+    @Test
+    @DisplayName("Should read a plain JSON array of ids without type headers")
+    void requestKafkaListenerContainerFactory_ReadsPlainJson() {
+        ConsumerFactory<? super String, ? super Object> consumerFactory =
+                kafkaConsumer.requestKafkaListenerContainerFactory().getConsumerFactory();
+
+        try (ErrorHandlingDeserializer<Object> deserializer = new ErrorHandlingDeserializer<>()) {
+            deserializer.configure(consumerFactory.getConfigurationProperties(), false);
+            Object value = deserializer.deserialize("media-by-products-request", "[\"p1\",\"p2\"]".getBytes(StandardCharsets.UTF_8));
+            assertEquals(List.of("p1", "p2"), value);
+        }
+    }
+}
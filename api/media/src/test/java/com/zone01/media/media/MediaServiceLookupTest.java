@@ -0,0 +1,112 @@
+package com.zone01.media.media;
+
+import com.zone01.media.config.kafka.ProductServices;
+import com.zone01.media.model.Response;
+import com.zone01.media.model.dto.MediaDTO;
+import com.zone01.media.service.BlobStore;
+import com.zone01.media.service.FileServices;
+import com.zone01.media.variant.VariantPipeline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MediaServiceLookupTest {
+
+    @Mock
+    private MediaRepository mediaRepository;
+
+    @Mock
+    private ProductServices productServices;
+
+    @Mock
+    private FileServices fileServices;
+
+    @Mock
+    private VariantPipeline variantPipeline;
+
+    @Mock
+    private BlobStore blobStore;
+
+    @InjectMocks
+    private MediaService mediaService;
+
+    @Test
+    @DisplayName("Should look up 100 products with one query")
+    void getMediaByProductIds_AtLimit() {
+        List<String> ids = productIds(100);
+        when(mediaRepository.findSummariesByProductIdIn(anyCollection()))
+                .thenReturn(List.of(Media.builder().id("m1").imagePath("a.jpg").productId("p42").build()));
+
+        Response<Map<String, List<MediaDTO>>> response = mediaService.getMediaByProductIds(ids);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(100, response.getData().size());
+        assertEquals("m1", response.getData().get("p42").get(0).getId());
+        assertEquals(List.of(), response.getData().get("p1"));
+        verify(mediaRepository, times(1)).findSummariesByProductIdIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should reject more than 100 distinct product IDs without querying")
+    void getMediaByProductIds_OverLimit() {
+        Response<Map<String, List<MediaDTO>>> response = mediaService.getMediaByProductIds(productIds(101));
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+        assertTrue(response.getMessage().contains("100"));
+        verifyNoInteractions(mediaRepository);
+    }
+
+    @Test
+    @DisplayName("Should count product IDs after trimming, dropping blanks and duplicates")
+    void getMediaByProductIds_CountsDistinctIds() {
+        List<String> ids = new ArrayList<>(productIds(100));
+        ids.addAll(Arrays.asList(" p1 ", "p2", "", null));
+        when(mediaRepository.findSummariesByProductIdIn(anyCollection())).thenReturn(List.of());
+
+        Response<Map<String, List<MediaDTO>>> response = mediaService.getMediaByProductIds(ids);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        verify(mediaRepository).findSummariesByProductIdIn(argThat((Collection<String> queried) -> queried.size() == 100));
+    }
+
+    @Test
+    @DisplayName("Should answer with the original when a recorded variant is missing from the storage")
+    void getMetadataMedia_MissingVariant() {
+        String blob = "ab".repeat(32) + ".jpg";
+        String thumb = "ab".repeat(32) + "-thumb.jpg";
+        URI original = URI.create("http://localhost:9010/media/" + blob);
+        Media media = Media.builder().id("m1").productId("p1").imagePath("a.jpg").blob(blob)
+                .variants(Map.of("thumb", thumb)).build();
+        when(mediaRepository.findMediaByProductIdAndImagePathAndDeletedFalse("p1", "a.jpg")).thenReturn(Optional.of(media));
+        when(fileServices.getImages(media, thumb)).thenReturn(Response.notFound("File not found"));
+        when(fileServices.getImages(media, blob)).thenReturn(Response.ok(original));
+
+        Response<Object> response = mediaService.getMetadataMedia("p1", "a.jpg", "thumb");
+
+        StoredImage image = (StoredImage) response.getData();
+        assertEquals(original, image.location());
+        assertFalse(image.immutable());
+    }
+
+    private static List<String> productIds(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> "p" + i).toList();
+    }
+}
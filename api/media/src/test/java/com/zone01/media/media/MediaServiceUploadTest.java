@@ -0,0 +1,156 @@
+package com.zone01.media.media;
+
+import com.zone01.media.config.kafka.ProductServices;
+import com.zone01.media.model.Response;
+import com.zone01.media.model.dto.MediaDTO;
+import com.zone01.media.model.dto.ProductsDTO;
+import com.zone01.media.service.BlobStore;
+import com.zone01.media.service.FileServices;
+import com.zone01.media.service.StorageLayout;
+import com.zone01.media.storage.LayoutFileSystemStorage;
+import com.zone01.media.variant.VariantPipeline;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Uploads against a real blob store on disk, with the media collection kept in a map, to check
+ * that a failed save leaves neither media nor blobs behind.
+ */
+@ExtendWith(MockitoExtension.class)
+class MediaServiceUploadTest {
+    private static final String PRODUCT_ID = "prod123";
+
+    @TempDir
+    Path uploads;
+
+    @Mock
+    private MediaRepository mediaRepository;
+
+    @Mock
+    private ProductServices productServices;
+
+    @Mock
+    private FileServices fileServices;
+
+    @Mock
+    private VariantPipeline variantPipeline;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private HttpServletRequest request;
+
+    private final Map<String, Media> rows = new LinkedHashMap<>();
+    private LayoutFileSystemStorage storage;
+    private BlobStore blobStore;
+    private MediaService mediaService;
+
+    @BeforeEach
+    void setUp() {
+        StorageLayout layout = new StorageLayout(uploads.toString(), "sharded");
+        storage = spy(new LayoutFileSystemStorage(layout));
+        blobStore = new BlobStore(mongoTemplate, layout, storage, 2, 3600);
+        mediaService = new MediaService(mediaRepository, productServices, fileServices, variantPipeline, blobStore);
+
+        when(fileServices.validateFiles(any(), eq(PRODUCT_ID), eq(false))).thenReturn(null);
+        when(productServices.getProductByID(PRODUCT_ID, request)).thenReturn(Response.ok(ProductsDTO.builder().id(PRODUCT_ID).build()));
+        when(fileServices.generateUniqueFilename(anyString(), eq(PRODUCT_ID))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().doAnswer(invocation -> {
+            invocation.<List<String>>getArgument(0).forEach(rows::remove);
+            return null;
+        }).when(mediaRepository).deleteAllById(anyList());
+        lenient().when(mongoTemplate.exists(any(Query.class), eq(Media.class))).thenAnswer(invocation -> {
+            Object blob = invocation.<Query>getArgument(0).getQueryObject().get("blob");
+            return rows.values().stream().anyMatch(media -> blob.equals(media.getBlob()));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        blobStore.stop();
+    }
+
+    @Test
+    @DisplayName("Should remove the media written before a bulk insert failed, and store no blob")
+    void createMedia_InsertFails() throws IOException {
+        when(mediaRepository.insert(anyIterable())).thenAnswer(invocation -> {
+            // An unordered bulk insert can write some documents before failing
+            Media first = invocation.<Iterable<Media>>getArgument(0).iterator().next();
+            rows.put(first.getId(), first);
+            throw new IllegalStateException("Insert failed");
+        });
+
+        Response<List<MediaDTO>> response = mediaService.createMedia(PRODUCT_ID, files(), request);
+
+        assertTrue(response.isError());
+        assertTrue(rows.isEmpty());
+        assertNoBlobs();
+        verify(storage, never()).store(anyString(), any(Path.class), anyString());
+        verifyNoInteractions(variantPipeline);
+    }
+
+    @Test
+    @DisplayName("Should remove the inserted media and the blobs already moved when a commit fails")
+    void createMedia_CommitFails() throws IOException {
+        when(mediaRepository.insert(anyIterable())).thenAnswer(invocation -> {
+            List<Media> inserted = new ArrayList<>();
+            invocation.<Iterable<Media>>getArgument(0).forEach(media -> {
+                rows.put(media.getId(), media);
+                inserted.add(media);
+            });
+            return inserted;
+        });
+        doCallRealMethod()
+                .doThrow(new IOException("Disk full"))
+                .when(storage).store(anyString(), any(Path.class), anyString());
+
+        Response<List<MediaDTO>> response = mediaService.createMedia(PRODUCT_ID, files(), request);
+
+        assertTrue(response.isError());
+        assertTrue(rows.isEmpty());
+        assertNoBlobs();
+        verify(storage, times(2)).store(anyString(), any(Path.class), anyString());
+        verifyNoInteractions(variantPipeline);
+    }
+
+    private static List<MultipartFile> files() {
+        return List.of(
+                new MockMultipartFile("files", "a.jpg", "image/jpeg", "first".getBytes()),
+                new MockMultipartFile("files", "b.png", "image/png", "second".getBytes()));
+    }
+
+    /**
+     * Nothing under blobs/ but empty directories: no blob, no trashed blob and no staged upload.
+     */
+    private void assertNoBlobs() throws IOException {
+        Path blobs = uploads.resolve("blobs");
+        if (!Files.exists(blobs)) return;
+        try (var files = Files.walk(blobs)) {
+            assertEquals(List.of(), files.filter(Files::isRegularFile).toList());
+        }
+    }
+}
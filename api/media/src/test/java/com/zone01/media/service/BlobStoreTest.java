@@ -0,0 +1,138 @@
+package com.zone01.media.service;
+
+import com.zone01.media.media.Media;
+import com.zone01.media.storage.LayoutFileSystemStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlobStoreTest {
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path uploads;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        StorageLayout layout = new StorageLayout(uploads.toString(), "sharded");
+        blobStore = new BlobStore(mongoTemplate, layout, new LayoutFileSystemStorage(layout), 2, 3600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blobStore.stop();
+    }
+
+    @Test
+    @DisplayName("Should name a blob after the SHA-256 of its bytes and store identical uploads once")
+    void stageAndCommit() throws IOException {
+        BlobStore.Staged first = blobStore.stage(new MockMultipartFile("files", "a.jpeg", "image/jpeg", "hello".getBytes()));
+        BlobStore.Staged second = blobStore.stage(new MockMultipartFile("files", "b.jpg", "image/jpeg", "hello".getBytes()));
+        assertEquals(HELLO_SHA256 + ".jpg", first.name());
+        assertEquals(first.name(), second.name());
+
+        blobStore.commit(first);
+        blobStore.commit(second);
+
+        try (var files = Files.list(uploads.resolve("blobs/2c/f2"))) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+        assertEquals("hello", Files.readString(blobStore.resolve(first.name())));
+        assertFalse(Files.exists(second.temp()));
+    }
+
+    @Test
+    @DisplayName("Should stage several uploads in order, and none when one of them fails")
+    void stageAll() throws IOException {
+        List<BlobStore.Staged> staged = blobStore.stageAll(List.of(
+                new MockMultipartFile("files", "a.jpg", "image/jpeg", "hello".getBytes()),
+                new MockMultipartFile("files", "b.png", "image/png", "other".getBytes())));
+        assertEquals(HELLO_SHA256 + ".jpg", staged.get(0).name());
+        assertTrue(staged.get(1).name().endsWith(".png"));
+
+        MockMultipartFile unreadable = new MockMultipartFile("files", "c.jpg", "image/jpeg", "broken".getBytes()) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("Disk error");
+            }
+        };
+        List<MultipartFile> files = List.of(new MockMultipartFile("files", "d.jpg", "image/jpeg", "fine".getBytes()), unreadable);
+        assertThrows(IOException.class, () -> blobStore.stageAll(files));
+
+        try (var left = Files.list(uploads.resolve("blobs").resolve(".staging"))) {
+            assertEquals(2, left.count()); // Only the two staged by the first call
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop staging a stream past the size limit and leave nothing behind")
+    void stage_TooLarge() throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(new byte[200_000]);
+        assertThrows(IllegalArgumentException.class, () -> blobStore.stage(input, "image/png", 100_000));
+
+        try (var files = Files.list(uploads.resolve("blobs").resolve(".staging"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should delete an unreferenced blob with its variants, in either layout")
+    void collect_Unreferenced() throws IOException {
+        Path blob = Files.createDirectories(uploads.resolve("blobs/2c/f2")).resolve(HELLO_SHA256 + ".jpg");
+        Files.writeString(blob, "hello");
+        Path thumb = Files.writeString(uploads.resolve("blobs/2c/f2/" + HELLO_SHA256 + "-thumb.jpg"), "thumb");
+        Path flatMedium = Files.writeString(uploads.resolve("blobs/" + HELLO_SHA256 + "-medium.jpg"), "medium");
+        when(mongoTemplate.exists(any(Query.class), eq(Media.class))).thenReturn(false);
+
+        assertTrue(blobStore.collect(HELLO_SHA256 + ".jpg"));
+        assertFalse(Files.exists(blob));
+        assertFalse(Files.exists(thumb));
+        assertFalse(Files.exists(flatMedium));
+    }
+
+    @Test
+    @DisplayName("Should put the blob back when it was referenced again while being collected")
+    void collect_ReferencedMeanwhile() throws IOException {
+        // Still in the flat layout, restored into the sharded one
+        Path blob = Files.createDirectories(uploads.resolve("blobs")).resolve(HELLO_SHA256 + ".jpg");
+        Files.writeString(blob, "hello");
+        when(mongoTemplate.exists(any(Query.class), eq(Media.class))).thenReturn(false, true);
+
+        assertFalse(blobStore.collect(HELLO_SHA256 + ".jpg"));
+        assertEquals("hello", Files.readString(uploads.resolve("blobs/2c/f2/" + HELLO_SHA256 + ".jpg")));
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(Media.class));
+    }
+
+    @Test
+    @DisplayName("Should not resolve names outside the blob store")
+    void resolve_Invalid() {
+        assertNull(blobStore.resolve("../" + HELLO_SHA256 + ".jpg"));
+        assertNull(blobStore.resolve("photo.jpg"));
+    }
+}
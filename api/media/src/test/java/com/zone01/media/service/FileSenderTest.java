@@ -0,0 +1,115 @@
+package com.zone01.media.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSenderTest {
+
+    @TempDir
+    Path directory;
+
+    private final FileSender fileSender = new FileSender(49152, new ImageCache(new SimpleMeterRegistry(), 1024, 1024, 100));
+    private Path image;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        image = Files.write(directory.resolve("3f2a_p1.png"), "0123456789".getBytes());
+        request = new MockHttpServletRequest("GET", "/api/v1/media/p1/3f2a_p1.png");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    @DisplayName("Should send ranges of an image served from the cache")
+    void send_Cached() throws IOException {
+        fileSender.send(image, true, request, new MockHttpServletResponse());
+        fileSender.send(image, true, request, new MockHttpServletResponse());
+        request.addHeader(HttpHeaders.RANGE, "bytes=3-4");
+
+        fileSender.send(image, true, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("34", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should send the whole image with its type and immutable caching headers")
+    void send_Full() throws IOException {
+        fileSender.send(image, true, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("image/png", response.getContentType());
+        assertEquals("\"3f2a_p1.png\"", response.getHeader(HttpHeaders.ETAG));
+        assertTrue(response.getHeader(HttpHeaders.CACHE_CONTROL).contains("immutable"));
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should cache briefly when the URL will later serve other bytes")
+    void send_Temporary() throws IOException {
+        fileSender.send(image, false, request, response);
+
+        assertEquals("public, max-age=60", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertEquals("\"3f2a_p1.png\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("Should send only the requested range")
+    void send_Range() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        fileSender.send(image, true, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLength());
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should ignore the range when If-Range names another version")
+    void send_StaleIfRange() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other.png\"");
+
+        fileSender.send(image, true, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should answer a matching If-None-Match with 304 and no body")
+    void send_NotModified() throws IOException {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"3f2a_p1.png\"");
+
+        fileSender.send(image, true, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Should reject a range starting past the end of the image")
+    void send_Unsatisfiable() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+        fileSender.send(image, true, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+}
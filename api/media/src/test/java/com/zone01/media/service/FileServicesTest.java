@@ -6,7 +6,6 @@ import com.zone01.media.model.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.Resource;
@@ -15,6 +14,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,6 +24,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,7 +33,10 @@ class FileServicesTest {
     @Mock
     private MediaRepository mediaRepository;
 
-    @InjectMocks
+    @Mock
+    private BlobStore blobStore;
+
+    // Built in setUp: the limits are constructor values Mockito can't inject
     private FileServices fileServices;
 
     private final long maxFileSize = 5 * 1024 * 1024; // 5MB
@@ -49,9 +53,11 @@ class FileServicesTest {
         fileServices = new FileServices(
                 maxFileSize,
                 maxFileCount,
+                maxFileSize * maxFileCount,
                 allowedContentTypes,
-                baseUploadDirectory,
-                mediaRepository
+                new StorageLayout(baseUploadDirectory, "sharded"),
+                mediaRepository,
+                blobStore
         );
 
         validFile = new MockMultipartFile(
@@ -221,4 +227,30 @@ class FileServicesTest {
 //        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
 //        assertEquals("Invalid product ID or imagePath", response.getMessage());
 //    }
-} 
\ No newline at end of file
+
+    @Test
+    void getImages_PresignsStoredRemoteBlob() throws IOException {
+        String blob = "ab".repeat(32) + ".jpg";
+        URI location = URI.create("http://localhost:9010/media/" + blob);
+        when(blobStore.resolve(blob)).thenReturn(null);
+        when(blobStore.exists(blob)).thenReturn(true);
+        when(blobStore.presign(blob)).thenReturn(location);
+
+        Response<Object> response = fileServices.getImages(Media.builder().blob(blob).build(), blob);
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(location, response.getData());
+    }
+
+    @Test
+    void getImages_MissingRemoteBlob() throws IOException {
+        String variant = "ab".repeat(32) + "-thumb.jpg";
+        when(blobStore.resolve(variant)).thenReturn(null);
+        when(blobStore.exists(variant)).thenReturn(false);
+
+        Response<Object> response = fileServices.getImages(Media.builder().blob("ab".repeat(32) + ".jpg").build(), variant);
+
+        assertTrue(response.isError());
+        verify(blobStore, never()).presign(anyString());
+    }
+}
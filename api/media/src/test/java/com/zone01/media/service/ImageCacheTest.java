@@ -0,0 +1,78 @@
+package com.zone01.media.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ImageCache imageCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        imageCache = new ImageCache(meterRegistry, 1024, 16, 100);
+    }
+
+    @Test
+    @DisplayName("Should cache an image on its second request, off the heap")
+    void get_SecondRequest() throws IOException {
+        Path image = Files.writeString(directory.resolve("a.png"), "hot image");
+
+        assertNull(imageCache.get(image, attributes(image)));
+        ByteBuffer cached = imageCache.get(image, attributes(image));
+        assertTrue(cached.isDirect());
+        assertEquals("hot image", text(cached));
+        assertEquals("hot image", text(imageCache.get(image, attributes(image))));
+        // Two misses (the first request, the load), one hit
+        assertEquals(1.0 / 3, meterRegistry.get("media.image.cache.hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should not cache images above the entry size")
+    void get_TooLarge() throws IOException {
+        Path image = Files.writeString(directory.resolve("b.png"), "x".repeat(17));
+
+        assertNull(imageCache.get(image, attributes(image)));
+        assertNull(imageCache.get(image, attributes(image)));
+    }
+
+    @Test
+    @DisplayName("Should read an image again when the file changed")
+    void get_Modified() throws IOException {
+        Path image = Files.writeString(directory.resolve("c.png"), "first");
+        imageCache.get(image, attributes(image));
+        imageCache.get(image, attributes(image));
+
+        Files.writeString(image, "second");
+        Files.setLastModifiedTime(image, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        assertEquals("second", text(imageCache.get(image, attributes(image))));
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+package com.zone01.media.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartReaderTest {
+    private static final String BOUNDARY = "----form7MA4YWxkTrZu0gW";
+
+    @Test
+    @DisplayName("Should read the boundary from a multipart content type")
+    void boundary() {
+        assertEquals("abc", MultipartReader.boundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartReader.boundary("multipart/form-data; boundary=\"a b\"; charset=UTF-8"));
+        assertNull(MultipartReader.boundary("application/json"));
+        assertNull(MultipartReader.boundary(null));
+    }
+
+    @Test
+    @DisplayName("Should hand out each part with its headers and exact content")
+    void nextPart() throws IOException {
+        byte[] image = new byte[200_000];
+        new Random(7).nextBytes(image);
+        byte[] body = concat(
+                "preamble\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"note\"\r\n\r\n"
+                        + "hello\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"files\"; filename=\"a.png\"\r\n"
+                        + "Content-Type: image/png\r\n\r\n",
+                image,
+                "\r\n--" + BOUNDARY + "--\r\n");
+
+        MultipartReader reader = new MultipartReader(new ByteArrayInputStream(body), BOUNDARY);
+        MultipartReader.Part note = reader.nextPart();
+        assertEquals("note", note.name());
+        assertNull(note.filename());
+        assertEquals("hello", new String(note.body().readAllBytes(), StandardCharsets.UTF_8));
+
+        MultipartReader.Part file = reader.nextPart();
+        assertEquals("files", file.name());
+        assertEquals("a.png", file.filename());
+        assertEquals("image/png", file.contentType());
+        assertArrayEquals(image, file.body().readAllBytes());
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    @DisplayName("Should find boundaries split across reads and skip parts left unread")
+    void nextPart_SmallReads() throws IOException {
+        byte[] body = concat(
+                "--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"skipped\"\r\n\r\n"
+                        + "not read\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"files\"; filename=\"b.jpg\"\r\n\r\n",
+                // Almost a boundary, which must stay part of the content
+                ("\r\n--" + BOUNDARY.substring(0, 10) + "x").getBytes(StandardCharsets.ISO_8859_1),
+                "\r\n--" + BOUNDARY + "--");
+
+        MultipartReader reader = new MultipartReader(new OneByteInputStream(body), BOUNDARY);
+        assertEquals("skipped", reader.nextPart().name());
+        MultipartReader.Part file = reader.nextPart();
+        assertEquals("b.jpg", file.filename());
+        assertEquals("\r\n--" + BOUNDARY.substring(0, 10) + "x", new String(file.body().readAllBytes(), StandardCharsets.ISO_8859_1));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    @DisplayName("Should fail on a body cut off before the closing boundary")
+    void nextPart_Truncated() throws IOException {
+        byte[] body = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"c.jpg\"\r\n\r\n"
+                + "partial content").getBytes(StandardCharsets.ISO_8859_1);
+
+        MultipartReader.Part file = new MultipartReader(new ByteArrayInputStream(body), BOUNDARY).nextPart();
+        assertThrows(IOException.class, () -> file.body().readAllBytes());
+    }
+
+    @Test
+    @DisplayName("Should count skipped parts against the body size limit")
+    void nextPart_BodyTooLarge() throws IOException {
+        byte[] body = concat(
+                "--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"padding\"\r\n\r\n",
+                new byte[300_000],
+                "\r\n--" + BOUNDARY + "--\r\n");
+
+        MultipartReader reader = new MultipartReader(new ByteArrayInputStream(body), BOUNDARY, 200_000);
+        assertEquals("padding", reader.nextPart().name());
+        // Never read by the caller, still not let through
+        assertThrows(MultipartReader.BodyTooLargeException.class, reader::nextPart);
+    }
+
+    private static byte[] concat(String head, byte[] content, String tail) {
+        byte[] start = head.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] end = tail.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] body = new byte[start.length + content.length + end.length];
+        System.arraycopy(start, 0, body, 0, start.length);
+        System.arraycopy(content, 0, body, start.length, content.length);
+        System.arraycopy(end, 0, body, start.length + content.length, end.length);
+        return body;
+    }
+
+    /**
+     * Returns a single byte per read, as a slow client would.
+     */
+    private static class OneByteInputStream extends InputStream {
+        private final ByteArrayInputStream input;
+
+        OneByteInputStream(byte[] bytes) {
+            this.input = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() {
+            return input.read();
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            return length == 0 ? 0 : input.read(target, offset, 1);
+        }
+    }
+}
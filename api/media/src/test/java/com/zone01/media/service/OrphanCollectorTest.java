@@ -0,0 +1,156 @@
+package com.zone01.media.service;
+
+import com.buy01.common.lease.Leases;
+import com.zone01.media.media.Media;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.zone01.media.storage.LayoutFileSystemStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanCollectorTest {
+    private static final String LIVE = "ab".repeat(32) + ".jpg";
+    private static final String ORPHAN = "cd".repeat(32) + ".png";
+
+    @TempDir
+    Path uploads;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private Leases leases;
+
+    private StorageLayout layout;
+    private BlobStore blobStore;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        layout = new StorageLayout(uploads.toString(), "sharded");
+        blobStore = new BlobStore(mongoTemplate, layout, new LayoutFileSystemStorage(layout), 1, 3600);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        blobStore.stop();
+    }
+
+    private OrphanCollector collector(String archive) {
+        return new OrphanCollector(mongoTemplate, layout, blobStore, meterRegistry, leases, true, 3_600_000, 24, 30, 100, 0, archive);
+    }
+
+    private static Path write(Path file, String content, boolean old) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        if (old) Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return file;
+    }
+
+    @Test
+    @DisplayName("Should reclaim unreferenced blobs past the grace period and report the bytes freed")
+    void run_Blobs() throws IOException {
+        Path live = write(layout.blobTarget(LIVE), "live", true);
+        Path orphan = write(layout.blobTarget(ORPHAN), "orphan", true);
+        Path recent = write(layout.blobTarget("ef".repeat(32) + ".jpg"), "recent", false);
+        when(mongoTemplate.findDistinct(any(Query.class), eq("blob"), eq(Media.class), eq(String.class)))
+                .thenReturn(List.of(LIVE));
+
+        OrphanCollector.Report report = collector("").run();
+
+        assertTrue(Files.exists(live));
+        assertTrue(Files.exists(recent));
+        assertFalse(Files.exists(orphan));
+        assertEquals(1, report.getFiles());
+        assertEquals("orphan".length(), report.getBytes());
+        assertEquals("orphan".length(), meterRegistry.counter("media.gc.reclaimed.bytes").count());
+    }
+
+    @Test
+    @DisplayName("Should delete variants whose blob is gone and stale staging files")
+    void run_Leftovers() throws IOException {
+        Path variant = write(layout.blobTarget("cd".repeat(32) + "-thumbnail.jpg"), "thumb", true);
+        Path kept = write(layout.blobTarget("ab".repeat(32) + "-thumbnail.jpg"), "thumb", true);
+        write(layout.blobTarget(LIVE), "live", false);
+        Path staged = write(blobStore.getStaging().resolve("upload-1.tmp"), "partial", true);
+
+        OrphanCollector.Report report = collector("").run();
+
+        assertFalse(Files.exists(variant));
+        assertTrue(Files.exists(kept));
+        assertFalse(Files.exists(staged));
+        assertEquals(2, report.getFiles());
+    }
+
+    @Test
+    @DisplayName("Should archive product files no live media names and drop the emptied directories")
+    void run_ProductFiles() throws IOException {
+        Path directory = layout.shardedProductDirectory("p1");
+        Path image = write(directory.resolve("a_p1.png"), "image", true);
+        Path variant = write(directory.resolve("a_p1-thumbnail.jpg"), "thumb", true);
+        Path stale = write(directory.resolve("b_p1.png"), "stale", true);
+        Path gone = write(uploads.resolve("p2").resolve("c_p2.png"), "gone", true);
+        Media media = Media.builder().productId("p1").imagePath("a_p1.png")
+                .variants(Map.of("thumbnail", "a_p1-thumbnail.jpg")).build();
+        when(mongoTemplate.find(any(Query.class), eq(Media.class))).thenReturn(List.of(media));
+
+        Path archive = uploads.resolve(".archive");
+        OrphanCollector.Report report = collector(archive.toString()).run();
+
+        assertTrue(Files.exists(image));
+        assertTrue(Files.exists(variant));
+        assertFalse(Files.exists(stale));
+        assertEquals("stale", Files.readString(archive.resolve("products/p1/b_p1.png")));
+        assertFalse(Files.exists(gone.getParent()));
+        assertEquals(2, report.getFiles());
+    }
+
+    @Test
+    @DisplayName("Should leave a blob trashed within the grace period to the collection that trashed it")
+    void run_RecentlyTrashed() throws IOException {
+        write(layout.blobTarget(ORPHAN), "orphan", true);
+        assertTrue(blobStore.getStorage().move("blobs/" + ORPHAN, BlobStore.TRASH + ORPHAN));
+        Path trashed = uploads.resolve(BlobStore.TRASH + ORPHAN);
+
+        OrphanCollector.Report report = collector("").run();
+
+        // Uploaded long ago, but its time in the trash starts now
+        assertTrue(Files.exists(trashed));
+        assertEquals(0, report.getFiles());
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(Media.class));
+    }
+
+    @Test
+    @DisplayName("Should skip the scheduled run while another instance holds the collection lease")
+    void scheduledRun_LeaseHeldElsewhere() throws IOException {
+        Path orphan = write(layout.blobTarget(ORPHAN), "orphan", true);
+        when(leases.tryAcquire("media-gc", Duration.ofHours(1))).thenReturn(false);
+
+        collector("").scheduledRun();
+
+        assertTrue(Files.exists(orphan));
+        verifyNoInteractions(mongoTemplate);
+    }
+}
@@ -0,0 +1,99 @@
+package com.zone01.media.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageMigrationTest {
+    private static final String BLOB = "ab".repeat(32) + ".jpg";
+
+    @TempDir
+    Path uploads;
+
+    private StorageLayout layout;
+    private StorageMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        layout = new StorageLayout(uploads.toString(), "sharded");
+        migration = new StorageMigration(layout, true, 100);
+    }
+
+    @Test
+    @DisplayName("Should find files in the flat layout until they are moved to the sharded one")
+    void run_MovesBlobsAndProducts() throws IOException {
+        Path flatBlob = Files.writeString(Files.createDirectories(uploads.resolve("blobs")).resolve(BLOB), "blob");
+        Path flatImage = Files.writeString(Files.createDirectories(uploads.resolve("p1")).resolve("a_p1.png"), "image");
+        assertEquals(flatBlob, layout.blob(BLOB));
+        assertEquals(flatImage.getParent(), layout.productDirectory("p1"));
+
+        migration.run();
+
+        Path blob = uploads.resolve("blobs/ab/ab/" + BLOB);
+        assertEquals(blob, layout.blob(BLOB));
+        assertEquals("blob", Files.readString(blob));
+        assertFalse(Files.exists(flatBlob));
+
+        Path directory = layout.productDirectory("p1");
+        assertEquals(layout.shardedProductDirectory("p1"), directory);
+        assertEquals("image", Files.readString(directory.resolve("a_p1.png")));
+        assertFalse(Files.exists(flatImage.getParent()));
+    }
+
+    @Test
+    @DisplayName("Should merge a product directory that exists in both layouts")
+    void run_MergesProduct() throws IOException {
+        Files.writeString(Files.createDirectories(uploads.resolve("p1")).resolve("old_p1.png"), "old");
+        Path sharded = Files.createDirectories(layout.shardedProductDirectory("p1"));
+        Files.writeString(sharded.resolve("new_p1.png"), "new");
+
+        migration.run();
+
+        assertTrue(Files.exists(sharded.resolve("old_p1.png")));
+        assertTrue(Files.exists(sharded.resolve("new_p1.png")));
+        assertFalse(Files.exists(uploads.resolve("p1")));
+    }
+
+    @Test
+    @DisplayName("Should stop after a batch and leave the rest for the next run")
+    void run_Batch() throws IOException {
+        migration = new StorageMigration(layout, true, 1);
+        Path blobs = Files.createDirectories(uploads.resolve("blobs"));
+        Files.writeString(blobs.resolve("ab".repeat(32) + ".jpg"), "one");
+        Files.writeString(blobs.resolve("cd".repeat(32) + ".jpg"), "two");
+
+        migration.run();
+        try (var flat = Files.list(blobs)) {
+            assertEquals(1, flat.filter(Files::isRegularFile).count());
+        }
+        migration.run();
+        try (var flat = Files.list(blobs)) {
+            assertEquals(0, flat.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should leave flat-layout files where they are when the migration is turned off")
+    void run_Disabled() throws IOException {
+        migration = new StorageMigration(layout, false, 100);
+        Path flatImage = Files.writeString(Files.createDirectories(uploads.resolve("p1")).resolve("a_p1.png"), "image");
+
+        migration.run();
+
+        assertTrue(Files.exists(flatImage));
+    }
+
+    @Test
+    @DisplayName("Should not resolve product ids or names leading elsewhere")
+    void resolve_Invalid() {
+        assertNull(layout.productDirectory("../p1"));
+        assertNull(layout.productDirectory(".."));
+    }
+}
@@ -0,0 +1,162 @@
+package com.zone01.media.variant;
+
+import com.mongodb.client.result.UpdateResult;
+import com.zone01.media.media.Media;
+import com.zone01.media.media.MediaRepository;
+import com.zone01.media.service.BlobStore;
+import com.zone01.media.service.FileServices;
+import com.zone01.media.service.StorageLayout;
+import com.zone01.media.storage.LayoutFileSystemStorage;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VariantPipelineTest {
+
+    @TempDir
+    Path uploads;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MediaRepository mediaRepository;
+
+    private VariantPipeline variantPipeline;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        StorageLayout layout = new StorageLayout(uploads.toString(), "flat");
+        BlobStore blobStore = new BlobStore(mongoTemplate, layout, new LayoutFileSystemStorage(layout), 1, 3600);
+        FileServices fileServices = new FileServices(2097152, 5, 10485760, List.of("image/png"), layout, mediaRepository, blobStore);
+        variantPipeline = new VariantPipeline(mongoTemplate, fileServices, blobStore, 1, 10, 0.8f, 40_000_000, 3);
+        Files.createDirectories(uploads.resolve("p1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        variantPipeline.stop();
+    }
+
+    @Test
+    @DisplayName("Should write the variants smaller than the image and record them")
+    void submit_GeneratesVariants() throws IOException {
+        ImageIO.write(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "png", uploads.resolve("p1/a_p1.png").toFile());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Media.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertTrue(variantPipeline.submit(Media.builder().id("m1").productId("p1").imagePath("a_p1.png").build()));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, timeout(5000)).updateFirst(any(Query.class), update.capture(), eq(Media.class));
+        Map<?, ?> variants = (Map<?, ?>) update.getValue().getUpdateObject().get("$set", Document.class).get("variants");
+        assertEquals(Map.of("thumb", "a_p1-thumb.jpg", "medium", "a_p1-medium.jpg"), variants);
+
+        BufferedImage thumb = ImageIO.read(uploads.resolve("p1/a_p1-thumb.jpg").toFile());
+        assertEquals(200, thumb.getWidth());
+        assertEquals(100, thumb.getHeight());
+        assertFalse(Files.exists(uploads.resolve("p1/a_p1-large.jpg")));
+    }
+
+    @Test
+    @DisplayName("Should drop the variants of an image replaced while they were generated")
+    void submit_Replaced() throws IOException {
+        ImageIO.write(new BufferedImage(400, 400, BufferedImage.TYPE_INT_ARGB), "png", uploads.resolve("p1/b_p1.png").toFile());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Media.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        variantPipeline.submit(Media.builder().id("m2").productId("p1").imagePath("b_p1.png").build());
+
+        verify(mongoTemplate, timeout(5000)).updateFirst(any(Query.class), any(Update.class), eq(Media.class));
+        // The PNG keeps its alpha, and is deleted once nothing references it
+        Path thumb = uploads.resolve("p1/b_p1-thumb.png");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(thumb) && System.currentTimeMillis() < deadline) Thread.onSpinWait();
+        assertFalse(Files.exists(thumb));
+    }
+
+    @Test
+    @DisplayName("Should put blob variants next to the blob, named after its digest")
+    void submit_Blob() throws IOException {
+        String blob = "a".repeat(64) + ".png";
+        Files.createDirectories(uploads.resolve("blobs"));
+        ImageIO.write(new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB), "png", uploads.resolve("blobs/" + blob).toFile());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Media.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        variantPipeline.submit(Media.builder().id("m3").productId("p1").imagePath("c_p1.png").blob(blob).build());
+
+        verify(mongoTemplate, timeout(5000)).updateFirst(any(Query.class), any(Update.class), eq(Media.class));
+        assertTrue(Files.exists(uploads.resolve("blobs/" + "a".repeat(64) + "-thumb.jpg")));
+    }
+
+    @Test
+    @DisplayName("Should count a failed generation on the media instead of leaving it for the sweep as new")
+    void submit_RecordsFailure() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Media.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        variantPipeline.submit(Media.builder().id("m4").productId("p1").imagePath("d_p1.png").build());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, timeout(5000).times(2)).updateFirst(any(Query.class), update.capture(), eq(Media.class));
+        assertEquals(1, update.getAllValues().get(1).getUpdateObject().get("$inc", Document.class).get(Media.VARIANT_FAILURES));
+    }
+
+    @Test
+    @DisplayName("Should only sweep media with generation attempts left")
+    void sweep_SkipsExhausted() {
+        variantPipeline.sweep();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Media.class));
+        Document failures = query.getValue().getQueryObject().get(Media.VARIANT_FAILURES, Document.class);
+        assertEquals(new Document("$gte", 3), failures.get("$not"));
+    }
+
+    @Test
+    @DisplayName("Should queue a replaced image even while the previous one is still queued")
+    void submit_ReplacedWhileQueued() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Media.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        variantPipeline.submit(Media.builder().id("m5").productId("p1").imagePath("old_p1.png").build());
+        variantPipeline.submit(Media.builder().id("m5").productId("p1").imagePath("new_p1.png").build());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, timeout(5000).times(2)).updateFirst(query.capture(), any(Update.class), eq(Media.class));
+        assertEquals(List.of("old_p1.png", "new_p1.png"),
+                query.getAllValues().stream().map(q -> q.getQueryObject().get("imagePath")).toList());
+    }
+
+    @Test
+    @DisplayName("Should parse variant names regardless of case")
+    void parse() {
+        assertEquals(ImageVariant.THUMB, ImageVariant.parse("Thumb"));
+        assertThrows(IllegalArgumentException.class, () -> ImageVariant.parse("huge"));
+    }
+}
@@ -0,0 +1,30 @@
+package com.buy01.order.changes;
+
+import com.buy01.common.changes.ChangeStreamPublisher;
+import com.buy01.common.lease.Leases;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * Publishes the order collection's writes on {@value #TOPIC}, keyed by order id, from whichever instance holds its lease.
+ */
+@Configuration
+public class ChangeStreamConfig {
+    public static final String TOPIC = "order-changes";
+
+    @Bean
+    public ChangeStreamPublisher changeStreamPublisher(
+            MongoTemplate mongoTemplate,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            Leases leases,
+            @Value("${order.change-stream.enabled:true}") boolean enabled,
+            @Value("${order.change-stream.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${order.change-stream.retry-delay-ms:5000}") long retryDelayMs
+    ) {
+        return new ChangeStreamPublisher(mongoTemplate, kafkaTemplate, leases,
+                new ChangeStreamPublisher.Settings("order", TOPIC, enabled, flushIntervalMs, retryDelayMs));
+    }
+}
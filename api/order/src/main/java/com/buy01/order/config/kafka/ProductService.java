@@ -1,6 +1,7 @@
 package com.buy01.order.config.kafka;
 
 import com.buy01.order.model.dto.ProductDTO;
+import com.buy01.order.model.dto.ReservationDTO;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.buy01.order.model.Response;
@@ -27,6 +28,9 @@ public class ProductService {
     private static final long REPLY_TIMEOUT_SECONDS = 30;
     private static final String GET_PRODUCTS_REQUEST_BY_ORDER = "get-products-request-by-order";
     private static final String UPDATE_PRODUCTS_REQUEST_BY_ORDER = "update-products-request-by-order";
+    private static final String RESERVE_PRODUCTS_REQUEST_BY_ORDER = "reserve-products-request-by-order";
+    private static final String COMMIT_RESERVATION_REQUEST_BY_ORDER = "commit-reservation-request-by-order";
+    private static final String RELEASE_RESERVATION_REQUEST_BY_ORDER = "release-reservation-request-by-order";
 
     public Response<List<ProductDTO>> getProducts(List<String> productIds) {
         try {
@@ -48,7 +52,48 @@ public class ProductService {
         }
     }
 
-    private Response<List<ProductDTO>> handleKafkaRequest(ProducerRecord<String, Object> record) throws Exception {
+    /**
+     * Holds stock for the given products (productId -> quantity) until the order is confirmed or cancelled.
+     */
+    public Response<ReservationDTO> reserveProducts(Map<String, Integer> products) {
+        try {
+            ProducerRecord<String, Object> record = new ProducerRecord<>(RESERVE_PRODUCTS_REQUEST_BY_ORDER, products);
+            return handleReservationRequest(record);
+        } catch (Exception e) {
+            log.error("Error in reserveProducts for products: {}", products, e);
+            return Response.badRequest(e.getMessage());
+        }
+    }
+
+    public Response<ReservationDTO> commitReservation(String reservationId) {
+        try {
+            ProducerRecord<String, Object> record = new ProducerRecord<>(COMMIT_RESERVATION_REQUEST_BY_ORDER, reservationId);
+            return handleReservationRequest(record);
+        } catch (Exception e) {
+            log.error("Error in commitReservation for reservation: {}", reservationId, e);
+            return Response.badRequest(e.getMessage());
+        }
+    }
+
+    public Response<ReservationDTO> releaseReservation(String reservationId) {
+        try {
+            ProducerRecord<String, Object> record = new ProducerRecord<>(RELEASE_RESERVATION_REQUEST_BY_ORDER, reservationId);
+            return handleReservationRequest(record);
+        } catch (Exception e) {
+            log.error("Error in releaseReservation for reservation: {}", reservationId, e);
+            return Response.badRequest(e.getMessage());
+        }
+    }
+
+    private Response<ReservationDTO> handleReservationRequest(ProducerRecord<String, Object> record) throws Exception {
+        Response<?> productResponse = sendAndReceive(record);
+        if (productResponse.isError()) return Response.mapper(productResponse);
+
+        ReservationDTO reservation = jacksonObjectMapper.convertValue(productResponse.getData(), ReservationDTO.class);
+        return Response.build(reservation, productResponse.getMessage(), HttpStatus.valueOf(productResponse.getStatus()));
+    }
+
+    private Response<?> sendAndReceive(ProducerRecord<String, Object> record) throws Exception {
         record.headers().add("X-Correlation-ID", UUID.randomUUID().toString().getBytes());
         record.headers().add("X-Correlation-Source", "product".getBytes());
 
@@ -58,6 +103,11 @@ public class ProductService {
 
         Response<?> productResponse = replyFuture.get(REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS).value();
         log.info("Response Coming from product service: ====== {} ======", productResponse);
+        return productResponse;
+    }
+
+    private Response<List<ProductDTO>> handleKafkaRequest(ProducerRecord<String, Object> record) throws Exception {
+        Response<?> productResponse = sendAndReceive(record);
 
         return Response.when(
                 productResponse.isError() && productResponse.getStatus() != 404,
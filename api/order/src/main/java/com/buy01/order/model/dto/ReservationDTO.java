@@ -0,0 +1,21 @@
+package com.buy01.order.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationDTO {
+    private String id;
+    private Map<String, Integer> items;
+    private String status;
+    private Date createdAt;
+    private Date expiresAt;
+}
@@ -0,0 +1,144 @@
+package com.zone01.product.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.product.model.CatalogFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Reads an import file one row at a time and turns each row into named text fields,
+ * so NDJSON and CSV rows go through the same validation.
+ * CSV files need a header line naming the columns; quoted fields may contain commas, doubled quotes and
+ * line breaks (as written by the catalog export), so a CSV row may span several lines.
+ * Rows are reported by the line they start on.
+ */
+class CatalogRowReader {
+    private final BufferedReader reader;
+    private final CatalogFormat format;
+    private final ObjectMapper objectMapper;
+    private List<String> header;
+    private long line;
+
+    CatalogRowReader(BufferedReader reader, CatalogFormat format, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return the next non-blank row, or {@code null} at the end of the file
+     */
+    Row next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) continue;
+            if (format == CatalogFormat.NDJSON) return fromJson(text);
+
+            long start = line;
+            text = readCsvRecord(text);
+            if (text == null) return Row.invalid(start, "Quoted field is not closed before the end of the file");
+            if (header == null) {
+                header = splitCsv(text).stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+                continue;
+            }
+            return fromCsv(start, text);
+        }
+        return null;
+    }
+
+    /**
+     * Joins the following lines while a quoted field is still open; a doubled quote toggles twice and
+     * leaves the state unchanged, so counting quotes per line is enough.
+     *
+     * @return the whole record, or {@code null} when the file ends inside a quoted field
+     */
+    private String readCsvRecord(String first) throws IOException {
+        boolean quoted = hasOddQuotes(first);
+        if (!quoted) return first;
+
+        StringBuilder record = new StringBuilder(first);
+        while (quoted) {
+            String more = reader.readLine();
+            if (more == null) return null;
+            line++;
+            record.append('\n').append(more);
+            quoted ^= hasOddQuotes(more);
+        }
+        return record.toString();
+    }
+
+    private static boolean hasOddQuotes(String text) {
+        boolean odd = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') odd = !odd;
+        }
+        return odd;
+    }
+
+    private Row fromJson(String text) {
+        try {
+            JsonNode node = objectMapper.readTree(text);
+            if (!node.isObject()) return Row.invalid(line, "Row must be a JSON object");
+
+            Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                if (!field.getValue().isNull()) fields.put(field.getKey().toLowerCase(Locale.ROOT), field.getValue().asText());
+            });
+            return new Row(line, fields, null);
+        } catch (JsonProcessingException e) {
+            return Row.invalid(line, "Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Row fromCsv(long start, String text) {
+        List<String> values = splitCsv(text);
+        if (values.size() != header.size()) {
+            return Row.invalid(start, "Expected " + header.size() + " columns but found " + values.size());
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).isEmpty()) fields.put(header.get(i), values.get(i));
+        }
+        return new Row(start, fields, null);
+    }
+
+    static List<String> splitCsv(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    record Row(long line, Map<String, String> fields, String error) {
+        static Row invalid(long line, String error) {
+            return new Row(line, Map.of(), error);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.zone01.product.bulk;
+
+import com.zone01.product.model.CatalogFormat;
+import com.zone01.product.model.dto.ImportJobDTO;
+import com.zone01.product.model.dto.ImportRowErrorDTO;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one background import. Counters are updated by the worker and read by the progress endpoint.
+ */
+class ImportJob {
+    @Getter
+    private final String id;
+    @Getter
+    private final String userId;
+    @Getter
+    private final CatalogFormat format;
+    private final int maxErrors;
+    private final Date createdAt = new Date();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<ImportRowErrorDTO> errors = new ArrayList<>();
+    @Getter
+    private volatile ImportStatus status = ImportStatus.QUEUED;
+    private volatile String message;
+    private volatile Date finishedAt;
+
+    ImportJob(String id, String userId, CatalogFormat format, int maxErrors) {
+        this.id = id;
+        this.userId = userId;
+        this.format = format;
+        this.maxErrors = maxErrors;
+    }
+
+    void start() {
+        status = ImportStatus.RUNNING;
+    }
+
+    void complete() {
+        finish(ImportStatus.COMPLETED, null);
+    }
+
+    void fail(String reason) {
+        finish(ImportStatus.FAILED, reason);
+    }
+
+    void rowProcessed() {
+        processed.incrementAndGet();
+    }
+
+    void rowsImported(long count) {
+        imported.addAndGet(count);
+    }
+
+    /**
+     * Counts a rejected row; only the first {@code maxErrors} rows keep their details.
+     */
+    synchronized void rowFailed(long row, List<String> rowErrors) {
+        failed.incrementAndGet();
+        if (errors.size() < maxErrors) errors.add(new ImportRowErrorDTO(row, rowErrors));
+    }
+
+    synchronized ImportJobDTO toDTO() {
+        return ImportJobDTO.builder()
+                .id(id)
+                .status(status.name())
+                .format(format.name())
+                .processed(processed.get())
+                .imported(imported.get())
+                .failed(failed.get())
+                .errors(List.copyOf(errors))
+                .errorsTruncated(failed.get() > errors.size())
+                .message(message)
+                .createdAt(createdAt)
+                .finishedAt(finishedAt)
+                .build();
+    }
+
+    private void finish(ImportStatus finalStatus, String reason) {
+        message = reason;
+        finishedAt = new Date();
+        status = finalStatus;
+    }
+}
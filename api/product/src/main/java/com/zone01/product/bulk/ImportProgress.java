@@ -0,0 +1,28 @@
+package com.zone01.product.bulk;
+
+import com.zone01.product.model.dto.ImportJobDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * The last progress saved by the instance running an import, so a poll landing on any instance
+ * can answer. Mongo drops it a day after its last update, like the in-memory job.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "product_imports")
+class ImportProgress {
+    @Id
+    private String id;
+    private String userId;
+    private ImportJobDTO job;
+    @Indexed(name = "import_expiry", expireAfter = "1d")
+    private Date updatedAt;
+}
@@ -0,0 +1,8 @@
+package com.zone01.product.bulk;
+
+public enum ImportStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,37 @@
+package com.zone01.product.bulk;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ImportJobDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/v1/product/import")
+public class ProductImportController {
+    private final ProductImportService productImportService;
+
+    @PostMapping()
+    public ResponseEntity<Response<ImportJobDTO>> startImport(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request
+    ) throws IOException {
+        Response<ImportJobDTO> response = productImportService.startImport(request.getInputStream(), format, request);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<Response<ImportJobDTO>> getImport(@PathVariable String jobId, HttpServletRequest request) {
+        Response<ImportJobDTO> response = productImportService.getImport(jobId, request);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+}
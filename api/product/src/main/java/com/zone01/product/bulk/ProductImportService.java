@@ -0,0 +1,253 @@
+package com.zone01.product.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.bulk.BulkWriteError;
+import com.zone01.product.config.kafka.AccessValidation;
+import com.zone01.product.model.CatalogFormat;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.CreateProductDTO;
+import com.zone01.product.model.dto.ImportJobDTO;
+import com.zone01.product.model.dto.UserDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsChangedEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Imports a seller's products from an NDJSON or CSV upload. The upload is spooled to a temporary file,
+ * then a background worker validates it row by row and inserts valid rows in unordered bulk chunks,
+ * so one bad row only costs that row. Progress and per-row errors are kept in memory for a day,
+ * and saved to Mongo when the job starts, after each chunk and when it ends, so progress can be
+ * polled on any instance.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper jacksonObjectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final long maxBytes;
+    private final int maxErrors;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, ImportJob> jobs = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+
+    public ProductImportService(
+            MongoTemplate mongoTemplate,
+            ObjectMapper jacksonObjectMapper,
+            Validator validator,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${product.import.chunk-size:1000}") int chunkSize,
+            @Value("${product.import.max-bytes:52428800}") long maxBytes,
+            @Value("${product.import.max-errors:1000}") int maxErrors,
+            @Value("${product.import.workers:2}") int workers,
+            @Value("${product.import.queue-capacity:10}") int queueCapacity
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.jacksonObjectMapper = jacksonObjectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxBytes = maxBytes;
+        this.maxErrors = maxErrors;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    public Response<ImportJobDTO> startImport(InputStream body, String format, HttpServletRequest request) throws IOException {
+        UserDTO currentUser = AccessValidation.getCurrentUser(request);
+        CatalogFormat catalogFormat = CatalogFormat.from(format);
+
+        Path file = Files.createTempFile("product-import-", "." + catalogFormat.getExtension());
+        if (!spool(body, file)) {
+            Files.deleteIfExists(file);
+            return Response.badRequest("Import file exceeds " + maxBytes + " bytes");
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), currentUser.getId(), catalogFormat, maxErrors);
+        try {
+            executor.execute(() -> run(job, file));
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(file);
+            return Response.build(null, "Too many imports in progress, try again later", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        jobs.put(job.getId(), job);
+        saveProgress(job);
+
+        log.info("====== Import {} queued for user {} ======", job.getId(), currentUser.getId());
+        return Response.build(job.toDTO(), "Import started", HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Answered from memory on the instance running the import, from the last saved progress elsewhere.
+     */
+    public Response<ImportJobDTO> getImport(String jobId, HttpServletRequest request) {
+        UserDTO currentUser = AccessValidation.getCurrentUser(request);
+        if (currentUser == null) return Response.unauthorized("Authentication is required to read an import");
+
+        ImportJob job = jobs.getIfPresent(jobId);
+        ImportProgress progress = job != null
+                ? new ImportProgress(job.getId(), job.getUserId(), job.toDTO(), null)
+                : mongoTemplate.findById(jobId, ImportProgress.class);
+        if (progress == null) return Response.notFound("Import not found");
+        if (!progress.getUserId().equals(currentUser.getId()))
+            return Response.forbidden("You're not authorized to perform this action.");
+        return Response.ok(progress.getJob(), "Successfully retrieved import progress");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void run(ImportJob job, Path file) {
+        job.start();
+        saveProgress(job);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CatalogRowReader rows = new CatalogRowReader(reader, job.getFormat(), jacksonObjectMapper);
+            Map<Long, Products> chunk = new LinkedHashMap<>();
+
+            CatalogRowReader.Row row;
+            while ((row = rows.next()) != null) {
+                job.rowProcessed();
+                List<String> rowErrors = new ArrayList<>();
+                CreateProductDTO product = null;
+                if (row.error() != null) rowErrors.add(row.error());
+                else product = toProduct(row.fields(), rowErrors);
+
+                if (!rowErrors.isEmpty()) {
+                    job.rowFailed(row.line(), rowErrors);
+                    continue;
+                }
+                chunk.put(row.line(), product.toProducts(job.getUserId()));
+                if (chunk.size() >= chunkSize) insertChunk(job, chunk);
+            }
+            if (!chunk.isEmpty()) insertChunk(job, chunk);
+
+            job.complete();
+            log.info("====== Import {} completed ======", job.getId());
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            log.error("====== Import {} failed: {} ======", job.getId(), e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("====== Could not delete import file {} ======", file);
+            }
+            saveProgress(job);
+        }
+    }
+
+    /**
+     * Inserts the chunk with one unordered bulk write; rows rejected by Mongo are reported by their line.
+     */
+    private void insertChunk(ImportJob job, Map<Long, Products> chunk) {
+        List<Long> lines = new ArrayList<>(chunk.keySet());
+        List<Products> products = new ArrayList<>(chunk.values());
+        // Ids are assigned up front so they are known for the change event
+        products.forEach(product -> product.setId(new ObjectId().toHexString()));
+
+        Set<Integer> rejected = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Products.class)
+                    .insert(products)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                rejected.add(error.getIndex());
+                job.rowFailed(lines.get(error.getIndex()), List.of(error.getMessage()));
+            }
+        }
+
+        List<String> insertedIds = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            if (!rejected.contains(i)) insertedIds.add(products.get(i).getId());
+        }
+        job.rowsImported(insertedIds.size());
+        eventPublisher.publishEvent(ProductsChangedEvent.of(insertedIds));
+        chunk.clear();
+        saveProgress(job);
+    }
+
+    /**
+     * A failed save only leaves other instances with older progress, so it never fails the import.
+     */
+    private void saveProgress(ImportJob job) {
+        try {
+            mongoTemplate.save(new ImportProgress(job.getId(), job.getUserId(), job.toDTO(), new Date()));
+        } catch (RuntimeException e) {
+            log.warn("====== Could not save the progress of import {}: {} ======", job.getId(), e.getMessage());
+        }
+    }
+
+    private CreateProductDTO toProduct(Map<String, String> fields, List<String> rowErrors) {
+        CreateProductDTO product = CreateProductDTO.builder()
+                .name(fields.get("name"))
+                .description(fields.get("description"))
+                .price(parse(fields.get("price"), Double::valueOf, "Price must be a number", rowErrors))
+                .quantity(parse(fields.get("quantity"), Integer::valueOf, "Quantity must be a whole number", rowErrors))
+                .build();
+
+        validator.validate(product).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .forEach(rowErrors::add);
+        return product;
+    }
+
+    private static <T> T parse(String value, Function<String, T> parser, String error, List<String> rowErrors) {
+        if (value == null) return null;
+        try {
+            return parser.apply(value.trim());
+        } catch (NumberFormatException e) {
+            rowErrors.add(error);
+            return null;
+        }
+    }
+
+    /**
+     * Copies the request body to disk, giving up once it grows past {@code maxBytes}.
+     */
+    private boolean spool(InputStream body, Path file) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) return false;
+                out.write(buffer, 0, read);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package com.zone01.product.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zone01.product.model.dto.ProductDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsChangedEvent;
+import com.zone01.product.product.ProductsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of active, non-deleted products.
+ * Local writes invalidate entries immediately and are broadcast on Kafka so other instances drop them too.
+ */
+@Component
+@Slf4j
+public class ProductCache {
+    public static final String INVALIDATION_TOPIC = "product-cache-invalidation";
+
+    private final ProductsRepository productsRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Cache<String, ProductDTO> cache;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(
+            ProductsRepository productsRepository,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${product.cache.max-size:10000}") long maxSize,
+            @Value("${product.cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.productsRepository = productsRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+
+    public Optional<ProductDTO> get(String productId) {
+        return Optional.ofNullable(cache.get(productId, id ->
+                productsRepository.findByIdAndActiveAndDeleted(id, true, false)
+                        .map(Products::toProductDTO)
+                        .orElse(null)));
+    }
+
+    /**
+     * Cached product without loading it on a miss, for callers that must not block.
+     */
+    public Optional<ProductDTO> getIfPresent(String productId) {
+        return Optional.ofNullable(cache.getIfPresent(productId));
+    }
+
+    /**
+     * Returns the cached products in request order; misses are loaded together with a single $in query.
+     * A bulk load is not atomic with invalidations, so it is only kept when no invalidation ran meanwhile.
+     */
+    public List<ProductDTO> getAll(Collection<String> productIds) {
+        Set<String> ids = new LinkedHashSet<>(productIds);
+        Map<String, ProductDTO> products = new HashMap<>(cache.getAllPresent(ids));
+        List<String> missing = ids.stream().filter(id -> !products.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            long generation = invalidations.get();
+            Map<String, ProductDTO> loaded = productsRepository.findByActiveAndDeletedAndIdIn(true, false, missing).stream()
+                    .map(Products::toProductDTO)
+                    .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+            products.putAll(loaded);
+            cache.putAll(loaded);
+            // Invalidations bump the generation before removing entries, so a load that may have read
+            // a row older than one of them is either removed by it or dropped here
+            if (invalidations.get() != generation) cache.invalidateAll(loaded.keySet());
+        }
+        return productIds.stream()
+                .distinct()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        if (event.productIds().isEmpty()) return;
+
+        invalidate(event.productIds());
+        kafkaTemplate.send(INVALIDATION_TOPIC, new CacheInvalidation(instanceId, event.productIds()))
+                .exceptionally(e -> {
+                    log.error("====== Failed to broadcast cache invalidation: {} ======", e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Applies an invalidation received from another instance; our own broadcasts are skipped.
+     *
+     * @return whether the invalidation came from another instance and was applied
+     */
+    public boolean onRemoteInvalidation(CacheInvalidation invalidation) {
+        if (instanceId.equals(invalidation.source()) || invalidation.productIds() == null) return false;
+        invalidate(invalidation.productIds());
+        return true;
+    }
+
+    public void invalidate(Collection<String> productIds) {
+        invalidations.incrementAndGet();
+        cache.invalidateAll(productIds);
+    }
+
+    public record CacheInvalidation(String source, List<String> productIds) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.zone01.product.cache;
+
+import com.zone01.product.model.dto.ProductSearchCriteria;
+import com.zone01.product.product.ProductFields;
+import com.zone01.product.product.ProductSearchQueries;
+import com.zone01.product.product.SearchSort;
+
+import java.util.*;
+
+/**
+ * Canonical form of a search so equivalent requests share a cache entry: text filters are normalized by the
+ * same {@link ProductSearchQueries} helpers the query is built with, list filters are de-duplicated and sorted, blanks are dropped
+ * and sort keys are resolved through {@link SearchSort}.
+ * {@code shape} names the filters in use and is only used to tag metrics.
+ */
+public record SearchKey(String shape, String filter, String paging) {
+
+    public static SearchKey of(ProductSearchCriteria criteria) {
+        Map<String, Object> filters = new TreeMap<>();
+        putValue(filters, "keyword", ProductSearchQueries.matchText(criteria.getKeyword()));
+        putValue(filters, "name", ProductSearchQueries.matchText(criteria.getName()));
+        putValue(filters, "price", ProductSearchQueries.text(criteria.getPrice()));
+        putValue(filters, "quantity", ProductSearchQueries.text(criteria.getQuantity()));
+        putValue(filters, "priceMin", criteria.getPriceMin());
+        putValue(filters, "priceMax", criteria.getPriceMax());
+        putValue(filters, "quantityMin", criteria.getQuantityMin());
+        putValue(filters, "quantityMax", criteria.getQuantityMax());
+        putList(filters, "userIds", criteria.getUserIds());
+        putList(filters, "categoryIds", criteria.getCategoryIds());
+        putList(filters, "tags", criteria.getTags());
+
+        SearchSort sort = SearchSort.from(criteria.getSortBy());
+        String paging = sort + ":" + sort.direction(criteria.getSortOrder())
+                + "|" + criteria.getPage() + "/" + criteria.getSize();
+
+        String shape = filters.isEmpty() ? "all" : String.join("+", filters.keySet());
+        return new SearchKey(shape, filters.toString(), paging);
+    }
+
+    /**
+     * Sparse fieldsets share the version of their search but not its cached pages.
+     */
+    public SearchKey withFields(ProductFields fields) {
+        return fields.isAll() ? this : new SearchKey(shape, filter, paging + "|" + fields.key());
+    }
+
+    private static void putValue(Map<String, Object> filters, String name, Object value) {
+        if (value != null) filters.put(name, value);
+    }
+
+    private static void putList(Map<String, Object> filters, String name, List<String> values) {
+        if (values == null || values.isEmpty()) return;
+        filters.put(name, new TreeSet<>(values));
+    }
+}
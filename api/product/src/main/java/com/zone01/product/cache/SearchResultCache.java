@@ -0,0 +1,86 @@
+package com.zone01.product.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zone01.product.model.dto.ProductDTO;
+import com.zone01.product.product.CatalogVersion;
+import com.zone01.product.product.ProductsChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of search results keyed by {@link SearchKey}.
+ * Any product write clears it, the TTL only bounds staleness of writes made by other instances
+ * whose invalidation has not arrived yet. Concurrent misses on one key run the query once,
+ * the other callers wait for that result.
+ */
+@Component
+public class SearchResultCache {
+    private static final String REQUESTS_METRIC = "product.search.cache.requests";
+
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, CatalogVersion> versions;
+    private final Cache<String, Page<ProductDTO>> pages;
+
+    public SearchResultCache(
+            MeterRegistry meterRegistry,
+            @Value("${product.search-cache.max-size:2000}") long maxSize,
+            @Value("${product.search-cache.ttl-seconds:30}") long ttlSeconds
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "product-search-versions");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "product-search-pages");
+    }
+
+    public CatalogVersion getVersion(SearchKey key, Supplier<CatalogVersion> loader) {
+        return get(versions, "version", key, key.filter(), loader);
+    }
+
+    /**
+     * Pages are keyed by the version they were read at, so a page can never be served with another result's ETag.
+     */
+    public Page<ProductDTO> getPage(SearchKey key, CatalogVersion version, Supplier<Page<ProductDTO>> loader) {
+        return get(pages, "page", key, key.filter() + "|" + key.paging() + "|" + version.eTag(), loader);
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        versions.invalidateAll();
+        pages.invalidateAll();
+    }
+
+    private <V> V get(Cache<String, V> cache, String type, SearchKey key, String cacheKey, Supplier<V> loader) {
+        boolean[] loaded = {false};
+        V value = cache.get(cacheKey, ignored -> {
+            loaded[0] = true;
+            return loader.get();
+        });
+        meterRegistry.counter(REQUESTS_METRIC,
+                "type", type,
+                "shape", key.shape(),
+                "result", loaded[0] ? "miss" : "hit"
+        ).increment();
+        return value;
+    }
+}
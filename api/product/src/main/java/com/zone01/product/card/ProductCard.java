@@ -0,0 +1,48 @@
+package com.zone01.product.card;
+
+import com.zone01.product.model.dto.ProductCardDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Listing view of a product, kept in step with product writes and media events so a listing page
+ * needs no call to the media service. Only active, non-deleted products are {@code listed}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "product_cards")
+@CompoundIndex(name = "cards_listed", def = "{'listed': 1, '_id': 1}")
+public class ProductCard {
+    @Id
+    private String id;
+    private String name;
+    private Double price;
+    private boolean inStock;
+    private boolean listed;
+    // Ordered by media id, i.e. upload order; listings only read the first one
+    private List<CardImage> images;
+
+    public ProductCardDTO toDTO() {
+        CardImage image = images == null || images.isEmpty() ? null : images.get(0);
+        return ProductCardDTO.builder()
+                .id(id)
+                .name(name)
+                .price(price)
+                .inStock(inStock)
+                .mediaId(image == null ? null : image.mediaId())
+                .imagePath(image == null ? null : image.imagePath())
+                .build();
+    }
+
+    public record CardImage(String mediaId, String imagePath) {
+    }
+}
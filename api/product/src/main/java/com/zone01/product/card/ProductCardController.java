@@ -0,0 +1,28 @@
+package com.zone01.product.card;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ProductCardDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/v1/product/cards")
+public class ProductCardController {
+    private final ProductCardService productCardService;
+
+    @GetMapping()
+    public ResponseEntity<Response<List<ProductCardDTO>>> getCards(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        Response<List<ProductCardDTO>> response = productCardService.getCards(page, size);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+}
@@ -0,0 +1,143 @@
+package com.zone01.product.card;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ProductCardDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Maintains {@link ProductCard}s: product fields are copied on every local product write,
+ * images come from the media service's {@link ProductMediaChange} events.
+ * Both sides only set their own fields, so they can arrive in any order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCardService {
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * One query on the {listed, _id} index, with only the first image read.
+     */
+    public Response<List<ProductCardDTO>> getCards(int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE)
+            return Response.badRequest("Page must be positive and size between 1 and " + MAX_PAGE_SIZE);
+
+        Query query = Query.query(Criteria.where("listed").is(true))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .skip((long) page * size)
+                .limit(size);
+        query.fields().include("name", "price", "inStock").slice("images", 1);
+
+        List<ProductCardDTO> cards = mongoTemplate.find(query, ProductCard.class).stream()
+                .map(ProductCard::toDTO)
+                .toList();
+        return Response.ok(cards, "Successfully retrieved products");
+    }
+
+    /**
+     * Fills the collection from the catalog the first time the service starts without product cards.
+     * Cards holding only images (media events arrived first) don't count.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (mongoTemplate.exists(Query.query(Criteria.where("listed").exists(true)), ProductCard.class)) return;
+
+        Query query = Query.query(Criteria.where("deleted").is(false));
+        query.fields().include("name", "price", "quantity", "active", "deleted");
+        query.cursorBatchSize(BUILD_BATCH_SIZE);
+
+        List<Products> batch = new ArrayList<>(BUILD_BATCH_SIZE);
+        int built = 0;
+        try (Stream<Products> products = mongoTemplate.stream(query, Products.class)) {
+            for (Iterator<Products> it = products.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == BUILD_BATCH_SIZE || !it.hasNext()) {
+                    BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductCard.class);
+                    batch.forEach(product -> ops.upsert(byId(product.getId()), cardUpdate(product)));
+                    ops.execute();
+                    built += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        log.info("====== Product cards built for {} products ======", built);
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        try {
+            refresh(event.productIds());
+        } catch (DataAccessException e) {
+            log.error("====== Failed to refresh product cards {}: {} ======", event.productIds(), e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the current product fields onto the cards; deleted or missing products lose their card.
+     */
+    public void refresh(Collection<String> productIds) {
+        if (productIds.isEmpty()) return;
+
+        Query query = Query.query(Criteria.where("_id").in(productIds).and("deleted").is(false));
+        query.fields().include("name", "price", "quantity", "active", "deleted");
+        Map<String, Products> current = new HashMap<>();
+        mongoTemplate.find(query, Products.class).forEach(product -> current.put(product.getId(), product));
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductCard.class);
+        productIds.forEach(id -> {
+            Products product = current.get(id);
+            if (product == null) ops.remove(byId(id));
+            else ops.upsert(byId(id), cardUpdate(product));
+        });
+        ops.execute();
+    }
+
+    /**
+     * Replaces or removes one image of a card. Replaying the same change leaves the card as it is.
+     */
+    public void onMediaChange(ProductMediaChange change) {
+        if (change.productId() == null || change.mediaId() == null) return;
+
+        mongoTemplate.updateFirst(byId(change.productId()),
+                new Update().pull("images", new Document("mediaId", change.mediaId())), ProductCard.class);
+        if (change.removed()) return;
+
+        mongoTemplate.upsert(byId(change.productId()),
+                new Update().push("images")
+                        .sort(Sort.by(Sort.Direction.ASC, "mediaId"))
+                        .each(new ProductCard.CardImage(change.mediaId(), change.imagePath())),
+                ProductCard.class);
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    private static Update cardUpdate(Products product) {
+        return new Update()
+                .set("name", product.getName())
+                .set("price", product.getPrice())
+                .set("inStock", product.getQuantity() != null && product.getQuantity() > 0)
+                .set("listed", product.isActive() && !product.isDeleted());
+    }
+}
@@ -0,0 +1,8 @@
+package com.zone01.product.card;
+
+/**
+ * A media file of a product added, replaced or removed, as published by the media service.
+ */
+public record ProductMediaChange(String productId, String mediaId, String imagePath, boolean removed) {
+    public static final String TOPIC = "product-media-changes";
+}
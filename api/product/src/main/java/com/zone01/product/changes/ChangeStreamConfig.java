@@ -0,0 +1,30 @@
+package com.zone01.product.changes;
+
+import com.buy01.common.changes.ChangeStreamPublisher;
+import com.buy01.common.lease.Leases;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * Publishes the products collection's writes on {@value #TOPIC}, keyed by product id, from whichever instance holds its lease.
+ */
+@Configuration
+public class ChangeStreamConfig {
+    public static final String TOPIC = "product-changes";
+
+    @Bean
+    public ChangeStreamPublisher changeStreamPublisher(
+            MongoTemplate mongoTemplate,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            Leases leases,
+            @Value("${product.change-stream.enabled:true}") boolean enabled,
+            @Value("${product.change-stream.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${product.change-stream.retry-delay-ms:5000}") long retryDelayMs
+    ) {
+        return new ChangeStreamPublisher(mongoTemplate, kafkaTemplate, leases,
+                new ChangeStreamPublisher.Settings("products", TOPIC, enabled, flushIntervalMs, retryDelayMs));
+    }
+}
@@ -0,0 +1,47 @@
+package com.zone01.product.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.zone01.product.model.dto.ProductDTO;
+import com.zone01.product.product.ProductFields;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+/**
+ * Writes only the selected {@link ProductFields} of each product in a listing response.
+ * Products are serialized through a named filter that keeps every field unless a listing asked for fewer,
+ * so other responses, exports and cache entries are unaffected.
+ */
+@RestControllerAdvice
+public class ProductFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Bean
+    public static Jackson2ObjectMapperBuilderCustomizer productFieldsFilter() {
+        return builder -> builder
+                .mixIn(ProductDTO.class, ProductFilterMixin.class)
+                .filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) return;
+        if (servletRequest.getServletRequest().getAttribute(ProductFields.ATTRIBUTE) instanceof ProductFields fields && !fields.isAll()) {
+            bodyContainer.setFilters(new SimpleFilterProvider()
+                    .addFilter(ProductFields.FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields.names())));
+        }
+    }
+
+    @JsonFilter(ProductFields.FILTER)
+    private abstract static class ProductFilterMixin {
+    }
+}
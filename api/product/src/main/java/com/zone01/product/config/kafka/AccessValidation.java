@@ -1,6 +1,7 @@
 package com.zone01.product.config.kafka;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -9,6 +10,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
 import org.springframework.kafka.requestreply.RequestReplyFuture;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -34,6 +36,9 @@ public class AccessValidation extends OncePerRequestFilter {
     private final ReplyingKafkaTemplate<String, String, Response<?>> replyingAuthKafkaTemplate;
     private static final long REPLY_TIMEOUT_SECONDS = 30;
     private static final String REQUEST_TOPIC = "auth-request-product";
+    // GETs are public, except these, which answer with the caller's own data
+    private static final List<String> AUTHENTICATED_GETS = List.of("/api/v1/product/import/*", "/api/v1/product/stats/sellers/*");
+    private static final AntPathMatcher PATHS = new AntPathMatcher();
 
     @Override
     protected void doFilterInternal(
@@ -42,7 +47,7 @@ public class AccessValidation extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
         log.info("====== Filtering request | url: {} | method: {} ======", request.getServletPath(), request.getMethod());
-        if ("GET".equals(request.getMethod())) {
+        if ("GET".equals(request.getMethod()) && !isAuthenticatedGet(request)) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -83,6 +88,10 @@ public class AccessValidation extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private static boolean isAuthenticatedGet(HttpServletRequest request) {
+        return AUTHENTICATED_GETS.stream().anyMatch(pattern -> PATHS.match(pattern, request.getServletPath()));
+    }
+
     public static UserDTO getCurrentUser(HttpServletRequest request) {
         return (UserDTO) request.getAttribute(USER);
     }
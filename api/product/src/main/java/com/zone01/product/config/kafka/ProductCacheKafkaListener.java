@@ -0,0 +1,43 @@
+package com.zone01.product.config.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.product.cache.ProductCache;
+import com.zone01.product.cache.SearchResultCache;
+import com.zone01.product.suggest.SuggestionIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCacheKafkaListener {
+    private final ObjectMapper jacksonObjectMapper;
+    private final ProductCache productCache;
+    private final SearchResultCache searchResultCache;
+    private final SuggestionIndex suggestionIndex;
+
+    /**
+     * Every instance needs every invalidation, so each one joins with its own consumer group.
+     * The group is named after the instance, so a restart rejoins it instead of leaving an orphan behind.
+     */
+    @KafkaListener(
+            topics = ProductCache.INVALIDATION_TOPIC,
+            groupId = "product-cache-${product.cache.instance-id:local}",
+            containerFactory = "requestKafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest"
+    )
+    public void handleInvalidation(ConsumerRecord<String, Object> record) {
+        try {
+            var invalidation = jacksonObjectMapper.convertValue(record.value(), ProductCache.CacheInvalidation.class);
+            if (productCache.onRemoteInvalidation(invalidation)) {
+                searchResultCache.invalidateAll();
+                suggestionIndex.refresh(invalidation.productIds());
+            }
+        } catch (IllegalArgumentException e) {
+            log.error("====== Ignoring malformed cache invalidation: {} ======", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.zone01.product.config.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.product.card.ProductCardService;
+import com.zone01.product.card.ProductMediaChange;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCardKafkaListener {
+    private final ObjectMapper jacksonObjectMapper;
+    private final ProductCardService productCardService;
+
+    /**
+     * Cards live in Mongo, so instances share one consumer group and each change is applied once.
+     */
+    @KafkaListener(
+            topics = ProductMediaChange.TOPIC,
+            groupId = "product-cards",
+            containerFactory = "requestKafkaListenerContainerFactory"
+    )
+    public void handleMediaChange(ConsumerRecord<String, Object> record) {
+        try {
+            productCardService.onMediaChange(jacksonObjectMapper.convertValue(record.value(), ProductMediaChange.class));
+        } catch (IllegalArgumentException e) {
+            log.error("====== Ignoring malformed media change: {} ======", e.getMessage());
+        }
+    }
+}
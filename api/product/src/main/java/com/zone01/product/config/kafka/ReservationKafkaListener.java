@@ -0,0 +1,88 @@
+package com.zone01.product.config.kafka;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ReservationDTO;
+import com.zone01.product.reservation.ReservationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationKafkaListener {
+    private static final String ORDER_RESPONSE = "product-response-to-order";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper jacksonObjectMapper;
+    private final ReservationService reservationService;
+
+    @KafkaListener(
+            topics = "reserve-products-request-by-order",
+            containerFactory = "requestKafkaListenerContainerFactory"
+    )
+    public void handleReserveRequest(ConsumerRecord<String, Object> record) {
+        log.info("====== Received reservation request from topic: {} ======", record.topic());
+        Response<ReservationDTO> response;
+        try {
+            Map<String, Integer> items = jacksonObjectMapper.convertValue(record.value(), new TypeReference<>() {});
+            response = reservationService.reserve(items);
+        } catch (IllegalArgumentException e) {
+            response = Response.badRequest("Invalid reservation request: " + e.getMessage());
+        }
+        reply(record, response);
+    }
+
+    @KafkaListener(
+            topics = "commit-reservation-request-by-order",
+            containerFactory = "requestKafkaListenerContainerFactory"
+    )
+    public void handleCommitRequest(ConsumerRecord<String, Object> record) {
+        log.info("====== Received reservation commit from topic: {} ======", record.topic());
+        reply(record, reservationService.commit(extractReservationId(record.value())));
+    }
+
+    @KafkaListener(
+            topics = "release-reservation-request-by-order",
+            containerFactory = "requestKafkaListenerContainerFactory"
+    )
+    public void handleReleaseRequest(ConsumerRecord<String, Object> record) {
+        log.info("====== Received reservation release from topic: {} ======", record.topic());
+        reply(record, reservationService.release(extractReservationId(record.value())));
+    }
+
+    private String extractReservationId(Object value) {
+        return Optional.ofNullable(jacksonObjectMapper.convertValue(value, String.class))
+                .map(id -> id.replace("\"", "").trim())
+                .orElse("");
+    }
+
+    private void reply(ConsumerRecord<String, Object> record, Response<?> response) {
+        String replyTopic = Optional.ofNullable(record.headers().lastHeader(KafkaHeaders.REPLY_TOPIC))
+                .map(header -> new String(header.value(), StandardCharsets.UTF_8))
+                .orElse(ORDER_RESPONSE);
+        byte[] correlationId = Optional.ofNullable(record.headers().lastHeader(KafkaHeaders.CORRELATION_ID))
+                .map(Header::value)
+                .orElse(null);
+
+        Message<Response<?>> message = MessageBuilder
+                .<Response<?>>withPayload(response)
+                .setHeader(KafkaHeaders.TOPIC, replyTopic)
+                .setHeader(KafkaHeaders.CORRELATION_ID, correlationId)
+                .build();
+        kafkaTemplate.send(message);
+    }
+}
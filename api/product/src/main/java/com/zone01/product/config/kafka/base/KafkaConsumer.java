@@ -23,6 +23,7 @@ public class KafkaConsumer {
 
     private static final String MEDIA_RESPONSE = "media-response-to-product";
     private static final String GROUP_ID = "product-to-media";
+    private static final String REQUEST_GROUP_ID = "product-requests";
 
     public Map<String, Object> consumerConfig() {
         Map<String, Object> properties = new HashMap<>();
@@ -51,6 +52,32 @@ public class KafkaConsumer {
         );
     }
 
+    @Bean
+    public DefaultKafkaConsumerFactory<String, Object> requestConsumerFactory() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, REQUEST_GROUP_ID);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        properties.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
+        properties.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        // Requests carry plain JSON (ids, maps), so they are read as generic objects
+        properties.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        properties.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        properties.put(JsonDeserializer.VALUE_DEFAULT_TYPE, Object.class.getName());
+        return new DefaultKafkaConsumerFactory<>(properties);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> requestKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(requestConsumerFactory());
+        return factory;
+    }
+
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Response<?>> listenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, Response<?>> factory =
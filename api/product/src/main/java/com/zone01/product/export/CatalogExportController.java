@@ -0,0 +1,41 @@
+package com.zone01.product.export;
+
+import com.zone01.product.model.CatalogFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/v1/product/users/{id}/export")
+public class CatalogExportController {
+    private final CatalogExportService catalogExportService;
+
+    /**
+     * Written on the request thread rather than as an async StreamingResponseBody,
+     * so large catalogs are not cut off by the async request timeout.
+     */
+    @GetMapping()
+    public void exportCatalog(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String after,
+            HttpServletResponse response
+    ) throws IOException {
+        // Checked before the headers are set, so a bad request is still answered as JSON
+        CatalogFormat exportFormat = CatalogFormat.from(format);
+        CatalogExportService.resumeId(after);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"catalog-" + id + "." + exportFormat.getExtension() + "\"");
+        catalogExportService.export(id, after, exportFormat, response.getOutputStream());
+    }
+}
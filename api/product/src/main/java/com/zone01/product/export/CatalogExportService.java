@@ -0,0 +1,112 @@
+package com.zone01.product.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.product.model.CatalogFormat;
+import com.zone01.product.model.dto.ProductDTO;
+import com.zone01.product.product.Products;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * Streams a seller's catalog from a Mongo cursor straight to an output stream, one product at a time.
+ * Products are written in _id order, so an interrupted export resumes from the id of the last product received.
+ */
+@Service
+@Slf4j
+public class CatalogExportService {
+    private static final String CSV_HEADER = "id,name,description,price,quantity,active,createdAt,updatedAt";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper jacksonObjectMapper;
+    private final int batchSize;
+
+    public CatalogExportService(
+            MongoTemplate mongoTemplate,
+            ObjectMapper jacksonObjectMapper,
+            @Value("${product.export.batch-size:500}") int batchSize
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.jacksonObjectMapper = jacksonObjectMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Writes the products of a seller (the same set as the public seller listing) whose id is after {@code afterId}.
+     *
+     * @return the number of products written
+     * @throws IllegalArgumentException when {@code afterId} is not a product id
+     */
+    public long export(String userId, String afterId, CatalogFormat format, OutputStream target) throws IOException {
+        String resumeId = resumeId(afterId);
+        Criteria criteria = Criteria.where("userID").is(userId).and("deleted").is(false);
+        if (resumeId != null) criteria.and("_id").gt(resumeId);
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id"));
+        query.fields().exclude("deleted", "deletedAt");
+        query.cursorBatchSize(batchSize);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+        if (format == CatalogFormat.CSV) writer.write(CSV_HEADER + "\n");
+
+        long written = 0;
+        try (Stream<Products> products = mongoTemplate.stream(query, Products.class)) {
+            for (Products product : (Iterable<Products>) products::iterator) {
+                writer.write(format == CatalogFormat.CSV ? toCsv(product) : toJson(product.toProductDTO()));
+                writer.write('\n');
+                // Hand each cursor batch to the client instead of buffering the whole catalog
+                if (++written % batchSize == 0) writer.flush();
+            }
+        }
+        writer.flush();
+        log.info("====== Exported {} products of user {} as {} ======", written, userId, format);
+        return written;
+    }
+
+    /**
+     * A resume id that is not an ObjectId would be compared with the stored ObjectIds as a string
+     * and match nothing, so it is refused rather than answered with an empty export.
+     *
+     * @return the id to resume after, or null to export from the start
+     */
+    public static String resumeId(String afterId) {
+        if (afterId == null || afterId.isBlank()) return null;
+        if (!ObjectId.isValid(afterId)) throw new IllegalArgumentException("Invalid resume id: " + afterId);
+        return afterId;
+    }
+
+    private String toJson(ProductDTO product) throws IOException {
+        return jacksonObjectMapper.writeValueAsString(product);
+    }
+
+    private static String toCsv(Products product) {
+        return String.join(",",
+                csv(product.getId()),
+                csv(product.getName()),
+                csv(product.getDescription()),
+                csv(product.getPrice()),
+                csv(product.getQuantity()),
+                csv(product.isActive()),
+                csv(product.getCreatedAt()),
+                csv(product.getUpdatedAt())
+        );
+    }
+
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String text = value instanceof Date date ? date.toInstant().toString() : value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
@@ -0,0 +1,29 @@
+package com.zone01.product.model;
+
+import java.util.Arrays;
+
+public enum CatalogFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    CatalogFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return name().toLowerCase();
+    }
+
+    public static CatalogFormat from(String format) {
+        return Arrays.stream(values())
+                .filter(value -> value.name().equalsIgnoreCase(format))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported catalog format: " + format));
+    }
+}
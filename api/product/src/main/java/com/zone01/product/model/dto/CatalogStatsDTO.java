@@ -0,0 +1,24 @@
+package com.zone01.product.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStatsDTO {
+    private String sellerId;
+    private long active;
+    private long inactive;
+    private long deleted;
+    private long activeStock;
+    private long inactiveStock;
+    private double activeStockValue;
+    private double inactiveStockValue;
+    private Date updatedAt;
+}
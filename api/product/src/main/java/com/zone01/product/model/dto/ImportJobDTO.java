@@ -0,0 +1,27 @@
+package com.zone01.product.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDTO {
+    private String id;
+    private String status;
+    private String format;
+    private long processed;
+    private long imported;
+    private long failed;
+    private List<ImportRowErrorDTO> errors;
+    private boolean errorsTruncated;
+    private String message;
+    private Date createdAt;
+    private Date finishedAt;
+}
@@ -0,0 +1,17 @@
+package com.zone01.product.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowErrorDTO {
+    private long row;
+    private List<String> errors;
+}
@@ -0,0 +1,19 @@
+package com.zone01.product.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCardDTO {
+    private String id;
+    private String name;
+    private Double price;
+    private boolean inStock;
+    private String mediaId;
+    private String imagePath;
+}
@@ -0,0 +1,22 @@
+package com.zone01.product.model.dto;
+
+import com.zone01.product.reservation.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationDTO {
+    private String id;
+    private Map<String, Integer> items;
+    private ReservationStatus status;
+    private Date createdAt;
+    private Date expiresAt;
+}
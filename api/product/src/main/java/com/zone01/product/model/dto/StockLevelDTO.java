@@ -0,0 +1,17 @@
+package com.zone01.product.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelDTO {
+    private String productId;
+    private int onHand;
+    private int reserved;
+    private int available;
+}
@@ -0,0 +1,34 @@
+package com.zone01.product.product;
+
+import com.zone01.product.model.dto.ProductDTO;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Cheap validator for a product or a set of products, used to answer conditional GETs
+ * without loading or serializing the documents themselves.
+ * A set changes version whenever a member is written (max modification date moves forward)
+ * or leaves the set (count drops), so the pair is enough for a strong ETag.
+ * For the whole catalog {@code count} is the write counter kept by {@link CatalogVersions}.
+ */
+public record CatalogVersion(String key, long count, Date lastModified) {
+
+    public static CatalogVersion of(ProductDTO product) {
+        Date lastModified = product.getUpdatedAt() != null ? product.getUpdatedAt() : product.getCreatedAt();
+        return new CatalogVersion(product.getId(), 1, lastModified);
+    }
+
+    public String eTag() {
+        String source = key + ":" + count + ":" + (lastModified == null ? -1 : lastModified.getTime());
+        return "\"" + DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * HTTP dates have second precision, milliseconds are dropped so If-Modified-Since compares cleanly.
+     */
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.getTime() / 1000 * 1000;
+    }
+}
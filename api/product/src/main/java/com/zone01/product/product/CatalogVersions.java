@@ -0,0 +1,46 @@
+package com.zone01.product.product;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write counter of the public listing, kept in one document that every product write bumps.
+ * Answering a conditional listing GET is then a read by id instead of an aggregation over the catalog.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogVersions {
+    private static final String COLLECTION = "catalog_versions";
+    private static final String CATALOG_ID = "catalog";
+
+    private final MongoTemplate mongoTemplate;
+
+    public CatalogVersion getCatalogVersion() {
+        Document version = mongoTemplate.getCollection(COLLECTION).find(Filters.eq("_id", CATALOG_ID)).first();
+        if (version == null) return new CatalogVersion(CATALOG_ID, 0, null);
+        return new CatalogVersion(CATALOG_ID, ((Number) version.get("version")).longValue(), version.getDate("updatedAt"));
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        if (event.productIds().isEmpty()) return;
+        try {
+            mongoTemplate.getCollection(COLLECTION).updateOne(
+                    Filters.eq("_id", CATALOG_ID),
+                    Updates.combine(Updates.inc("version", 1L), Updates.currentDate("updatedAt")),
+                    new UpdateOptions().upsert(true)
+            );
+        } catch (MongoException e) {
+            log.error("====== Failed to bump the catalog version for {}: {} ======", event.productIds(), e.getMessage());
+        }
+    }
+}
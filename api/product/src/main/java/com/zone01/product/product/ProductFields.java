@@ -0,0 +1,54 @@
+package com.zone01.product.product;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sparse fieldset of a product listing ({@code fields=id,name,price}). The same names are used by
+ * {@link Products} and the product DTO, so the set is both the Mongo projection and the JSON filter;
+ * the id is always kept. An empty set means every field.
+ */
+public record ProductFields(Set<String> names) {
+    public static final String FILTER = "productFields";
+    public static final String ATTRIBUTE = ProductFields.class.getName();
+    public static final ProductFields ALL = new ProductFields(Set.of());
+    private static final List<String> SELECTABLE = List.of(
+            "id", "name", "description", "price", "quantity", "userID", "active", "createdAt", "updatedAt");
+
+    public static ProductFields parse(String fields) {
+        if (fields == null || fields.isBlank()) return ALL;
+
+        Set<String> names = new LinkedHashSet<>();
+        names.add("id");
+        Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(name -> {
+                    if (!SELECTABLE.contains(name))
+                        throw new IllegalArgumentException("Unknown product field '" + name + "', expected one of " + SELECTABLE);
+                    names.add(name);
+                });
+        return names.size() == SELECTABLE.size() ? ALL : new ProductFields(Set.copyOf(names));
+    }
+
+    public boolean isAll() {
+        return names.isEmpty();
+    }
+
+    public Query project(Query query) {
+        if (!isAll()) query.fields().include(names.toArray(String[]::new));
+        return query;
+    }
+
+    /**
+     * Stable form for cache keys.
+     */
+    public String key() {
+        return isAll() ? "*" : String.join(",", new TreeSet<>(names));
+    }
+}
@@ -0,0 +1,141 @@
+package com.zone01.product.product;
+
+import com.zone01.product.model.StatusFilter;
+import com.zone01.product.model.dto.ProductSearchCriteria;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Builds product search queries from {@link ProductSearchCriteria}, shared by the blocking and reactive read paths.
+ */
+@Slf4j
+public final class ProductSearchQueries {
+
+    private ProductSearchQueries() {
+    }
+
+    public static Query build(ProductSearchCriteria criteria) {
+        Query query = new Query();
+        List<Criteria> criteriaList = new ArrayList<>();
+        StatusFilter.addStatusFilter(query, StatusFilter.ACTIVE_ONLY);
+
+        // Keyword search (searches in multiple fields)
+        String keyword = matchText(criteria.getKeyword());
+        if (keyword != null) {
+            String keywordRegex = ".*" + Pattern.quote(keyword) + ".*";
+            Criteria keywordCriteria = new Criteria().orOperator(
+                    Criteria.where("name").regex(keywordRegex, "i"),
+                    Criteria.where("description").regex(keywordRegex, "i")
+            );
+            criteriaList.add(keywordCriteria);
+        }
+
+        // Name search
+        String name = matchText(criteria.getName());
+        if (name != null) {
+            String nameRegex = ".*" + Pattern.quote(name) + ".*";
+            criteriaList.add(Criteria.where("name").regex(nameRegex, "i"));
+        }
+
+        // Price filters
+        String price = text(criteria.getPrice());
+        if (price != null) {
+            try {
+                Double priceValue = Double.parseDouble(price);
+                criteriaList.add(Criteria.where("price").is(priceValue));
+            } catch (NumberFormatException e) {
+                // Log error or handle invalid price format
+            }
+        }
+
+        if (criteria.getPriceMin() != null) {
+            criteriaList.add(Criteria.where("price").gte(criteria.getPriceMin()));
+        }
+
+        if (criteria.getPriceMax() != null) {
+            criteriaList.add(Criteria.where("price").lte(criteria.getPriceMax()));
+        }
+
+        // Quantity filters
+        String quantity = text(criteria.getQuantity());
+        if (quantity != null) {
+            try {
+                Integer quantityValue = Integer.parseInt(quantity);
+                criteriaList.add(Criteria.where("quantity").is(quantityValue));
+            } catch (NumberFormatException e) {
+                // Log error or handle invalid quantity format
+            }
+        }
+
+        if (criteria.getQuantityMin() != null) {
+            criteriaList.add(Criteria.where("quantity").gte(criteria.getQuantityMin()));
+        }
+
+        if (criteria.getQuantityMax() != null) {
+            criteriaList.add(Criteria.where("quantity").lte(criteria.getQuantityMax()));
+        }
+
+        // User IDs filter
+        if (criteria.getUserIds() != null && !criteria.getUserIds().isEmpty()) {
+            criteriaList.add(Criteria.where("userId").in(criteria.getUserIds()));
+        }
+
+        // Category IDs filter
+        if (criteria.getCategoryIds() != null && !criteria.getCategoryIds().isEmpty()) {
+            criteriaList.add(Criteria.where("categoryId").in(criteria.getCategoryIds()));
+        }
+
+        // Tags filter
+        if (criteria.getTags() != null && !criteria.getTags().isEmpty()) {
+            criteriaList.add(Criteria.where("tags").in(criteria.getTags()));
+        }
+
+        // Combine all criteria with AND operation
+        if (!criteriaList.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(
+                    criteriaList.toArray(new Criteria[0])
+            ));
+        }
+
+        return query;
+    }
+
+    /**
+     * A text filter as the query uses it: trimmed, or null when blank.
+     * {@link com.zone01.product.cache.SearchKey} goes through the same helpers, so two searches share
+     * a cache entry only when they run the same query.
+     */
+    public static String text(String value) {
+        if (value == null || value.trim().isEmpty()) return null;
+        return value.trim();
+    }
+
+    /**
+     * A case-insensitive text filter: trimmed and lowercased, or null when blank.
+     */
+    public static String matchText(String value) {
+        String text = text(value);
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    public static Query paginate(Query query, ProductSearchCriteria criteria) {
+        // Apply sorting, restricted to index-backed keys
+        SearchSort sort = SearchSort.from(criteria.getSortBy());
+        if (sort == SearchSort.DEFAULT && criteria.getSortBy() != null && !criteria.getSortBy().isBlank()) {
+            log.debug("====== Unsupported sort key '{}', falling back to default order ======", criteria.getSortBy());
+        }
+        query.with(sort.toSort(criteria.getSortOrder()));
+
+        // Apply pagination
+        int skip = criteria.getPage() * criteria.getSize();
+        query.skip(skip).limit(criteria.getSize());
+
+        return query;
+    }
+}
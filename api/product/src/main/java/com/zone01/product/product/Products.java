@@ -8,6 +8,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.domain.Page;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -19,6 +21,15 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Document(collection = "products")
+// One index per public sort key of SearchSort, led by the status fields every search filters on
+@CompoundIndexes({
+        @CompoundIndex(name = "search_price", def = "{'active': 1, 'deleted': 1, 'price': 1, '_id': 1}"),
+        @CompoundIndex(name = "search_newest", def = "{'active': 1, 'deleted': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "search_name", def = "{'active': 1, 'deleted': 1, 'name': 1, '_id': 1}"),
+        @CompoundIndex(name = "search_stock", def = "{'active': 1, 'deleted': 1, 'quantity': 1, '_id': 1}"),
+        // A seller's catalog in id order, for the export and its resume point
+        @CompoundIndex(name = "seller_export", def = "{'user_id': 1, 'deleted': 1, '_id': 1}")
+})
 public class Products {
     @Id
     private String id;
@@ -31,6 +42,8 @@ public class Products {
 
     private boolean active = false;
     private boolean deleted = false;
+    // Without it the builder, used by creation and imports, leaves the date out of the newest sort
+    @Builder.Default
     private Date createdAt = new Date();
     private Date updatedAt;
     private Date deletedAt;
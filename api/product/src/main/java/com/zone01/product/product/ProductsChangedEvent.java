@@ -0,0 +1,14 @@
+package com.zone01.product.product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published after products are created, updated, deleted or their stock changes.
+ * Listeners use it to drop derived state (caches, indexes) for the given products.
+ */
+public record ProductsChangedEvent(List<String> productIds) {
+    public static ProductsChangedEvent of(Collection<String> productIds) {
+        return new ProductsChangedEvent(List.copyOf(productIds));
+    }
+}
@@ -2,6 +2,7 @@ package com.zone01.product.product;
 
 import com.zone01.product.model.dto.*;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -13,6 +14,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
 
 import com.zone01.product.model.Response;
 
@@ -30,10 +33,16 @@ public class ProductsController {
     @GetMapping()
     public ResponseEntity<Response<Page<ProductDTO>>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "0") int size
+            @RequestParam(defaultValue = "0") int size,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest
             ) {
-        Response<Page<ProductDTO>> response = productsService.getAllProducts(page, size);
-        return ResponseEntity.status(response.getStatus()).body(response);
+        ProductFields productFields = selectFields(fields, webRequest);
+        CatalogVersion version = productsService.getCatalogVersion();
+        if (webRequest.checkNotModified(version.eTag())) return null;
+
+        Response<Page<ProductDTO>> response = productsService.getAllProducts(page, size, productFields);
+        return withVersion(response, version);
     }
 
     @PostMapping("/available")
@@ -65,12 +74,15 @@ public class ProductsController {
 
             // Sorting
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false, defaultValue = "asc") String sortOrder,
+            @RequestParam(required = false) String sortOrder,
 
             // Pagination
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest
     ) {
+        ProductFields productFields = selectFields(fields, webRequest);
         ProductSearchCriteria criteria = ProductSearchCriteria.builder()
                 .keyword(keyword)
                 .name(name)
@@ -88,14 +100,25 @@ public class ProductsController {
                 .page(page)
                 .size(size)
                 .build();
-        Response<Page<ProductDTO>> response = productsService.searchProducts(criteria);
-        return ResponseEntity.status(response.getStatus()).body(response);
+        CatalogVersion version = productsService.getSearchVersion(criteria);
+        if (webRequest.checkNotModified(version.eTag())) return null;
+
+        Response<Page<ProductDTO>> response = productsService.searchProducts(criteria, version, productFields);
+        return withVersion(response, version);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Response<ProductDTO>> getProductById(@PathVariable String id) {
         var response = productsService.getProductById(id);
-        return ResponseEntity.status(response.getStatus()).body(response);
+        if (response.isError()) return ResponseEntity.status(response.getStatus()).body(response);
+
+        // Served from the product cache; Spring answers 304 from these headers without writing the body
+        CatalogVersion version = CatalogVersion.of(response.getData());
+        return ResponseEntity.status(response.getStatus())
+                .eTag(version.eTag())
+                .lastModified(version.lastModifiedMillis())
+                .cacheControl(CacheControl.noCache())
+                .body(response);
     }
 
     @GetMapping("/{id}/all")
@@ -108,9 +131,12 @@ public class ProductsController {
     public ResponseEntity<Response<Page<ProductDTO>>> getProductsByUserId(
             @PathVariable String id,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "0") int size
+            @RequestParam(defaultValue = "0") int size,
+            @RequestParam(required = false) String fields,
+            WebRequest webRequest
     ) {
-        Response<Page<ProductDTO>> response = productsService.getProductByUserId(id, page, size);
+        ProductFields productFields = selectFields(fields, webRequest);
+        Response<Page<ProductDTO>> response = productsService.getProductByUserId(id, page, size, productFields);
         return ResponseEntity.status(response.getStatus()).body(response);
     }
 
@@ -134,4 +160,25 @@ public class ProductsController {
         Response<ProductDTO> response = productsService.deleteProduct(id, request);
         return ResponseEntity.status(response.getStatus()).body(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * The selection is left on the request for ProductFieldsAdvice, which drops the other fields when writing JSON.
+     */
+    private static ProductFields selectFields(String fields, WebRequest webRequest) {
+        ProductFields productFields = ProductFields.parse(fields);
+        webRequest.setAttribute(ProductFields.ATTRIBUTE, productFields, RequestAttributes.SCOPE_REQUEST);
+        return productFields;
+    }
+
+    /**
+     * Listings only carry an ETag: a product leaving the set does not move the newest
+     * modification date forward, so Last-Modified alone could produce a stale 304.
+     */
+    private static <T> ResponseEntity<Response<T>> withVersion(Response<T> response, CatalogVersion version) {
+        if (response.isError()) return ResponseEntity.status(response.getStatus()).body(response);
+        return ResponseEntity.status(response.getStatus())
+                .eTag(version.eTag())
+                .cacheControl(CacheControl.noCache())
+                .body(response);
+    }
+}
@@ -1,27 +1,38 @@
 package com.zone01.product.product;
 
+import com.zone01.product.cache.ProductCache;
+import com.zone01.product.cache.SearchKey;
+import com.zone01.product.cache.SearchResultCache;
 import com.zone01.product.config.kafka.AccessValidation;
 import com.zone01.product.config.kafka.MediaServices;
 import com.zone01.product.model.Response;
 import com.zone01.product.model.Role;
-import com.zone01.product.model.StatusFilter;
 import com.zone01.product.model.dto.*;
+import com.zone01.product.reservation.ReservationService;
 import jakarta.servlet.http.HttpServletRequest;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.CriteriaDefinition;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,12 +42,30 @@ public class ProductsService {
     private final ProductsRepository productsRepository;
     private final MediaServices mediaServices;
     private final MongoTemplate mongoTemplate;
+    private final ReservationService reservationService;
+    private final ProductCache productCache;
+    private final SearchResultCache searchResultCache;
+    private final CatalogVersions catalogVersions;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Version of the public listing: a read of the catalog's write counter instead of a page read.
+     */
+    public CatalogVersion getCatalogVersion() {
+        return catalogVersions.getCatalogVersion();
+    }
 
     public Response<Page<ProductDTO>> getAllProducts(int page, int size) {
-        var products = productsRepository.findByActiveAndDeleted(true, false, PageRequest.of(page, size));
+        return getAllProducts(page, size, ProductFields.ALL);
+    }
+
+    public Response<Page<ProductDTO>> getAllProducts(int page, int size, ProductFields fields) {
+        var products = fields.isAll()
+                ? Products.toProductsDTO(productsRepository.findByActiveAndDeleted(true, false, PageRequest.of(page, size)))
+                : findPage(Criteria.where("active").is(true).and("deleted").is(false), PageRequest.of(page, size), fields);
         return Response.when(
                 products.isEmpty() || !products.hasContent(),
-                () -> Response.ok(Products.toProductsDTO(products)),
+                () -> Response.ok(products),
                 () -> Response.notFound("No products found!")
         );
     }
@@ -46,19 +75,16 @@ public class ProductsService {
                 .map(ProductAvailableRequest::getId)
                 .toList();
 
-        List<ProductDTO> products = Products.toProductsDTO(
-                productsRepository.findByActiveAndDeletedAndIdIn(true, false, productIds)
-        );
+        List<ProductDTO> products = productCache.getAll(productIds);
 
         Map<String, ProductDTO> productMap = products.stream()
                 .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+        Map<String, Integer> availableUnits = reservationService.available(productMap.keySet());
 
         var grouped = dto.stream()
                 .collect(Collectors.groupingBy(
-                        request -> {
-                            ProductDTO product = productMap.get(request.getId());
-                            return product != null && product.getQuantity() >= request.getQuantity();
-                        },
+                        request -> productMap.containsKey(request.getId())
+                                && availableUnits.getOrDefault(request.getId(), 0) >= request.getQuantity(),
                         Collectors.mapping(
                                 request -> productMap.get(request.getId()),
                                 Collectors.toList()
@@ -93,36 +119,39 @@ public class ProductsService {
         });
 
         var updatedProducts = productsRepository.saveAll(productMap.values());
+        reservationService.refresh(updatedProducts);
+        publishChange(productMap.keySet());
+        eventPublisher.publishEvent(new ProductsSoldEvent(dto));
         return Response.ok(Products.toProductsDTO(updatedProducts), "Product quantities updated successfully");
     }
 
-    public Response<List<ProductDTO>> markAsActive(Map<String, Boolean> dto) {
-        List<String> productIds = new ArrayList<>(dto.keySet());
-        List<Products> products = productsRepository.findByDeletedAndIdIn(false, productIds);
-
-        if (products.isEmpty()) return Response.notFound("No products found!");
-
-        Map<String, Products> productMap = products.stream()
-                .collect(Collectors.toMap(Products::getId, Function.identity()));
-
-        dto.forEach((productId, active) -> {
-            Products product = productMap.get(productId);
-            if (product != null) {
-                product.setActive(active);
-                product.setUpdatedAt(new Date());
-            }
-        });
+    public Response<List<String>> markAsActive(Map<String, Boolean> dto) {
+        Criteria notDeleted = Criteria.where("_id").in(dto.keySet()).and("deleted").is(false);
+        List<String> productIds = findProductIds(notDeleted);
+        if (productIds.isEmpty()) return Response.notFound("No products found!");
+
+        // At most two updates: one per target status
+        Date now = new Date();
+        dto.entrySet().stream()
+                .filter(entry -> entry.getValue() != null)
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                .forEach((active, ids) -> mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("_id").in(ids).and("deleted").is(false)),
+                        new Update().set("active", active).set("updatedAt", now),
+                        Products.class
+                ));
 
-        var updatedProducts = productsRepository.saveAll(productMap.values());
-        return Response.ok(Products.toProductsDTO(updatedProducts), "Product status updated successfully");
+        reservationService.evict(productIds);
+        publishChange(productIds);
+        return Response.ok(productIds, "Product status updated successfully");
     }
 
     public Response<ProductDTO> getProductById(String id) {
         log.info("====== Getting product by id: {} ======", id);
-        Products product = productsRepository.findByIdAndActiveAndDeleted(id, true, false).orElse(null);
-
-        if (product == null) return Response.notFound("Product not found!");
-        return Response.ok(product.toProductDTO(), "Successfully retrieved product");
+        return productCache.get(id)
+                .map(product -> Response.ok(product, "Successfully retrieved product"))
+                .orElseGet(() -> Response.notFound("Product not found!"));
     }
 
     public Response<ProductDTO> getProductByIdEvenDeletedOrNoneActivated(String id) {
@@ -142,9 +171,7 @@ public class ProductsService {
     }
 
     public Response<List<ProductDTO>> getProductsByIdForCheckout(List<String> id) {
-        List<ProductDTO> products = Products.toProductsDTO(
-                productsRepository.findByActiveAndDeletedAndIdIn(true, false, id)
-        );
+        List<ProductDTO> products = productCache.getAll(id);
         return Response.when(
                 !products.isEmpty(),
                 () -> Response.ok(products, "Successfully retrieved products"),
@@ -153,9 +180,13 @@ public class ProductsService {
     }
 
     public Response<Page<ProductDTO>> getProductByUserId(String id, int page, int size) {
-        var products = Products.toProductsDTO(
-                productsRepository.findByUserIDAndDeleted(id, false,  PageRequest.of(page, size))
-        );
+        return getProductByUserId(id, page, size, ProductFields.ALL);
+    }
+
+    public Response<Page<ProductDTO>> getProductByUserId(String id, int page, int size, ProductFields fields) {
+        var products = fields.isAll()
+                ? Products.toProductsDTO(productsRepository.findByUserIDAndDeleted(id, false,  PageRequest.of(page, size)))
+                : findPage(Criteria.where("userID").is(id).and("deleted").is(false), PageRequest.of(page, size), fields);
         return Response.when(
                 !(products.isEmpty() || !products.hasContent()),
                 () -> Response.ok(products, "Successfully retrieved products"),
@@ -168,6 +199,7 @@ public class ProductsService {
         if (currentUser.getRole() != Role.SELLER) return Response.forbidden("Only sellers can create products");
 
         Products savedProduct = productsRepository.save(dto.toProducts(currentUser.getId()));
+        publishChange(List.of(savedProduct.getId()));
         return Response.created(savedProduct.toProductDTO(), "Product created successfully");
     }
 
@@ -194,6 +226,8 @@ public class ProductsService {
 
         product.setUpdatedAt(new Date());
         Products updatedProduct = productsRepository.save(product);
+        reservationService.refresh(List.of(updatedProduct));
+        publishChange(List.of(updatedProduct.getId()));
         return Response.ok(updatedProduct.toProductDTO(), "Product updated successfully");
     }
 
@@ -210,42 +244,74 @@ public class ProductsService {
         product.setActive(false);
         product.setDeleted(true);
         product.setDeletedAt(new Date());
+        product.setUpdatedAt(product.getDeletedAt());
         productsRepository.save(product);
+        reservationService.evict(List.of(product.getId()));
+        publishChange(List.of(product.getId()));
         return Response.ok(product.toProductDTO(), "Product deleted successfully");
     }
 
-    public Response<List<ProductDTO>> deleteProductsByUserId(String userId) {
-        List<Products> products = productsRepository.findByUserIDAndDeleted(userId, false).orElse(null);
-        if (products == null || products.isEmpty()) return Response.notFound("No products found!");
-
-        List<String> ids = products.stream().map(Products::getId).collect(Collectors.toList());
+    public Response<List<String>> deleteProductsByUserId(String userId) {
+        List<String> ids = findProductIds(Criteria.where("userID").is(userId).and("deleted").is(false));
+        if (ids.isEmpty()) return Response.notFound("No products found!");
 
         Response<Object> deletedMediaResponse = mediaServices.deleteMediaRelatedToProduct(ids);
         if (deletedMediaResponse != null) return Response.mapper(deletedMediaResponse);
 
-        List<ProductDTO> deletedProducts = products.stream()
-                        .map(p -> {
-                            p.setActive(false);
-                            p.setDeleted(true);
-                            p.setDeletedAt(new Date());
-                            productsRepository.save(p);
-                            return p.toProductDTO();
-                        }).toList();
-        return Response.ok(deletedProducts, "Products deleted successfully");
+        Date now = new Date();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).and("deleted").is(false)),
+                new Update()
+                        .set("active", false)
+                        .set("deleted", true)
+                        .set("deletedAt", now)
+                        .set("updatedAt", now),
+                Products.class
+        );
+        reservationService.evict(ids);
+        publishChange(ids);
+        return Response.ok(ids, "Products deleted successfully");
+    }
+
+    private void publishChange(Collection<String> productIds) {
+        eventPublisher.publishEvent(ProductsChangedEvent.of(productIds));
+    }
+
+    private List<String> findProductIds(Criteria criteria) {
+        Query query = Query.query(criteria);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Products.class).stream()
+                .map(Products::getId)
+                .toList();
+    }
+
+    public CatalogVersion getSearchVersion(ProductSearchCriteria searchCriteria) {
+        return searchResultCache.getVersion(SearchKey.of(searchCriteria),
+                () -> findVersion("search", ProductSearchQueries.build(searchCriteria)));
     }
 
     public Response<Page<ProductDTO>> searchProducts(ProductSearchCriteria searchCriteria) {
-        Query query = buildQuery(searchCriteria);
+        return searchProducts(searchCriteria, getSearchVersion(searchCriteria));
+    }
 
-        // Get total count for pagination
-        long totalCount = mongoTemplate.count(query, Products.class);
-        List<ProductDTO> products = Products.toProductsDTO(
-                mongoTemplate.find(applyPaginationAndSorting(query, searchCriteria), Products.class)
-        );
+    public Response<Page<ProductDTO>> searchProducts(ProductSearchCriteria searchCriteria, CatalogVersion version) {
+        return searchProducts(searchCriteria, version, ProductFields.ALL);
+    }
 
-        // Create pageable
-        Pageable pageable = PageRequest.of(searchCriteria.getPage(), searchCriteria.getSize());
-        var page = new PageImpl<>(products, pageable, totalCount);
+    /**
+     * Runs the search with a version computed for the same criteria, whose count doubles as the page total.
+     */
+    public Response<Page<ProductDTO>> searchProducts(ProductSearchCriteria searchCriteria, CatalogVersion version, ProductFields fields) {
+        Page<ProductDTO> page = searchResultCache.getPage(SearchKey.of(searchCriteria).withFields(fields), version, () -> {
+            Query query = ProductSearchQueries.build(searchCriteria);
+            List<ProductDTO> products = Products.toProductsDTO(
+                    mongoTemplate.find(fields.project(ProductSearchQueries.paginate(query, searchCriteria)), Products.class)
+            );
+
+            // Create pageable
+            Pageable pageable = PageRequest.of(searchCriteria.getPage(), searchCriteria.getSize());
+            return new PageImpl<>(products, pageable, version.count());
+        });
         return Response.when(
                 !page.hasContent(),
                 () -> Response.notFound("No products found!"),
@@ -254,101 +320,37 @@ public class ProductsService {
 
     }
 
-    private Query buildQuery(ProductSearchCriteria criteria) {
-        Query query = new Query();
-        List<Criteria> criteriaList = new ArrayList<>();
-        StatusFilter.addStatusFilter(query, StatusFilter.ACTIVE_ONLY);
-
-        // Keyword search (searches in multiple fields)
-        if (criteria.getKeyword() != null && !criteria.getKeyword().trim().isEmpty()) {
-            String keywordRegex = ".*" + Pattern.quote(criteria.getKeyword()) + ".*";
-            Criteria keywordCriteria = new Criteria().orOperator(
-                    Criteria.where("name").regex(keywordRegex, "i"),
-                    Criteria.where("description").regex(keywordRegex, "i")
-            );
-            criteriaList.add(keywordCriteria);
-        }
-
-        // Name search
-        if (criteria.getName() != null && !criteria.getName().trim().isEmpty()) {
-            String nameRegex = ".*" + Pattern.quote(criteria.getName()) + ".*";
-            criteriaList.add(Criteria.where("name").regex(nameRegex, "i"));
-        }
+    /**
+     * Projected page read through the template, as derived repository queries always load whole documents.
+     */
+    private Page<ProductDTO> findPage(Criteria criteria, Pageable pageable, ProductFields fields) {
+        Query query = fields.project(Query.query(criteria).with(pageable));
+        List<ProductDTO> products = Products.toProductsDTO(mongoTemplate.find(query, Products.class));
+        return PageableExecutionUtils.getPage(products, pageable, () -> mongoTemplate.count(Query.query(criteria), Products.class));
+    }
 
-        // Price filters
-        if (criteria.getPrice() != null && !criteria.getPrice().trim().isEmpty()) {
-            try {
-                Double priceValue = Double.parseDouble(criteria.getPrice());
-                criteriaList.add(Criteria.where("price").is(priceValue));
-            } catch (NumberFormatException e) {
-                // Log error or handle invalid price format
+    private CatalogVersion findVersion(String key, Query query) {
+        CriteriaDefinition filter = new CriteriaDefinition() {
+            @Override
+            public Document getCriteriaObject() {
+                return query.getQueryObject();
             }
-        }
-
-        if (criteria.getPriceMin() != null) {
-            criteriaList.add(Criteria.where("price").gte(criteria.getPriceMin()));
-        }
 
-        if (criteria.getPriceMax() != null) {
-            criteriaList.add(Criteria.where("price").lte(criteria.getPriceMax()));
-        }
-
-        // Quantity filters
-        if (criteria.getQuantity() != null && !criteria.getQuantity().trim().isEmpty()) {
-            try {
-                Integer quantityValue = Integer.parseInt(criteria.getQuantity());
-                criteriaList.add(Criteria.where("quantity").is(quantityValue));
-            } catch (NumberFormatException e) {
-                // Log error or handle invalid quantity format
+            @Override
+            public String getKey() {
+                return null;
             }
-        }
-
-        if (criteria.getQuantityMin() != null) {
-            criteriaList.add(Criteria.where("quantity").gte(criteria.getQuantityMin()));
-        }
-
-        if (criteria.getQuantityMax() != null) {
-            criteriaList.add(Criteria.where("quantity").lte(criteria.getQuantityMax()));
-        }
-
-        // User IDs filter
-        if (criteria.getUserIds() != null && !criteria.getUserIds().isEmpty()) {
-            criteriaList.add(Criteria.where("userId").in(criteria.getUserIds()));
-        }
-
-        // Category IDs filter
-        if (criteria.getCategoryIds() != null && !criteria.getCategoryIds().isEmpty()) {
-            criteriaList.add(Criteria.where("categoryId").in(criteria.getCategoryIds()));
-        }
-
-        // Tags filter
-        if (criteria.getTags() != null && !criteria.getTags().isEmpty()) {
-            criteriaList.add(Criteria.where("tags").in(criteria.getTags()));
-        }
-
-        // Combine all criteria with AND operation
-        if (!criteriaList.isEmpty()) {
-            query.addCriteria(new Criteria().andOperator(
-                    criteriaList.toArray(new Criteria[0])
-            ));
-        }
-
-        return query;
-    }
-
-    private Query applyPaginationAndSorting(Query query, ProductSearchCriteria criteria) {
-        // Apply sorting
-        if (criteria.getSortBy() != null && !criteria.getSortBy().trim().isEmpty()) {
-            Sort.Direction direction = "desc".equalsIgnoreCase(criteria.getSortOrder())
-                    ? Sort.Direction.DESC
-                    : Sort.Direction.ASC;
-            query.with(Sort.by(direction, criteria.getSortBy()));
-        }
-
-        // Apply pagination
-        int skip = criteria.getPage() * criteria.getSize();
-        query.skip(skip).limit(criteria.getSize());
+        };
+        TypedAggregation<Products> aggregation = Aggregation.newAggregation(
+                Products.class,
+                Aggregation.match(filter),
+                Aggregation.group()
+                        .count().as("count")
+                        .max(ConditionalOperators.ifNull("updatedAt").thenValueOf("createdAt")).as("lastModified")
+        );
 
-        return query;
+        Document result = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+        if (result == null) return new CatalogVersion(key, 0, null);
+        return new CatalogVersion(key, ((Number) result.get("count")).longValue(), result.getDate("lastModified"));
     }
 }
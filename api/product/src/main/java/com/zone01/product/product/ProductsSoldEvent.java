@@ -0,0 +1,9 @@
+package com.zone01.product.product;
+
+import java.util.Map;
+
+/**
+ * Published when units of products are sold, with the quantity sold per product id.
+ */
+public record ProductsSoldEvent(Map<String, Integer> quantities) {
+}
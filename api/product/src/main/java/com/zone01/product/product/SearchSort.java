@@ -0,0 +1,56 @@
+package com.zone01.product.product;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sort keys accepted by product search. Each one is backed by a compound index on {@link Products}
+ * (status fields, sort field, _id), and _id is always appended so pages stay stable between requests.
+ * Unknown keys fall back to {@link #DEFAULT} instead of sorting on an unindexed field.
+ */
+public enum SearchSort {
+    DEFAULT(null, null),
+    PRICE("price", null, "price"),
+    NEWEST("createdAt", Sort.Direction.DESC, "newest", "createdAt"),
+    NAME("name", null, "name"),
+    STOCK("quantity", null, "stock", "quantity");
+
+    private final String field;
+    private final Sort.Direction defaultDirection;
+    private final List<String> keys;
+
+    SearchSort(String field, Sort.Direction defaultDirection, String... keys) {
+        this.field = field;
+        this.defaultDirection = defaultDirection;
+        this.keys = List.of(keys);
+    }
+
+    public static SearchSort from(String sortBy) {
+        if (sortBy == null || sortBy.isBlank()) return DEFAULT;
+        String key = sortBy.trim();
+        return Arrays.stream(values())
+                .filter(sort -> sort.keys.stream().anyMatch(key::equalsIgnoreCase))
+                .findFirst()
+                .orElse(DEFAULT);
+    }
+
+    /**
+     * The requested order, else the key's own default: newest first for {@link #NEWEST}, ascending otherwise.
+     */
+    public Sort.Direction direction(String sortOrder) {
+        if ("desc".equalsIgnoreCase(sortOrder)) return Sort.Direction.DESC;
+        if ("asc".equalsIgnoreCase(sortOrder)) return Sort.Direction.ASC;
+        return defaultDirection != null ? defaultDirection : Sort.Direction.ASC;
+    }
+
+    /**
+     * The tie-breaker follows the main direction so Mongo can walk the same index forwards or backwards.
+     */
+    public Sort toSort(String sortOrder) {
+        Sort.Direction direction = direction(sortOrder);
+        if (field == null) return Sort.by(direction, "_id");
+        return Sort.by(direction, field).and(Sort.by(direction, "_id"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.zone01.product.reactive;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ProductAvailableRequest;
+import com.zone01.product.model.dto.ProductDTO;
+import com.zone01.product.model.dto.ProductSearchCriteria;
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive read endpoints. Lists are streamed as NDJSON one product at a time,
+ * and no request thread is held while Mongo is queried.
+ */
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/v1/product/reactive")
+public class ReactiveProductsController {
+    private final ReactiveProductsService reactiveProductsService;
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ProductDTO> getAllProducts(@RequestParam(defaultValue = "0") int limit) {
+        return reactiveProductsService.getAllProducts(limit);
+    }
+
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ProductDTO> searchProducts(ProductSearchCriteria criteria) {
+        return reactiveProductsService.searchProducts(criteria);
+    }
+
+    @PostMapping("/available")
+    public Mono<ResponseEntity<Response<List<ProductDTO>>>> getAvailableProducts(@RequestBody List<ProductAvailableRequest> products) {
+        return reactiveProductsService.isProductAvailable(products)
+                .map(response -> ResponseEntity.status(response.getStatus()).body(response));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Response<ProductDTO>>> getProductById(@PathVariable String id) {
+        return reactiveProductsService.getProductById(id)
+                .map(response -> ResponseEntity.status(response.getStatus()).body(response));
+    }
+}
@@ -0,0 +1,93 @@
+package com.zone01.product.reactive;
+
+import com.zone01.product.cache.ProductCache;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ProductAvailableRequest;
+import com.zone01.product.model.dto.ProductDTO;
+import com.zone01.product.model.dto.ProductSearchCriteria;
+import com.zone01.product.product.ProductSearchQueries;
+import com.zone01.product.product.Products;
+import com.zone01.product.reservation.ReservationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking read path over {@link ReactiveMongoTemplate}. Results are emitted as the driver fetches them,
+ * so a slow client only pulls the next cursor batch once it has consumed the previous one.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveProductsService {
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final ProductCache productCache;
+    private final ReservationService reservationService;
+
+    /**
+     * Active products in id order; a limit of 0 streams the whole catalog.
+     */
+    public Flux<ProductDTO> getAllProducts(int limit) {
+        Query query = Query.query(Criteria.where("active").is(true).and("deleted").is(false))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(Math.max(limit, 0));
+        return reactiveMongoTemplate.find(query, Products.class).map(Products::toProductDTO);
+    }
+
+    public Mono<Response<ProductDTO>> getProductById(String id) {
+        return Mono.justOrEmpty(productCache.getIfPresent(id))
+                .switchIfEmpty(reactiveMongoTemplate.findOne(
+                        Query.query(Criteria.where("_id").is(id).and("active").is(true).and("deleted").is(false)),
+                        Products.class
+                ).map(Products::toProductDTO))
+                .map(product -> Response.ok(product, "Successfully retrieved product"))
+                .defaultIfEmpty(Response.notFound("Product not found"));
+    }
+
+    /**
+     * Same filters and sort keys as the blocking search; without a page size every match is streamed.
+     */
+    public Flux<ProductDTO> searchProducts(ProductSearchCriteria criteria) {
+        Query query = ProductSearchQueries.paginate(ProductSearchQueries.build(criteria), criteria);
+        return reactiveMongoTemplate.find(query, Products.class).map(Products::toProductDTO);
+    }
+
+    public Mono<Response<List<ProductDTO>>> isProductAvailable(List<ProductAvailableRequest> requests) {
+        List<String> productIds = requests.stream().map(ProductAvailableRequest::getId).distinct().toList();
+        Query query = Query.query(Criteria.where("_id").in(productIds).and("active").is(true).and("deleted").is(false));
+
+        return reactiveMongoTemplate.find(query, Products.class)
+                .map(Products::toProductDTO)
+                .collectMap(ProductDTO::getId, Function.identity())
+                // Stock counters may need a blocking first load, so the check runs off the request threads
+                .publishOn(Schedulers.boundedElastic())
+                .map(products -> toAvailability(requests, products));
+    }
+
+    private Response<List<ProductDTO>> toAvailability(List<ProductAvailableRequest> requests, Map<String, ProductDTO> products) {
+        Map<String, Integer> availableUnits = reservationService.available(products.keySet());
+        Map<Boolean, List<ProductDTO>> grouped = requests.stream()
+                .collect(Collectors.partitioningBy(
+                        request -> products.containsKey(request.getId())
+                                && availableUnits.getOrDefault(request.getId(), 0) >= request.getQuantity(),
+                        Collectors.mapping(request -> products.get(request.getId()), Collectors.toList())
+                ));
+
+        List<ProductDTO> unavailable = grouped.get(false);
+        return Response.when(
+                unavailable.isEmpty(),
+                () -> Response.ok(grouped.get(true), "All products are available"),
+                () -> Response.badRequest(unavailable, "Some products are unavailable")
+        );
+    }
+}
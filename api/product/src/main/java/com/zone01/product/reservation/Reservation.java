@@ -0,0 +1,41 @@
+package com.zone01.product.reservation;
+
+import com.zone01.product.model.dto.ReservationDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A checkout hold as the order service sees it, kept in Mongo so any instance can commit or release it.
+ * Mongo drops it once expired; its {@link StockHolds} entries expire at the same time.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "reservations")
+public class Reservation {
+    @Id
+    private String id;
+    private Map<String, Integer> items;
+    private Date createdAt;
+    @Indexed(name = "reservation_expiry", expireAfter = "0s")
+    private Date expiresAt;
+
+    public ReservationDTO toDTO(ReservationStatus status) {
+        return ReservationDTO.builder()
+                .id(this.getId())
+                .items(this.getItems())
+                .status(status)
+                .createdAt(this.getCreatedAt())
+                .expiresAt(this.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,367 @@
+package com.zone01.product.reservation;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ReservationDTO;
+import com.zone01.product.model.dto.StockLevelDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsChangedEvent;
+import com.zone01.product.product.ProductsSoldEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checkout holds, kept in Mongo so reserve, commit and release can land on any instance: a hold is
+ * written to the product's {@link StockHolds} with an update guarded on the stock left, and the
+ * reservation itself to the {@code reservations} collection, which Mongo empties once holds expire.
+ * Availability checks are served from per-product counters cached in memory, loaded lazily,
+ * refreshed after every write made here and periodically reconciled with Mongo, so holds taken on
+ * another instance show up there within the reconcile interval.
+ */
+@Service
+@Slf4j
+public class ReservationService {
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+    // Recent commits tagged on each product; a partial commit is undone right after the write, well within this window
+    private static final String COMMITS_FIELD = "stockCommits";
+    private static final int COMMIT_MARKERS = 20;
+    private static final String HOLDS_FIELD = "holds";
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long holdTtlMillis;
+    private final Map<String, StockCounter> counters = new ConcurrentHashMap<>();
+
+    public ReservationService(
+            MongoTemplate mongoTemplate,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${product.reservation.ttl-seconds:600}") long holdTtlSeconds
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.holdTtlMillis = holdTtlSeconds * 1000;
+    }
+
+    public Response<List<StockLevelDTO>> getStockLevels(List<String> productIds) {
+        if (productIds == null || productIds.isEmpty()) return Response.badRequest("No product IDs provided");
+
+        Map<String, StockCounter> loaded = loadCounters(productIds);
+        List<StockLevelDTO> levels = productIds.stream()
+                .distinct()
+                .filter(loaded::containsKey)
+                .map(id -> toStockLevel(id, loaded.get(id)))
+                .toList();
+
+        return Response.when(
+                !levels.isEmpty(),
+                () -> Response.ok(levels, "Successfully retrieved stock levels"),
+                () -> Response.notFound("No products found!")
+        );
+    }
+
+    /**
+     * Units that can still be promised to a buyer, i.e. on-hand stock minus active holds.
+     */
+    public int available(String productId) {
+        StockCounter counter = loadCounters(List.of(productId)).get(productId);
+        return counter == null ? 0 : counter.available();
+    }
+
+    /**
+     * Available units of each known product, loading the missing counters with a single query per collection.
+     */
+    public Map<String, Integer> available(Collection<String> productIds) {
+        Map<String, Integer> available = new HashMap<>();
+        loadCounters(productIds).forEach((productId, counter) -> available.put(productId, counter.available()));
+        return available;
+    }
+
+    /**
+     * Holds every product or none: stock is read fresh from Mongo, each hold is added with an update
+     * guarded on that stock minus the holds still running, and the holds that went through are pulled
+     * again when another product is short.
+     */
+    public Response<ReservationDTO> reserve(Map<String, Integer> items) {
+        if (items == null || items.isEmpty()) return Response.badRequest("No products to reserve");
+        if (items.values().stream().anyMatch(quantity -> quantity == null || quantity <= 0))
+            return Response.badRequest("Quantities must be positive");
+
+        Date now = new Date();
+        Reservation reservation = Reservation.builder()
+                .id(UUID.randomUUID().toString())
+                .createdAt(now)
+                .expiresAt(new Date(now.getTime() + holdTtlMillis))
+                .build();
+        Map<String, Integer> onHand = findActiveQuantities(items.keySet());
+        if (!onHand.isEmpty()) createHolds(onHand.keySet());
+
+        Map<String, Integer> reserved = new LinkedHashMap<>();
+        List<String> unavailable = new ArrayList<>();
+        // Sorted ids keep the reservation order stable across concurrent checkouts
+        for (String productId : new TreeSet<>(items.keySet())) {
+            Integer stock = onHand.get(productId);
+            int quantity = items.get(productId);
+            if (stock != null && hold(productId, quantity, stock, reservation, now)) {
+                reserved.put(productId, quantity);
+            } else {
+                unavailable.add(productId);
+            }
+        }
+
+        if (!unavailable.isEmpty()) {
+            if (!reserved.isEmpty()) pullHolds(reserved.keySet(), reservation.getId());
+            return Response.badRequest(unavailable, "Some products are unavailable");
+        }
+
+        reservation.setItems(Collections.unmodifiableMap(reserved));
+        mongoTemplate.insert(reservation);
+        refreshFromStore(reserved.keySet());
+
+        log.info("====== Reservation {} created for {} products ======", reservation.getId(), reserved.size());
+        return Response.created(reservation.toDTO(ReservationStatus.HELD), "Products reserved successfully");
+    }
+
+    /**
+     * Turns a hold into a sale: the reservation is taken out of Mongo, so only one instance commits
+     * or releases it, stock is decremented with one bulk write guarded on the remaining quantity,
+     * then the holds are pulled.
+     * Each applied decrement tags the product with the reservation id, so when a guard fails the
+     * lines that did apply are found and put back and the commit leaves stock as it was.
+     */
+    public Response<ReservationDTO> commit(String reservationId) {
+        Date now = new Date();
+        Reservation reservation = claim(reservationId, now);
+        if (reservation == null) return Response.notFound("Reservation not found or expired");
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Products.class);
+        reservation.getItems().forEach((productId, quantity) -> operations.updateOne(
+                Query.query(Criteria.where("_id").is(productId).and("quantity").gte(quantity)),
+                new Update().inc("quantity", -quantity).set("updatedAt", now)
+                        .push(COMMITS_FIELD).slice(-COMMIT_MARKERS).each(reservationId)
+        ));
+        BulkWriteResult result = operations.execute();
+        eventPublisher.publishEvent(ProductsChangedEvent.of(reservation.getItems().keySet()));
+
+        if (result.getMatchedCount() < reservation.getItems().size()) {
+            if (result.getMatchedCount() > 0) undoCommit(reservation, now);
+            pullHolds(reservation.getItems().keySet(), reservationId);
+            refreshFromStore(reservation.getItems().keySet());
+            log.warn("====== Reservation {} not committed, stock changed while held ======", reservationId);
+            return Response.conflict("Stock changed for some products while they were reserved");
+        }
+
+        // Pulled after the decrement, so the units are never counted as free in between
+        pullHolds(reservation.getItems().keySet(), reservationId);
+        eventPublisher.publishEvent(new ProductsSoldEvent(reservation.getItems()));
+        refreshFromStore(reservation.getItems().keySet());
+
+        log.info("====== Reservation {} committed ======", reservationId);
+        return Response.ok(reservation.toDTO(ReservationStatus.COMMITTED), "Reservation committed successfully");
+    }
+
+    public Response<ReservationDTO> release(String reservationId) {
+        Reservation reservation = claim(reservationId, new Date());
+        if (reservation == null) return Response.notFound("Reservation not found or expired");
+
+        pullHolds(reservation.getItems().keySet(), reservationId);
+        refreshFromStore(reservation.getItems().keySet());
+        log.info("====== Reservation {} released ======", reservationId);
+        return Response.ok(reservation.toDTO(ReservationStatus.RELEASED), "Reservation released successfully");
+    }
+
+    /**
+     * Called after product writes so counters see the new stock without waiting for reconciliation.
+     */
+    public void refresh(Collection<Products> products) {
+        products.forEach(product -> {
+            if (!product.isActive() || product.isDeleted()) {
+                counters.remove(product.getId());
+                return;
+            }
+            StockCounter counter = counters.get(product.getId());
+            if (counter != null && product.getQuantity() != null) counter.reset(product.getQuantity());
+        });
+    }
+
+    public void evict(Collection<String> productIds) {
+        productIds.forEach(counters::remove);
+    }
+
+    /**
+     * Expired holds already stop counting in the guard; this only removes them, which any instance
+     * can do, and refreshes the counters of the products they were on.
+     */
+    @Scheduled(fixedDelayString = "${product.reservation.sweep-interval-ms:5000}")
+    public void expireHolds() {
+        Date now = new Date();
+        Query expired = Query.query(Criteria.where(HOLDS_FIELD + ".expiresAt").lte(now));
+        expired.fields().include("_id");
+        List<String> productIds = mongoTemplate.find(expired, StockHolds.class).stream()
+                .map(StockHolds::getProductId)
+                .toList();
+        if (productIds.isEmpty()) return;
+
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(productIds)),
+                new Update().pull(HOLDS_FIELD, new Document("expiresAt", new Document("$lte", now))),
+                StockHolds.class
+        );
+        refreshFromStore(productIds);
+        log.info("====== Expired holds removed from {} products ======", productIds.size());
+    }
+
+    @Scheduled(fixedDelayString = "${product.reservation.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        List<String> productIds = new ArrayList<>(counters.keySet());
+        for (int from = 0; from < productIds.size(); from += RECONCILE_BATCH_SIZE) {
+            refreshFromStore(productIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, productIds.size())));
+        }
+    }
+
+    /**
+     * Removes the reservation if it has not expired, so a second commit or release, on this
+     * instance or another, finds nothing.
+     */
+    private Reservation claim(String reservationId, Date now) {
+        return mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("_id").is(reservationId).and("expiresAt").gt(now)),
+                Reservation.class
+        );
+    }
+
+    /**
+     * Adds the hold unless the quantity plus the holds not expired yet would exceed the stock read.
+     */
+    private boolean hold(String productId, int quantity, int onHand, Reservation reservation, Date now) {
+        Document running = new Document("$filter", new Document("input", new Document("$ifNull", List.of("$" + HOLDS_FIELD, List.of())))
+                .append("as", "hold")
+                .append("cond", new Document("$gt", List.of("$$hold.expiresAt", now))));
+        Document held = new Document("$sum", new Document("$map", new Document("input", running)
+                .append("as", "hold")
+                .append("in", "$$hold.quantity")));
+        Query guard = new BasicQuery(new Document("_id", productId)
+                .append("$expr", new Document("$lte", List.of(new Document("$add", List.of(held, quantity)), onHand))));
+
+        Update update = new Update().push(HOLDS_FIELD,
+                new StockHolds.Hold(reservation.getId(), quantity, reservation.getExpiresAt()));
+        return mongoTemplate.updateFirst(guard, update, StockHolds.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * The guarded update needs a document to match, so products without one get an empty one first.
+     */
+    private void createHolds(Collection<String> productIds) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StockHolds.class);
+        productIds.forEach(productId -> operations.upsert(
+                Query.query(Criteria.where("_id").is(productId)),
+                new Update().setOnInsert(HOLDS_FIELD, List.of())
+        ));
+        operations.execute();
+    }
+
+    private void pullHolds(Collection<String> productIds, String reservationId) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(productIds)),
+                new Update().pull(HOLDS_FIELD, new Document("reservationId", reservationId)),
+                StockHolds.class
+        );
+    }
+
+    /**
+     * Reloads the counters this instance already has; the others are loaded when first asked for.
+     */
+    private void refreshFromStore(Collection<String> productIds) {
+        List<String> cached = productIds.stream().filter(counters::containsKey).distinct().toList();
+        if (cached.isEmpty()) return;
+
+        long readStartedNanos = System.nanoTime();
+        Map<String, Integer> quantities = findActiveQuantities(cached);
+        Map<String, Integer> reserved = findReserved(quantities.keySet());
+        cached.forEach(productId -> {
+            Integer quantity = quantities.get(productId);
+            if (quantity == null) {
+                counters.remove(productId);
+                return;
+            }
+            StockCounter counter = counters.get(productId);
+            if (counter != null) counter.reset(quantity, reserved.getOrDefault(productId, 0), readStartedNanos);
+        });
+    }
+
+    /**
+     * Puts back the decrements of a partially applied commit: only products still tagged with the
+     * reservation id had their guard pass, and the tag is removed with the increment so it runs once.
+     */
+    private void undoCommit(Reservation reservation, Date now) {
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Products.class);
+        reservation.getItems().forEach((productId, quantity) -> operations.updateOne(
+                Query.query(Criteria.where("_id").is(productId).and(COMMITS_FIELD).is(reservation.getId())),
+                new Update().inc("quantity", quantity).set("updatedAt", now).pull(COMMITS_FIELD, reservation.getId())
+        ));
+        BulkWriteResult result = operations.execute();
+        log.info("====== Reservation {}: {} applied decrements put back ======", reservation.getId(), result.getModifiedCount());
+    }
+
+    private Map<String, StockCounter> loadCounters(Collection<String> productIds) {
+        List<String> missing = productIds.stream()
+                .filter(id -> !counters.containsKey(id))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            long readStartedNanos = System.nanoTime();
+            Map<String, Integer> quantities = findActiveQuantities(missing);
+            Map<String, Integer> reserved = quantities.isEmpty() ? Map.of() : findReserved(quantities.keySet());
+            quantities.forEach((productId, quantity) -> counters.putIfAbsent(
+                    productId, new StockCounter(quantity, reserved.getOrDefault(productId, 0), readStartedNanos)));
+        }
+
+        Map<String, StockCounter> loaded = new HashMap<>();
+        productIds.forEach(id -> {
+            StockCounter counter = counters.get(id);
+            if (counter != null) loaded.put(id, counter);
+        });
+        return loaded;
+    }
+
+    private Map<String, Integer> findReserved(Collection<String> productIds) {
+        Date now = new Date();
+        Map<String, Integer> reserved = new HashMap<>();
+        mongoTemplate.find(Query.query(Criteria.where("_id").in(productIds)), StockHolds.class)
+                .forEach(holds -> reserved.put(holds.getProductId(), holds.reserved(now)));
+        return reserved;
+    }
+
+    private Map<String, Integer> findActiveQuantities(Collection<String> productIds) {
+        Query query = Query.query(Criteria.where("_id").in(productIds)
+                .and("active").is(true)
+                .and("deleted").is(false));
+        query.fields().include("quantity");
+
+        Map<String, Integer> quantities = new HashMap<>();
+        mongoTemplate.find(query, Products.class).forEach(product ->
+                quantities.put(product.getId(), product.getQuantity() == null ? 0 : product.getQuantity()));
+        return quantities;
+    }
+
+    private StockLevelDTO toStockLevel(String productId, StockCounter counter) {
+        return StockLevelDTO.builder()
+                .productId(productId)
+                .onHand(counter.onHand())
+                .reserved(counter.reserved())
+                .available(counter.available())
+                .build();
+    }
+}
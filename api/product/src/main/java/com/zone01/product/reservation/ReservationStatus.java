@@ -0,0 +1,7 @@
+package com.zone01.product.reservation;
+
+public enum ReservationStatus {
+    HELD,
+    COMMITTED,
+    RELEASED
+}
@@ -0,0 +1,25 @@
+package com.zone01.product.reservation;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.StockLevelDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/v1/product/stock")
+public class StockController {
+    private final ReservationService reservationService;
+
+    @GetMapping()
+    public ResponseEntity<Response<List<StockLevelDTO>>> getStockLevels(@RequestParam List<String> ids) {
+        Response<List<StockLevelDTO>> response = reservationService.getStockLevels(ids);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+}
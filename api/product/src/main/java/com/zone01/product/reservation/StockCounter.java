@@ -0,0 +1,62 @@
+package com.zone01.product.reservation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free snapshot of a single product's stock, as last read from Mongo.
+ * On-hand stock and reserved units are packed in one AtomicLong
+ * (high 32 bits = on hand, low 32 bits = reserved) so both are always read and replaced together.
+ */
+final class StockCounter {
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+
+    private final AtomicLong state;
+    private volatile long lastReadNanos;
+
+    StockCounter(int onHand, int reserved, long readStartedNanos) {
+        this.state = new AtomicLong(pack(Math.max(onHand, 0), Math.max(reserved, 0)));
+        this.lastReadNanos = readStartedNanos;
+    }
+
+    /**
+     * Replaces the on-hand stock with a fresh value, keeping the holds.
+     */
+    void reset(int onHand) {
+        state.getAndUpdate(current -> pack(Math.max(onHand, 0), reserved(current)));
+    }
+
+    /**
+     * Replaces both values, unless a read started later was already applied,
+     * so a slow reconciliation never resurrects stock that was just sold or held.
+     */
+    void reset(int onHand, int reserved, long readStartedNanos) {
+        if (readStartedNanos - lastReadNanos < 0) return;
+        lastReadNanos = readStartedNanos;
+        state.set(pack(Math.max(onHand, 0), Math.max(reserved, 0)));
+    }
+
+    int onHand() {
+        return onHand(state.get());
+    }
+
+    int reserved() {
+        return reserved(state.get());
+    }
+
+    int available() {
+        long current = state.get();
+        return Math.max(onHand(current) - reserved(current), 0);
+    }
+
+    private static long pack(int onHand, int reserved) {
+        return ((long) onHand << 32) | (reserved & LOW_MASK);
+    }
+
+    private static int onHand(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) (state & LOW_MASK);
+    }
+}
@@ -0,0 +1,38 @@
+package com.zone01.product.reservation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The checkout holds on one product, shared by every instance. A hold is added with an update
+ * guarded on the product's stock minus the holds not expired yet, so two buyers on two instances
+ * cannot both take the last unit. Expired holds stop counting at once and are pulled by the sweep.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "stock_holds")
+@CompoundIndex(name = "hold_expiry", def = "{'holds.expiresAt': 1}")
+class StockHolds {
+    @Id
+    private String productId;
+    private List<Hold> holds;
+
+    int reserved(Date now) {
+        if (holds == null) return 0;
+        return holds.stream()
+                .filter(hold -> hold.expiresAt().after(now))
+                .mapToInt(Hold::quantity)
+                .sum();
+    }
+
+    record Hold(String reservationId, int quantity, Date expiresAt) {
+    }
+}
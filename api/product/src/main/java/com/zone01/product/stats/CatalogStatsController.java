@@ -0,0 +1,30 @@
+package com.zone01.product.stats;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.CatalogStatsDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/v1/product/stats")
+public class CatalogStatsController {
+    private final CatalogStatsService catalogStatsService;
+
+    @GetMapping()
+    public ResponseEntity<Response<CatalogStatsDTO>> getCatalogStats() {
+        Response<CatalogStatsDTO> response = catalogStatsService.getCatalogStats();
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+
+    @GetMapping("/sellers/{id}")
+    public ResponseEntity<Response<CatalogStatsDTO>> getSellerStats(@PathVariable String id, HttpServletRequest request) {
+        Response<CatalogStatsDTO> response = catalogStatsService.getSellerStats(id, request);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+}
@@ -0,0 +1,321 @@
+package com.zone01.product.stats;
+
+import com.buy01.common.lease.Leases;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.zone01.product.config.kafka.AccessValidation;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.CatalogStatsDTO;
+import com.zone01.product.model.dto.UserDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsChangedEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Keeps {@code seller_catalog_stats} in step with the products collection: every product write
+ * turns into {@code $inc}s on its seller's document and on the catalog document, so reading a
+ * dashboard is a single lookup by id. The per-product {@link StatsEntry} remembers what each
+ * product was last counted as, which is what the delta is taken against.
+ * <p>
+ * A write lost between the product and its stats (crash, failed update) is repaired by
+ * {@link #rebuild()}, which recomputes both collections from the products.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogStatsService {
+    static final String ACTIVE = "active";
+    static final String INACTIVE = "inactive";
+    static final String DELETED = "deleted";
+    private static final int MAX_ATTEMPTS = 5;
+    private static final String REFRESHES_FIELD = "refreshes";
+    private static final int REFRESH_MARKERS = 10;
+    private static final String GENERATION_FIELD = "generation";
+    private static final String REBUILD_LEASE = "catalog-stats-rebuild";
+    private static final Duration REBUILD_LEASE_TTL = Duration.ofMinutes(15);
+
+    private final MongoTemplate mongoTemplate;
+    private final Leases leases;
+
+    /**
+     * Only the seller can read their own stats; the whole-catalog totals stay public.
+     */
+    public Response<CatalogStatsDTO> getSellerStats(String sellerId, HttpServletRequest request) {
+        UserDTO currentUser = AccessValidation.getCurrentUser(request);
+        if (currentUser == null) return Response.unauthorized("Authentication is required to read seller stats");
+        if (!currentUser.getId().equals(sellerId))
+            return Response.forbidden("You're not authorized to perform this action.");
+
+        SellerCatalogStats stats = mongoTemplate.findById(sellerId, SellerCatalogStats.class);
+        return stats == null
+                ? Response.ok(SellerCatalogStats.builder().id(sellerId).build().toDTO(), "Seller has no products")
+                : Response.ok(stats.toDTO(), "Successfully retrieved seller stats");
+    }
+
+    public Response<CatalogStatsDTO> getCatalogStats() {
+        SellerCatalogStats stats = mongoTemplate.findById(SellerCatalogStats.CATALOG_ID, SellerCatalogStats.class);
+        if (stats == null) stats = SellerCatalogStats.builder().id(SellerCatalogStats.CATALOG_ID).build();
+        return Response.ok(stats.toDTO(), "Successfully retrieved catalog stats");
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        try {
+            refresh(event.productIds());
+        } catch (DataAccessException e) {
+            log.error("====== Failed to update catalog stats for {}: {} ======", event.productIds(), e.getMessage());
+        }
+    }
+
+    /**
+     * Moves each product's entry to what the product is now and applies the differences, grouped into
+     * one {@code $inc} per seller. All entries are swapped in one bulk write; the ones a concurrent writer
+     * changed first are re-read and retried together.
+     */
+    public void refresh(Collection<String> productIds) {
+        if (productIds.isEmpty()) return;
+
+        List<String> ids = List.copyOf(new LinkedHashSet<>(productIds));
+        Map<String, Swap> pending = swaps(ids, findProducts(ids), findEntries(ids));
+        Map<String, Map<String, Number>> deltas = new HashMap<>();
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            Set<String> conflicts = swapAll(pending);
+            pending.forEach((id, swap) -> {
+                if (conflicts.contains(id)) return;
+                addDelta(deltas, swap.previous(), -1);
+                addDelta(deltas, swap.next(), 1);
+            });
+            if (conflicts.isEmpty()) break;
+            if (attempt == MAX_ATTEMPTS) {
+                log.warn("====== Catalog stats of products {} kept changing, left for the rebuild ======", conflicts);
+                break;
+            }
+            pending = swaps(conflicts, findProducts(conflicts), findEntries(conflicts));
+        }
+        if (deltas.isEmpty()) return;
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SellerCatalogStats.class);
+        deltas.forEach((target, delta) -> {
+            // Server time, so the rebuild can tell these apart from the documents it replaced
+            Update update = new Update().currentDate("updatedAt");
+            delta.forEach((field, value) -> {
+                if (value.doubleValue() != 0) update.inc(field, value);
+            });
+            operations.upsert(Query.query(Criteria.where("_id").is(target)), update);
+        });
+        operations.execute();
+    }
+
+    /**
+     * Recomputes the entries from the products, then the stats from the entries, with server-side
+     * {@code $merge}s. Runs nightly and on the first start without stats, on the one instance that takes
+     * the rebuild lease.
+     */
+    @Scheduled(cron = "${product.stats.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        // Not released when done, so the other instances' runs of the same schedule are skipped too
+        if (!leases.tryAcquire(REBUILD_LEASE, REBUILD_LEASE_TTL)) {
+            log.info("====== Catalog stats are being rebuilt by another instance ======");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        String entries = mongoTemplate.getCollectionName(StatsEntry.class);
+        String stats = mongoTemplate.getCollectionName(SellerCatalogStats.class);
+        String generation = new ObjectId().toHexString();
+        try {
+            Date serverStart = mongoTemplate.executeCommand(new Document("hello", 1)).getDate("localTime");
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(Products.class)).aggregate(List.of(
+                    new Document("$match", new Document("user_id", new Document("$ne", null))),
+                    new Document("$project", new Document("sellerId", "$user_id")
+                            .append("status", new Document("$cond", List.of("$deleted", DELETED,
+                                    new Document("$cond", List.of("$active", ACTIVE, INACTIVE)))))
+                            .append("quantity", new Document("$cond", List.of("$deleted", 0L,
+                                    new Document("$toLong", new Document("$ifNull", List.of("$quantity", 0))))))
+                            .append("value", new Document("$cond", List.of("$deleted", 0.0,
+                                    new Document("$multiply", List.of(
+                                            new Document("$ifNull", List.of("$price", 0.0)),
+                                            new Document("$ifNull", List.of("$quantity", 0)))))))
+                            .append("version", 0L)),
+                    new Document("$merge", new Document("into", entries).append("whenMatched", "replace"))
+            )).toCollection();
+
+            Map<String, Document> totals = new LinkedHashMap<>();
+            totals.put(ACTIVE, sumIf(ACTIVE, 1L));
+            totals.put(INACTIVE, sumIf(INACTIVE, 1L));
+            totals.put(DELETED, sumIf(DELETED, 1L));
+            totals.put("activeStock", sumIf(ACTIVE, "$quantity"));
+            totals.put("inactiveStock", sumIf(INACTIVE, "$quantity"));
+            totals.put("activeStockValue", sumIf(ACTIVE, "$value"));
+            totals.put("inactiveStockValue", sumIf(INACTIVE, "$value"));
+            for (Object groupId : List.of("$sellerId", SellerCatalogStats.CATALOG_ID)) {
+                Document group = new Document("_id", groupId);
+                group.putAll(totals);
+                mongoTemplate.getCollection(entries).aggregate(List.of(
+                        new Document("$group", group),
+                        new Document("$set", new Document("updatedAt", "$$NOW").append(GENERATION_FIELD, generation)),
+                        new Document("$merge", new Document("into", stats).append("whenMatched", "replace"))
+                )).toCollection();
+            }
+            // Sellers whose products were all purged since the last run: not written by this rebuild,
+            // nor by a refresh since it started (both times are the server's)
+            mongoTemplate.remove(Query.query(Criteria.where(GENERATION_FIELD).ne(generation).and("updatedAt").lt(serverStart)),
+                    SellerCatalogStats.class);
+            log.info("====== Catalog stats rebuilt in {} ms ======", System.currentTimeMillis() - start);
+        } catch (DataAccessException | MongoException e) {
+            log.error("====== Failed to rebuild catalog stats: {} ======", e.getMessage());
+        }
+    }
+
+    private static Document sumIf(String status, Object value) {
+        return new Document("$sum", new Document("$cond", List.of(
+                new Document("$eq", List.of("$status", status)), value, 0)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!mongoTemplate.exists(new Query(), SellerCatalogStats.class)) rebuild();
+    }
+
+    /**
+     * The entries to replace, and with what; products already counted as they are need none.
+     */
+    private static Map<String, Swap> swaps(Collection<String> ids, Map<String, Products> products, Map<String, StatsEntry> entries) {
+        Map<String, Swap> swaps = new LinkedHashMap<>();
+        for (String id : ids) {
+            StatsEntry entry = entries.get(id);
+            Contribution previous = Contribution.of(entry);
+            Contribution next = Contribution.of(products.get(id));
+            if (!Objects.equals(next, previous)) swaps.put(id, new Swap(entry, previous, next));
+        }
+        return swaps;
+    }
+
+    /**
+     * Replaces each entry only if nobody else has since it was read, in one bulk write. Each write leaves
+     * a marker on its entry so that, when only some of them applied, the ones that did can be told apart.
+     *
+     * @return the ids whose entry was changed by someone else first
+     */
+    private Set<String> swapAll(Map<String, Swap> swaps) {
+        String refreshId = new ObjectId().toHexString();
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StatsEntry.class);
+        swaps.forEach((id, swap) -> {
+            Contribution next = swap.next();
+            if (swap.entry() == null) {
+                operations.insert(new StatsEntry(id, next.sellerId(), next.status(), next.quantity(), next.value(), 0L, List.of(refreshId)));
+                return;
+            }
+            Query current = Query.query(Criteria.where("_id").is(id).and("version").is(swap.entry().getVersion()));
+            if (next == null) {
+                operations.remove(current);
+                return;
+            }
+            operations.updateOne(current, new Update()
+                    .set("sellerId", next.sellerId())
+                    .set("status", next.status())
+                    .set("quantity", next.quantity())
+                    .set("value", next.value())
+                    .inc("version", 1)
+                    .push(REFRESHES_FIELD).slice(-REFRESH_MARKERS).each(refreshId));
+        });
+
+        BulkWriteResult result;
+        try {
+            result = operations.execute();
+        } catch (BulkOperationException e) {
+            // Entries inserted by another writer in the meantime
+            result = e.getResult();
+        }
+        int applied = result.getInsertedCount() + result.getModifiedCount() + result.getDeletedCount();
+        if (applied == swaps.size()) return Set.of();
+        if (applied == 0) return new LinkedHashSet<>(swaps.keySet());
+
+        Map<String, StatsEntry> entries = findEntries(swaps.keySet());
+        Set<String> conflicts = new LinkedHashSet<>();
+        swaps.forEach((id, swap) -> {
+            StatsEntry entry = entries.get(id);
+            // A removed entry never comes back: its product is gone or has no seller
+            boolean done = swap.next() == null
+                    ? entry == null
+                    : entry != null && entry.getRefreshes() != null && entry.getRefreshes().contains(refreshId);
+            if (!done) conflicts.add(id);
+        });
+        return conflicts;
+    }
+
+    private static void addDelta(Map<String, Map<String, Number>> deltas, Contribution contribution, int sign) {
+        if (contribution == null) return;
+        for (String target : List.of(contribution.sellerId(), SellerCatalogStats.CATALOG_ID)) {
+            Map<String, Number> delta = deltas.computeIfAbsent(target, key -> new HashMap<>());
+            delta.merge(contribution.status(), (long) sign, CatalogStatsService::sum);
+            if (DELETED.equals(contribution.status())) continue;
+            delta.merge(contribution.status() + "Stock", sign * contribution.quantity(), CatalogStatsService::sum);
+            delta.merge(contribution.status() + "StockValue", sign * contribution.value(), CatalogStatsService::sum);
+        }
+    }
+
+    private static Number sum(Number a, Number b) {
+        if (a instanceof Double || b instanceof Double) return a.doubleValue() + b.doubleValue();
+        return a.longValue() + b.longValue();
+    }
+
+    private Map<String, Products> findProducts(Collection<String> ids) {
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("userID", "price", "quantity", "active", "deleted");
+        Map<String, Products> products = new HashMap<>();
+        mongoTemplate.find(query, Products.class).forEach(product -> products.put(product.getId(), product));
+        return products;
+    }
+
+    private Map<String, StatsEntry> findEntries(Collection<String> ids) {
+        Map<String, StatsEntry> entries = new HashMap<>();
+        mongoTemplate.find(Query.query(Criteria.where("_id").in(ids)), StatsEntry.class)
+                .forEach(entry -> entries.put(entry.getId(), entry));
+        return entries;
+    }
+
+    /**
+     * One entry moving from what it counted to what its product is now.
+     */
+    record Swap(StatsEntry entry, Contribution previous, Contribution next) {
+    }
+
+    /**
+     * What one product adds to its seller's stats; products without a seller count for nothing.
+     */
+    record Contribution(String sellerId, String status, long quantity, double value) {
+
+        static Contribution of(Products product) {
+            if (product == null || product.getUserID() == null) return null;
+            if (product.isDeleted()) return new Contribution(product.getUserID(), DELETED, 0, 0.0);
+
+            long quantity = product.getQuantity() == null ? 0 : product.getQuantity();
+            double price = product.getPrice() == null ? 0.0 : product.getPrice();
+            return new Contribution(product.getUserID(), product.isActive() ? ACTIVE : INACTIVE, quantity, price * quantity);
+        }
+
+        static Contribution of(StatsEntry entry) {
+            if (entry == null) return null;
+            return new Contribution(entry.getSellerId(), entry.getStatus(), entry.getQuantity(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.zone01.product.stats;
+
+import com.zone01.product.model.dto.CatalogStatsDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+import java.util.Date;
+
+/**
+ * Product counts and stock totals of one seller, or of the whole catalog under {@link #CATALOG_ID}.
+ * Deleted products are counted but hold no stock.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "seller_catalog_stats")
+public class SellerCatalogStats {
+    public static final String CATALOG_ID = "catalog";
+
+    // Kept as a string so incremental upserts and the rebuild aggregation address the same document
+    @MongoId(FieldType.STRING)
+    private String id;
+    private long active;
+    private long inactive;
+    private long deleted;
+    private long activeStock;
+    private long inactiveStock;
+    private double activeStockValue;
+    private double inactiveStockValue;
+    private Date updatedAt;
+
+    public CatalogStatsDTO toDTO() {
+        return CatalogStatsDTO.builder()
+                .sellerId(CATALOG_ID.equals(id) ? null : id)
+                .active(active)
+                .inactive(inactive)
+                .deleted(deleted)
+                .activeStock(activeStock)
+                .inactiveStock(inactiveStock)
+                .activeStockValue(Math.round(activeStockValue * 100) / 100.0)
+                .inactiveStockValue(Math.round(inactiveStockValue * 100) / 100.0)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.zone01.product.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * What one product currently adds to its seller's stats. Comparing it with the product gives the
+ * delta to {@code $inc}; {@code version} makes replacing it a compare-and-set, so two writers never
+ * apply the same delta twice.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "seller_catalog_stats_entries")
+class StatsEntry {
+    @Id
+    private String id;
+    private String sellerId;
+    private String status;
+    private long quantity;
+    private double value;
+    private long version;
+    // Last refreshes that wrote this entry, to tell which writes of a partly applied bulk went through
+    private List<String> refreshes;
+}
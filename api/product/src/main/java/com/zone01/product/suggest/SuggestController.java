@@ -0,0 +1,28 @@
+package com.zone01.product.suggest;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.SuggestionDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/v1/product/suggest")
+public class SuggestController {
+    private final SuggestionIndex suggestionIndex;
+
+    @GetMapping()
+    public ResponseEntity<Response<List<SuggestionDTO>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        Response<List<SuggestionDTO>> response = suggestionIndex.suggest(q, limit);
+        return ResponseEntity.status(response.getStatus()).body(response);
+    }
+}
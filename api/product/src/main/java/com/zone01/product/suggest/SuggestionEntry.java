@@ -0,0 +1,58 @@
+package com.zone01.product.suggest;
+
+import com.zone01.product.model.dto.SuggestionDTO;
+
+import java.util.Comparator;
+
+/**
+ * One indexed product name. Entries are ordered by normalized name then id inside the index,
+ * and ranked by stock, popularity and name length when picking suggestions.
+ */
+final class SuggestionEntry {
+    static final Comparator<SuggestionEntry> KEY_ORDER = SuggestionEntry::compareKeys;
+    static final Comparator<SuggestionEntry> RANK_ORDER = SuggestionEntry::compareRanks;
+
+    final String id;
+    final String name;
+    final String key;
+    final boolean inStock;
+    // Units sold since startup; only written inside the index's per-id compute
+    volatile long popularity;
+
+    SuggestionEntry(String id, String name, String key, boolean inStock, long popularity) {
+        this.id = id;
+        this.name = name;
+        this.key = key;
+        this.inStock = inStock;
+        this.popularity = popularity;
+    }
+
+    /**
+     * Boundary used to address the range of keys starting with a prefix.
+     */
+    static SuggestionEntry probe(String key) {
+        return new SuggestionEntry("", key, key, false, 0);
+    }
+
+    // Hand-written rather than composed comparators: ranking runs on every scanned name
+    private static int compareKeys(SuggestionEntry first, SuggestionEntry second) {
+        int byKey = first.key.compareTo(second.key);
+        return byKey != 0 ? byKey : first.id.compareTo(second.id);
+    }
+
+    private static int compareRanks(SuggestionEntry first, SuggestionEntry second) {
+        if (first.inStock != second.inStock) return first.inStock ? -1 : 1;
+        int byPopularity = Long.compare(second.popularity, first.popularity);
+        if (byPopularity != 0) return byPopularity;
+        int byLength = Integer.compare(first.name.length(), second.name.length());
+        return byLength != 0 ? byLength : compareKeys(first, second);
+    }
+
+    SuggestionDTO toDTO() {
+        return SuggestionDTO.builder()
+                .productId(id)
+                .name(name)
+                .inStock(inStock)
+                .build();
+    }
+}
@@ -0,0 +1,192 @@
+package com.zone01.product.suggest;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.SuggestionDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsChangedEvent;
+import com.zone01.product.product.ProductsSoldEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory prefix index over the names of active products, used for typeahead instead of regex searches.
+ * Names live in a sorted set so a prefix is a contiguous range; the best matches of recently typed
+ * prefixes are cached and dropped whenever a product whose name starts with them changes or sells.
+ */
+@Service
+@Slf4j
+public class SuggestionIndex {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final int maxLimit;
+    private final int scanLimit;
+    private final NavigableSet<SuggestionEntry> entries = new ConcurrentSkipListSet<>(SuggestionEntry.KEY_ORDER);
+    private final Map<String, SuggestionEntry> byId = new ConcurrentHashMap<>();
+    private final Cache<String, List<SuggestionEntry>> topMatches;
+    // Ids written while the startup build runs, re-read once it is done
+    private volatile Set<String> changedDuringBuild;
+
+    public SuggestionIndex(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${product.suggest.max-limit:10}") int maxLimit,
+            @Value("${product.suggest.scan-limit:5000}") int scanLimit,
+            @Value("${product.suggest.prefix-cache-size:20000}") long prefixCacheSize
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxLimit = maxLimit;
+        this.scanLimit = scanLimit;
+        this.topMatches = Caffeine.newBuilder()
+                .maximumSize(prefixCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, topMatches, "product-suggestions");
+    }
+
+    public Response<List<SuggestionDTO>> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) return Response.badRequest("Query must not be empty");
+
+        List<SuggestionDTO> suggestions = topMatches.get(prefix, this::findTopMatches).stream()
+                .limit(Math.max(1, Math.min(limit, maxLimit)))
+                .map(SuggestionEntry::toDTO)
+                .toList();
+        return Response.ok(suggestions, "Successfully retrieved suggestions");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        changedDuringBuild = ConcurrentHashMap.newKeySet();
+        Query query = Query.query(Criteria.where("active").is(true).and("deleted").is(false));
+        query.fields().include("name", "quantity");
+        query.cursorBatchSize(BUILD_BATCH_SIZE);
+
+        try (Stream<Products> products = mongoTemplate.stream(query, Products.class)) {
+            products.forEach(product -> byId.computeIfAbsent(product.getId(), id -> {
+                SuggestionEntry entry = toEntry(product, 0);
+                if (entry != null) entries.add(entry);
+                return entry;
+            }));
+        }
+
+        Set<String> changed = changedDuringBuild;
+        changedDuringBuild = null;
+        if (!changed.isEmpty()) refresh(changed);
+        log.info("====== Suggestion index built with {} product names ======", byId.size());
+    }
+
+    @EventListener
+    public void onProductsChanged(ProductsChangedEvent event) {
+        refresh(event.productIds());
+    }
+
+    /**
+     * Sales change the ranking, so the cached best matches of the sold names' prefixes are dropped too.
+     */
+    @EventListener
+    public void onProductsSold(ProductsSoldEvent event) {
+        event.quantities().forEach((productId, quantity) -> byId.computeIfPresent(productId, (id, entry) -> {
+            entry.popularity += quantity;
+            invalidatePrefixes(entry.key);
+            return entry;
+        }));
+    }
+
+    /**
+     * Re-reads the given products and re-indexes, renames or drops them.
+     */
+    public void refresh(Collection<String> productIds) {
+        if (productIds.isEmpty()) return;
+        Set<String> building = changedDuringBuild;
+        if (building != null) building.addAll(productIds);
+
+        Query query = Query.query(Criteria.where("_id").in(productIds)
+                .and("active").is(true)
+                .and("deleted").is(false));
+        query.fields().include("name", "quantity");
+        Map<String, Products> current = new HashMap<>();
+        mongoTemplate.find(query, Products.class).forEach(product -> current.put(product.getId(), product));
+
+        productIds.forEach(productId -> byId.compute(productId, (id, previous) -> {
+            SuggestionEntry updated = current.containsKey(id)
+                    ? toEntry(current.get(id), previous == null ? 0 : previous.popularity)
+                    : null;
+            if (previous != null) {
+                entries.remove(previous);
+                invalidatePrefixes(previous.key);
+            }
+            if (updated != null) {
+                entries.add(updated);
+                invalidatePrefixes(updated.key);
+            }
+            return updated;
+        }));
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Ranks the range of names starting with the prefix, keeping only the best {@code maxLimit}.
+     * The scan stops after {@code scanLimit} names so one- or two-letter prefixes stay bounded.
+     */
+    private List<SuggestionEntry> findTopMatches(String prefix) {
+        PriorityQueue<SuggestionEntry> best = new PriorityQueue<>(maxLimit, SuggestionEntry.RANK_ORDER.reversed());
+        int scanned = 0;
+        for (SuggestionEntry entry : entries.subSet(
+                SuggestionEntry.probe(prefix), true, SuggestionEntry.probe(prefix + Character.MAX_VALUE), false)) {
+            if (best.size() < maxLimit) {
+                best.offer(entry);
+            } else if (SuggestionEntry.RANK_ORDER.compare(entry, best.peek()) < 0) {
+                best.poll();
+                best.offer(entry);
+            }
+            if (++scanned >= scanLimit) break;
+        }
+
+        List<SuggestionEntry> ranked = new ArrayList<>(best);
+        ranked.sort(SuggestionEntry.RANK_ORDER);
+        return ranked;
+    }
+
+    private void invalidatePrefixes(String key) {
+        for (int length = 1; length <= key.length(); length++) {
+            topMatches.invalidate(key.substring(0, length));
+        }
+    }
+
+    private static SuggestionEntry toEntry(Products product, long popularity) {
+        String key = normalize(product.getName());
+        if (key.isEmpty()) return null;
+        // Reuse the name when normalizing did not change it
+        String name = key.equals(product.getName()) ? key : product.getName();
+        boolean inStock = product.getQuantity() != null && product.getQuantity() > 0;
+        return new SuggestionEntry(product.getId(), name, key, inStock, popularity);
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,260 @@
+package com.zone01.product.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.product.config.kafka.AccessValidation;
+import com.zone01.product.export.CatalogExportService;
+import com.zone01.product.model.CatalogFormat;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.Role;
+import com.zone01.product.model.dto.ImportJobDTO;
+import com.zone01.product.model.dto.ImportRowErrorDTO;
+import com.zone01.product.model.dto.UserDTO;
+import com.zone01.product.product.Products;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Validation;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ReplyingKafkaTemplate<String, String, Response<?>> replyingAuthKafkaTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Products>> inserted;
+
+    private ProductImportService productImportService;
+
+    @BeforeEach
+    void setUp() {
+        productImportService = new ProductImportService(
+                mongoTemplate,
+                new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                eventPublisher,
+                2, 1024 * 1024, 100, 1, 1
+        );
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Products.class)).thenReturn(bulkOperations);
+        lenient().when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productImportService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should insert valid CSV rows in chunks and report invalid rows by line")
+    void run_Csv() throws Exception {
+        ImportJobDTO result = runImport(CatalogFormat.CSV, """
+                name,description,price,quantity
+                Desk Lamp,"Warm light, adjustable arm",25.5,4
+                Chair,Comfortable office chair,abc,2
+
+                Table,Solid oak dining table,199,1
+                Shelf,Wall shelf for books,15,3
+                """);
+
+        assertEquals("COMPLETED", result.getStatus());
+        assertEquals(4, result.getProcessed());
+        assertEquals(3, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(3, result.getErrors().get(0).getRow());
+        assertTrue(result.getErrors().get(0).getErrors().contains("Price must be a number"));
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test
+    @DisplayName("Should reject malformed and invalid NDJSON rows")
+    void run_Ndjson() throws Exception {
+        ImportJobDTO result = runImport(CatalogFormat.NDJSON, """
+                {"name": "Desk Lamp", "description": "Warm light with arm", "price": 25.5, "quantity": 4}
+                {"name": "Desk Lamp"
+                {"name": "X", "description": "Too short name here", "price": 10, "quantity": 1}
+                """);
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(2L, 3L), result.getErrors().stream().map(ImportRowErrorDTO::getRow).toList());
+        verify(bulkOperations).insert(argThat((List<Products> products) -> products.size() == 1));
+        verify(eventPublisher).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Should read quoted CSV fields across line breaks and report rows by their first line")
+    void run_CsvMultiLineFields() throws Exception {
+        ImportJobDTO result = runImport(CatalogFormat.CSV, """
+                name,description,price,quantity
+                Desk Lamp,"Warm light,
+                adjustable arm",25.5,4
+                Chair,Comfortable office chair,abc,2
+                """);
+
+        assertEquals(2, result.getProcessed());
+        assertEquals(1, result.getImported());
+        assertEquals(4, result.getErrors().get(0).getRow());
+        verify(bulkOperations).insert(argThat((List<Products> products) ->
+                products.get(0).getDescription().equals("warm light,\nadjustable arm")));
+    }
+
+    @Test
+    @DisplayName("Should re-import a CSV catalog export, including multi-line fields, unchanged")
+    void run_CsvExportRoundTrip() throws Exception {
+        // Stored the way creation stores them, lowercased
+        List<Products> exported = List.of(
+                Products.builder().id("p1").userID("user1").name("desk lamp")
+                        .description("warm light, adjustable arm\nfits any desk").price(25.5).quantity(4).active(true).build(),
+                Products.builder().id("p2").userID("user1").name("plain chair")
+                        .description("comfortable office chair").price(40.0).quantity(2).build()
+        );
+        when(mongoTemplate.stream(any(Query.class), eq(Products.class))).thenReturn(exported.stream());
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        new CatalogExportService(mongoTemplate, new ObjectMapper(), 500).export("user1", null, CatalogFormat.CSV, export);
+
+        ImportJobDTO result = runImport(CatalogFormat.CSV, export.toString(StandardCharsets.UTF_8));
+
+        assertEquals(2, result.getImported());
+        assertEquals(0, result.getFailed());
+        verify(bulkOperations).insert(inserted.capture());
+        for (int i = 0; i < exported.size(); i++) {
+            Products original = exported.get(i);
+            Products imported = inserted.getValue().get(i);
+            assertEquals(original.getName(), imported.getName());
+            assertEquals(original.getDescription(), imported.getDescription());
+            assertEquals(original.getPrice(), imported.getPrice());
+            assertEquals(original.getQuantity(), imported.getQuantity());
+        }
+    }
+
+    @Test
+    @DisplayName("Should only show an import's progress to the seller who started it")
+    void getImport_OwnerOnly() throws Exception {
+        String jobId = productImportService.startImport(
+                new ByteArrayInputStream(new byte[0]), "ndjson", requestFrom("user1")).getData().getId();
+
+        assertEquals(HttpStatus.OK.value(), productImportService.getImport(jobId, requestFrom("user1")).getStatus());
+        assertEquals(HttpStatus.FORBIDDEN.value(), productImportService.getImport(jobId, requestFrom("user2")).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should answer a poll from the progress saved by the instance running the import")
+    void getImport_FromSavedProgress() {
+        ImportJobDTO saved = ImportJobDTO.builder().id("job1").status("RUNNING").processed(1000).build();
+        when(mongoTemplate.findById("job1", ImportProgress.class)).thenReturn(new ImportProgress("job1", "user1", saved, new Date()));
+
+        Response<ImportJobDTO> response = productImportService.getImport("job1", requestFrom("user1"));
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(1000, response.getData().getProcessed());
+        assertEquals(HttpStatus.FORBIDDEN.value(), productImportService.getImport("job1", requestFrom("user2")).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should answer 401 instead of failing when nobody is authenticated")
+    void getImport_Unauthenticated() {
+        Response<ImportJobDTO> response = productImportService.getImport("job1", new MockHttpServletRequest());
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("Should authenticate an import poll in the access filter before it reaches the service")
+    void getImport_ThroughFilter() throws Exception {
+        String jobId = productImportService.startImport(
+                new ByteArrayInputStream(new byte[0]), "ndjson", requestFrom("user1")).getData().getId();
+        replyFromUserService(Response.ok(UserDTO.builder().id("user1").role(Role.SELLER).build()));
+
+        List<Response<ImportJobDTO>> answers = new ArrayList<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new AccessValidation(new ObjectMapper().findAndRegisterModules(), replyingAuthKafkaTemplate).doFilter(pollRequest(jobId), response,
+                (request, ignored) -> answers.add(productImportService.getImport(jobId, (HttpServletRequest) request)));
+
+        assertEquals(1, answers.size());
+        assertEquals(HttpStatus.OK.value(), answers.get(0).getStatus());
+        assertEquals(jobId, answers.get(0).getData().getId());
+    }
+
+    @Test
+    @DisplayName("Should stop an import poll in the access filter when the token is refused")
+    void getImport_FilterRejectsToken() throws Exception {
+        replyFromUserService(Response.unauthorized("Invalid token"));
+
+        List<Response<ImportJobDTO>> answers = new ArrayList<>();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new AccessValidation(new ObjectMapper().findAndRegisterModules(), replyingAuthKafkaTemplate).doFilter(pollRequest("job1"), response,
+                (request, ignored) -> answers.add(productImportService.getImport("job1", (HttpServletRequest) request)));
+
+        assertTrue(answers.isEmpty());
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    }
+
+    private void replyFromUserService(Response<?> reply) {
+        RequestReplyFuture<String, String, Response<?>> future = new RequestReplyFuture<>();
+        future.complete(new ConsumerRecord<>("auth-response-product", 0, 0, null, reply));
+        when(replyingAuthKafkaTemplate.sendAndReceive(any(ProducerRecord.class))).thenReturn(future);
+    }
+
+    private static MockHttpServletRequest pollRequest(String jobId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/product/import/" + jobId);
+        request.setServletPath("/api/v1/product/import/" + jobId);
+        request.addHeader("Authorization", "Bearer token");
+        return request;
+    }
+
+    private static MockHttpServletRequest requestFrom(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("currentUser", UserDTO.builder().id(userId).role(Role.SELLER).build());
+        return request;
+    }
+
+    private ImportJobDTO runImport(CatalogFormat format, String content) throws Exception {
+        Path file = Files.createTempFile("import-test-", "." + format.getExtension());
+        Files.writeString(file, content);
+        ImportJob job = new ImportJob("job1", "user1", format, 100);
+
+        productImportService.run(job, file);
+
+        assertFalse(Files.exists(file));
+        return job.toDTO();
+    }
+}
@@ -0,0 +1,73 @@
+package com.zone01.product.cache;
+
+import com.zone01.product.model.dto.ProductDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCacheTest {
+
+    @Mock
+    private ProductsRepository productsRepository;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private ProductCache productCache;
+
+    @BeforeEach
+    void setUp() {
+        productCache = new ProductCache(productsRepository, kafkaTemplate, new SimpleMeterRegistry(), 100, 300);
+    }
+
+    @Test
+    @DisplayName("Should load misses once and serve them from the cache afterwards")
+    void getAll_CachesMisses() {
+        when(productsRepository.findByActiveAndDeletedAndIdIn(eq(true), eq(false), anyList()))
+                .thenReturn(List.of(product("prod1", 10.0)));
+
+        productCache.getAll(List.of("prod1"));
+        List<ProductDTO> cached = productCache.getAll(List.of("prod1"));
+
+        assertEquals(1, cached.size());
+        verify(productsRepository, times(1)).findByActiveAndDeletedAndIdIn(eq(true), eq(false), anyList());
+    }
+
+    @Test
+    @DisplayName("Should not keep a bulk load that raced with an invalidation")
+    void getAll_DropsLoadRacingInvalidation() {
+        when(productsRepository.findByActiveAndDeletedAndIdIn(eq(true), eq(false), anyList()))
+                .thenAnswer(invocation -> {
+                    // The row is read, then a write lands and invalidates before the load is stored
+                    productCache.invalidate(List.of("prod1"));
+                    return List.of(product("prod1", 10.0));
+                })
+                .thenReturn(List.of(product("prod1", 12.0)));
+
+        List<ProductDTO> stale = productCache.getAll(List.of("prod1"));
+        List<ProductDTO> fresh = productCache.getAll(List.of("prod1"));
+
+        assertEquals(10.0, stale.get(0).getPrice());
+        assertEquals(12.0, fresh.get(0).getPrice());
+        assertTrue(productCache.getIfPresent("prod1").isPresent());
+    }
+
+    private static Products product(String id, double price) {
+        return Products.builder().id(id).name("Phone").price(price).quantity(1).active(true).build();
+    }
+}
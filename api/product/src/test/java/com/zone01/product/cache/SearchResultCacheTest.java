@@ -0,0 +1,83 @@
+package com.zone01.product.cache;
+
+import com.zone01.product.model.dto.ProductSearchCriteria;
+import com.zone01.product.product.CatalogVersion;
+import com.zone01.product.product.ProductSearchQueries;
+import com.zone01.product.product.ProductsChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SearchResultCache searchResultCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        searchResultCache = new SearchResultCache(meterRegistry, 100, 30);
+    }
+
+    @Test
+    @DisplayName("Should map equivalent searches to the same key")
+    void searchKey_Canonical() {
+        SearchKey first = SearchKey.of(ProductSearchCriteria.builder()
+                .keyword("  Phone ").tags(List.of("b", "a", "b")).sortOrder("DESC").size(10).build());
+        SearchKey second = SearchKey.of(ProductSearchCriteria.builder()
+                .keyword("phone").tags(List.of("a", "b")).name(" ").sortOrder("desc").size(10).build());
+
+        assertEquals(first, second);
+        assertEquals("keyword+tags", first.shape());
+    }
+
+    @Test
+    @DisplayName("Should only share a key between searches that run the same query")
+    void searchKey_MatchesQuery() {
+        ProductSearchCriteria padded = ProductSearchCriteria.builder().keyword(" Foo").name("Bar ").quantity(" 5").size(10).build();
+        ProductSearchCriteria plain = ProductSearchCriteria.builder().keyword("foo").name("bar").quantity("5").size(10).build();
+
+        assertEquals(SearchKey.of(padded), SearchKey.of(plain));
+        // Regex patterns have no equals, their JSON form does
+        assertEquals(ProductSearchQueries.build(plain).getQueryObject().toJson(), ProductSearchQueries.build(padded).getQueryObject().toJson());
+    }
+
+    @Test
+    @DisplayName("Should run the loader once per key and count hits by query shape")
+    void getVersion_LoadsOnce() {
+        SearchKey key = SearchKey.of(ProductSearchCriteria.builder().keyword("phone").build());
+        AtomicInteger loads = new AtomicInteger();
+
+        searchResultCache.getVersion(key, () -> version(loads.incrementAndGet()));
+        CatalogVersion cached = searchResultCache.getVersion(key, () -> version(loads.incrementAndGet()));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cached.count());
+        assertEquals(1.0, meterRegistry.get("product.search.cache.requests")
+                .tags("type", "version", "shape", "keyword", "result", "hit").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should drop every entry when products change")
+    void onProductsChanged_InvalidatesAll() {
+        SearchKey key = SearchKey.of(ProductSearchCriteria.builder().build());
+        AtomicInteger loads = new AtomicInteger();
+
+        searchResultCache.getVersion(key, () -> version(loads.incrementAndGet()));
+        searchResultCache.onProductsChanged(ProductsChangedEvent.of(List.of("prod1")));
+        searchResultCache.getVersion(key, () -> version(loads.incrementAndGet()));
+
+        assertEquals(2, loads.get());
+    }
+
+    private CatalogVersion version(long count) {
+        return new CatalogVersion("search", count, new Date());
+    }
+}
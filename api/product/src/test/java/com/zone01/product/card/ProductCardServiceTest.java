@@ -0,0 +1,72 @@
+package com.zone01.product.card;
+
+import com.zone01.product.product.Products;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCardServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private ProductCardService productCardService;
+
+    @BeforeEach
+    void setUp() {
+        productCardService = new ProductCardService(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("Should copy product fields onto cards and drop cards of missing products")
+    void refresh() {
+        Products product = Products.builder().id("p1").name("Desk Lamp").price(25.5).quantity(0).active(true).build();
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(List.of(product));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductCard.class)).thenReturn(bulkOperations);
+
+        productCardService.refresh(List.of("p1", "p2"));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(any(Query.class), update.capture());
+        var set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals("Desk Lamp", set.get("name"));
+        assertEquals(false, set.get("inStock"));
+        assertEquals(true, set.get("listed"));
+        verify(bulkOperations).remove(argThat((Query query) -> "p2".equals(query.getQueryObject().get("_id"))));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    @DisplayName("Should only pull the image of a removed media")
+    void onMediaChange_Removed() {
+        productCardService.onMediaChange(new ProductMediaChange("p1", "m1", "a.png", true));
+
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(ProductCard.class));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(ProductCard.class));
+    }
+
+    @Test
+    @DisplayName("Should reject page sizes above the limit without querying")
+    void getCards_InvalidSize() {
+        assertEquals(400, productCardService.getCards(0, 500).getStatus());
+        verifyNoInteractions(mongoTemplate);
+    }
+}
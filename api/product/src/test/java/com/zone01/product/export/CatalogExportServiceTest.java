@@ -0,0 +1,101 @@
+package com.zone01.product.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zone01.product.model.CatalogFormat;
+import com.zone01.product.product.Products;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogExportServiceTest {
+    private static final String LAST_ID = "65f1c0a2b3d4e5f601234567";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Captor
+    private ArgumentCaptor<Query> query;
+
+    private CatalogExportService catalogExportService;
+
+    @BeforeEach
+    void setUp() {
+        catalogExportService = new CatalogExportService(mongoTemplate, new ObjectMapper(), 500);
+    }
+
+    @Test
+    @DisplayName("Should quote CSV fields holding commas, quotes or line breaks and double inner quotes")
+    void export_CsvEscaping() throws Exception {
+        when(mongoTemplate.stream(any(Query.class), eq(Products.class))).thenReturn(Stream.of(
+                Products.builder().id("p1").name("Lamp, large").description("The \"bright\" one\nfor desks")
+                        .price(25.5).quantity(4).active(true).createdAt(null).build(),
+                Products.builder().id("p2").name("Chair").description("Plain\r\nchair").price(40.0).quantity(2).createdAt(null).build()
+        ));
+
+        String csv = export(null, CatalogFormat.CSV);
+
+        assertEquals("""
+                id,name,description,price,quantity,active,createdAt,updatedAt
+                p1,"Lamp, large","The ""bright"" one
+                for desks",25.5,4,true,,
+                p2,Chair,"Plain\r
+                chair",40.0,2,false,,
+                """, csv);
+    }
+
+    @Test
+    @DisplayName("Should resume after the last exported id, in id order")
+    void export_ResumesAfterId() throws Exception {
+        when(mongoTemplate.stream(query.capture(), eq(Products.class))).thenReturn(Stream.of(
+                Products.builder().id("p3").name("Shelf").description("Wall shelf").price(15.0).quantity(3).build()
+        ));
+
+        String ndjson = export(LAST_ID, CatalogFormat.NDJSON);
+
+        Document filter = query.getValue().getQueryObject();
+        assertEquals(new Document("$gt", LAST_ID), filter.get("_id"));
+        assertEquals("user1", filter.get("userID"));
+        assertEquals(new Document("_id", 1), query.getValue().getSortObject());
+        assertEquals(1, ndjson.lines().count());
+        assertEquals("p3", new ObjectMapper().readTree(ndjson).get("id").asText());
+    }
+
+    @Test
+    @DisplayName("Should export the whole catalog when no resume id is given")
+    void export_FromStart() throws Exception {
+        when(mongoTemplate.stream(query.capture(), eq(Products.class))).thenReturn(Stream.empty());
+
+        export(" ", CatalogFormat.NDJSON);
+
+        assertFalse(query.getValue().getQueryObject().containsKey("_id"));
+    }
+
+    @Test
+    @DisplayName("Should reject a resume id that is not a product id instead of exporting nothing")
+    void export_InvalidResumeId() {
+        assertThrows(IllegalArgumentException.class, () -> export("p2", CatalogFormat.NDJSON));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private String export(String after, CatalogFormat format) throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        catalogExportService.export("user1", after, format, target);
+        return target.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package com.zone01.product.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.zone01.product.config.ProductFieldsAdvice;
+import com.zone01.product.model.dto.ProductDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFieldsTest {
+
+    @Test
+    @DisplayName("Should keep the id and project only the requested fields")
+    void parse() {
+        ProductFields fields = ProductFields.parse("name, price");
+
+        assertEquals(Set.of("id", "name", "price"), fields.names());
+        assertEquals("id,name,price", fields.key());
+        assertEquals(1, fields.project(new Query()).getFieldsObject().get("price"));
+        assertTrue(ProductFields.parse(null).isAll());
+        assertThrows(IllegalArgumentException.class, () -> ProductFields.parse("name,secret"));
+    }
+
+    @Test
+    @DisplayName("Should write every product field unless a selection is applied")
+    void serialize() throws Exception {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        ProductFieldsAdvice.productFieldsFilter().customize(builder);
+        ObjectMapper objectMapper = builder.build();
+        ProductDTO product = ProductDTO.builder().id("p1").name("Desk Lamp").description("Warm light").price(25.5).build();
+
+        assertTrue(objectMapper.writeValueAsString(product).contains("description"));
+
+        String sparse = objectMapper
+                .writer(new SimpleFilterProvider().addFilter(ProductFields.FILTER,
+                        SimpleBeanPropertyFilter.filterOutAllExcept(ProductFields.parse("name,price").names())))
+                .writeValueAsString(product);
+        assertEquals(Set.of("id", "name", "price"), objectMapper.readTree(sparse).properties().stream()
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.zone01.product.product;
+
+import com.zone01.product.model.dto.CreateProductDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchSortTest {
+
+    @Test
+    @DisplayName("Should sort newest first unless ascending order is requested")
+    void newest_HonoursSortOrder() {
+        assertEquals(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")),
+                SearchSort.NEWEST.toSort(null));
+        assertEquals(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")),
+                SearchSort.NEWEST.toSort("desc"));
+        assertEquals(Sort.by(Sort.Direction.ASC, "createdAt").and(Sort.by(Sort.Direction.ASC, "_id")),
+                SearchSort.NEWEST.toSort("ASC"));
+    }
+
+    @Test
+    @DisplayName("Should sort other keys ascending by default")
+    void price_DefaultsToAscending() {
+        assertEquals(Sort.Direction.ASC, SearchSort.PRICE.direction(null));
+        assertEquals(Sort.Direction.ASC, SearchSort.PRICE.direction("sideways"));
+        assertEquals(Sort.Direction.DESC, SearchSort.PRICE.direction("DESC"));
+    }
+
+    @Test
+    @DisplayName("Should resolve aliases and fall back to the default order for unknown keys")
+    void from_ResolvesKeys() {
+        assertEquals(SearchSort.NEWEST, SearchSort.from(" createdAt "));
+        assertEquals(SearchSort.STOCK, SearchSort.from("quantity"));
+        assertEquals(SearchSort.DEFAULT, SearchSort.from("description"));
+        assertEquals(Sort.by(Sort.Direction.ASC, "_id"), SearchSort.DEFAULT.toSort(null));
+    }
+
+    @Test
+    @DisplayName("Should date products created through the builder, so the newest sort finds them")
+    void newest_BuiltProductsAreDated() {
+        Products created = CreateProductDTO.builder().name("Desk lamp").description("Warm light").price(25.5).quantity(4)
+                .build().toProducts("user1");
+
+        assertNotNull(created.getCreatedAt());
+        assertNotNull(Products.builder().build().getCreatedAt());
+    }
+}
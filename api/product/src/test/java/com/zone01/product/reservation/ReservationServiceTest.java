@@ -0,0 +1,266 @@
+package com.zone01.product.reservation;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.ReservationDTO;
+import com.zone01.product.model.dto.StockLevelDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsSoldEvent;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationServiceTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BulkOperations productOperations;
+
+    @Mock
+    private BulkOperations holdOperations;
+
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        reservationService = new ReservationService(mongoTemplate, eventPublisher, 600);
+        Map<String, Integer> stock = Map.of("prod1", 1, "prod2", 5);
+        lenient().when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenAnswer(invocation -> {
+            Collection<?> ids = (Collection<?>) invocation.<Query>getArgument(0).getQueryObject().get("_id", Document.class).get("$in");
+            return ids.stream()
+                    .filter(stock::containsKey)
+                    .map(id -> Products.builder().id((String) id).quantity(stock.get(id)).build())
+                    .toList();
+        });
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StockHolds.class)).thenReturn(holdOperations);
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Products.class)).thenReturn(productOperations);
+    }
+
+    @Test
+    @DisplayName("Should store the hold and the reservation in Mongo, guarded on the stock read")
+    void reserve_StoresHolds() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StockHolds.class))).thenReturn(modified(1));
+
+        Response<ReservationDTO> result = reservationService.reserve(Map.of("prod2", 4));
+
+        assertEquals(HttpStatus.CREATED.value(), result.getStatus());
+        assertEquals(ReservationStatus.HELD, result.getData().getStatus());
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(guard.capture(), any(Update.class), eq(StockHolds.class));
+        Document expr = guard.getValue().getQueryObject().get("$expr", Document.class);
+        assertEquals(5, expr.getList("$lte", Object.class).get(1));
+        verify(holdOperations).upsert(any(Query.class), any(Update.class));
+        ArgumentCaptor<Reservation> stored = ArgumentCaptor.forClass(Reservation.class);
+        verify(mongoTemplate).insert(stored.capture());
+        assertEquals(Map.of("prod2", 4), stored.getValue().getItems());
+        assertEquals(result.getData().getId(), stored.getValue().getId());
+    }
+
+    @Test
+    @DisplayName("Should refuse the last unit once another instance holds it")
+    void reserve_LastUnitHeld() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StockHolds.class))).thenReturn(modified(0));
+
+        Response<ReservationDTO> result = reservationService.reserve(Map.of("prod1", 1));
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), result.getStatus());
+        assertEquals(List.of("prod1"), result.getErrors());
+        verify(mongoTemplate, never()).insert(any(Reservation.class));
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(StockHolds.class));
+    }
+
+    @Test
+    @DisplayName("Should pull the holds already taken when one product is unavailable")
+    void reserve_RollsBackPartialHolds() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StockHolds.class)))
+                .thenReturn(modified(0))
+                .thenReturn(modified(1));
+
+        Response<ReservationDTO> result = reservationService.reserve(Map.of("prod1", 2, "prod2", 3));
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), result.getStatus());
+        assertEquals(List.of("prod1"), result.getErrors());
+        ArgumentCaptor<Query> pulled = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateMulti(pulled.capture(), any(Update.class), eq(StockHolds.class));
+        assertTrue(pulled.getValue().getQueryObject().toJson().contains("prod2"));
+        assertFalse(pulled.getValue().getQueryObject().toJson().contains("prod1"));
+        verify(mongoTemplate, never()).insert(any(Reservation.class));
+    }
+
+    @Test
+    @DisplayName("Should report unknown products without trying to hold them")
+    void reserve_UnknownProduct() {
+        Response<ReservationDTO> result = reservationService.reserve(Map.of("unknown", 1));
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), result.getStatus());
+        assertEquals(List.of("unknown"), result.getErrors());
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(StockHolds.class));
+        verifyNoInteractions(holdOperations);
+    }
+
+    @Test
+    @DisplayName("Should commit a reservation held through another instance")
+    void commit_AllApplied() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Reservation.class))).thenReturn(reservation("r1", Map.of("prod1", 1, "prod2", 2)));
+        BulkWriteResult applied = bulkResult(2);
+        when(productOperations.execute()).thenReturn(applied);
+
+        Response<ReservationDTO> result = reservationService.commit("r1");
+
+        assertEquals(HttpStatus.OK.value(), result.getStatus());
+        assertEquals(ReservationStatus.COMMITTED, result.getData().getStatus());
+        verify(productOperations, times(1)).execute();
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(StockHolds.class));
+        verify(eventPublisher).publishEvent(any(ProductsSoldEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should put back the applied decrements when another line's stock guard fails")
+    void commit_PartialIsUndone() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Reservation.class))).thenReturn(reservation("r1", Map.of("prod1", 1, "prod2", 2)));
+        BulkWriteResult partial = bulkResult(1);
+        when(productOperations.execute()).thenReturn(partial);
+
+        Response<ReservationDTO> result = reservationService.commit("r1");
+
+        assertEquals(HttpStatus.CONFLICT.value(), result.getStatus());
+        // One decrement and one compensating increment per line
+        verify(productOperations, times(4)).updateOne(any(Query.class), any(Update.class));
+        verify(productOperations, times(2)).execute();
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(StockHolds.class));
+        verify(eventPublisher, never()).publishEvent(any(ProductsSoldEvent.class));
+    }
+
+    @Test
+    @DisplayName("Should not commit a reservation that expired or was already resolved")
+    void commit_NotFound() {
+        Response<ReservationDTO> result = reservationService.commit("r1");
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), result.getStatus());
+        verifyNoInteractions(productOperations);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Should pull the holds when a reservation is released")
+    void release_PullsHolds() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Reservation.class)))
+                .thenReturn(reservation("r1", Map.of("prod2", 4)))
+                .thenReturn(null);
+
+        Response<ReservationDTO> result = reservationService.release("r1");
+
+        assertEquals(HttpStatus.OK.value(), result.getStatus());
+        assertEquals(ReservationStatus.RELEASED, result.getData().getStatus());
+        ArgumentCaptor<Update> pull = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(any(Query.class), pull.capture(), eq(StockHolds.class));
+        assertTrue(pull.getValue().getUpdateObject().toJson().contains("r1"));
+        assertEquals(HttpStatus.NOT_FOUND.value(), reservationService.release("r1").getStatus());
+    }
+
+    @Test
+    @DisplayName("Should remove expired holds and refresh the counters of their products")
+    void expireHolds_RemovesExpired() {
+        Date now = new Date();
+        when(mongoTemplate.find(any(Query.class), eq(StockHolds.class))).thenReturn(
+                List.of(holds("prod2", new StockHolds.Hold("r1", 5, new Date(now.getTime() + HOUR)))),
+                List.of(new StockHolds("prod2", null)),
+                List.of(holds("prod2")));
+        assertEquals(0, reservationService.available("prod2"));
+
+        reservationService.expireHolds();
+
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(StockHolds.class));
+        assertEquals(5, reservationService.available("prod2"));
+    }
+
+    @Test
+    @DisplayName("Should leave Mongo alone when no hold has expired")
+    void expireHolds_NothingExpired() {
+        when(mongoTemplate.find(any(Query.class), eq(StockHolds.class))).thenReturn(List.of());
+
+        reservationService.expireHolds();
+
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(StockHolds.class));
+    }
+
+    @Test
+    @DisplayName("Should count only running holds and serve stock levels from memory after the first load")
+    void getStockLevels_LoadsOnce() {
+        Date now = new Date();
+        when(mongoTemplate.find(any(Query.class), eq(StockHolds.class))).thenReturn(List.of(holds("prod2",
+                new StockHolds.Hold("r1", 2, new Date(now.getTime() + HOUR)),
+                new StockHolds.Hold("r2", 3, new Date(now.getTime() - HOUR)))));
+
+        reservationService.getStockLevels(List.of("prod1", "prod2"));
+        Response<List<StockLevelDTO>> result = reservationService.getStockLevels(List.of("prod1", "prod2"));
+
+        assertEquals(HttpStatus.OK.value(), result.getStatus());
+        StockLevelDTO prod2 = result.getData().get(1);
+        assertEquals(5, prod2.getOnHand());
+        assertEquals(2, prod2.getReserved());
+        assertEquals(3, prod2.getAvailable());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Products.class));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(StockHolds.class));
+    }
+
+    @Test
+    @DisplayName("Should check availability of several products with a single load")
+    void available_LoadsAllAtOnce() {
+        when(mongoTemplate.find(any(Query.class), eq(StockHolds.class))).thenReturn(List.of());
+
+        Map<String, Integer> available = reservationService.available(List.of("prod1", "prod2", "unknown"));
+
+        assertEquals(Map.of("prod1", 1, "prod2", 5), available);
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Products.class));
+    }
+
+    private static Reservation reservation(String id, Map<String, Integer> items) {
+        Date now = new Date();
+        return Reservation.builder().id(id).items(items).createdAt(now).expiresAt(new Date(now.getTime() + HOUR)).build();
+    }
+
+    private static StockHolds holds(String productId, StockHolds.Hold... holds) {
+        return new StockHolds(productId, List.of(holds));
+    }
+
+    private static UpdateResult modified(long count) {
+        return UpdateResult.acknowledged(count, count, null);
+    }
+
+    private static BulkWriteResult bulkResult(int matched) {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        lenient().when(result.getMatchedCount()).thenReturn(matched);
+        lenient().when(result.getModifiedCount()).thenReturn(matched);
+        return result;
+    }
+}
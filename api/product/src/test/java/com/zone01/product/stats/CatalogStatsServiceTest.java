@@ -0,0 +1,254 @@
+package com.zone01.product.stats;
+
+import com.buy01.common.lease.Leases;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.zone01.product.model.Role;
+import com.zone01.product.model.dto.UserDTO;
+import com.zone01.product.product.Products;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogStatsServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private Leases leases;
+
+    @Mock
+    private BulkOperations entryOperations;
+
+    @Mock
+    private BulkOperations statsOperations;
+
+    @Mock
+    private BulkWriteResult entryResult;
+
+    private CatalogStatsService catalogStatsService;
+
+    @BeforeEach
+    void setUp() {
+        catalogStatsService = new CatalogStatsService(mongoTemplate, leases);
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StatsEntry.class)).thenReturn(entryOperations);
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SellerCatalogStats.class)).thenReturn(statsOperations);
+        lenient().when(entryOperations.execute()).thenReturn(entryResult);
+    }
+
+    @Test
+    @DisplayName("Should count a new product for its seller and the catalog")
+    void refresh_NewProduct() {
+        Products product = Products.builder().id("p1").userID("s1").price(2.5).quantity(4).active(true).build();
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(List.of(product));
+        when(mongoTemplate.find(any(Query.class), eq(StatsEntry.class))).thenReturn(List.of());
+        when(entryResult.getInsertedCount()).thenReturn(1);
+
+        catalogStatsService.refresh(List.of("p1"));
+
+        ArgumentCaptor<StatsEntry> inserted = ArgumentCaptor.forClass(StatsEntry.class);
+        verify(entryOperations).insert(inserted.capture());
+        assertEquals("s1", inserted.getValue().getSellerId());
+        assertEquals(CatalogStatsService.ACTIVE, inserted.getValue().getStatus());
+        assertEquals(4, inserted.getValue().getQuantity());
+        assertEquals(10.0, inserted.getValue().getValue());
+        Document inc = incOf("s1");
+        assertEquals(1L, inc.get("active"));
+        assertEquals(4L, inc.get("activeStock"));
+        assertEquals(10.0, inc.get("activeStockValue"));
+        assertEquals(inc, incOf(SellerCatalogStats.CATALOG_ID));
+    }
+
+    @Test
+    @DisplayName("Should move a deleted product's count and stock out of its previous status")
+    void refresh_Deleted() {
+        Products product = Products.builder().id("p1").userID("s1").price(2.5).quantity(4).active(true).deleted(true).build();
+        StatsEntry entry = new StatsEntry("p1", "s1", CatalogStatsService.ACTIVE, 4, 10.0, 3L, null);
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(List.of(product));
+        when(mongoTemplate.find(any(Query.class), eq(StatsEntry.class))).thenReturn(List.of(entry));
+        when(entryResult.getModifiedCount()).thenReturn(1);
+
+        catalogStatsService.refresh(List.of("p1"));
+
+        Document inc = incOf("s1");
+        assertEquals(-1L, inc.get("active"));
+        assertEquals(1L, inc.get("deleted"));
+        assertEquals(-4L, inc.get("activeStock"));
+        assertEquals(-10.0, inc.get("activeStockValue"));
+    }
+
+    @Test
+    @DisplayName("Should swap every entry of a request in one bulk write and apply the totals in another")
+    void refresh_BatchesProducts() {
+        List<Products> products = List.of(
+                Products.builder().id("p1").userID("s1").price(1.0).quantity(2).active(true).build(),
+                Products.builder().id("p2").userID("s1").price(1.0).quantity(3).active(true).build(),
+                Products.builder().id("p3").userID("s2").price(1.0).quantity(4).active(true).build()
+        );
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(products);
+        when(mongoTemplate.find(any(Query.class), eq(StatsEntry.class))).thenReturn(List.of(entry("p1", 1, 0L)));
+        when(entryResult.getInsertedCount()).thenReturn(2);
+        when(entryResult.getModifiedCount()).thenReturn(1);
+
+        catalogStatsService.refresh(List.of("p1", "p2", "p3"));
+
+        verify(entryOperations, times(1)).execute();
+        verify(entryOperations, times(2)).insert(any(StatsEntry.class));
+        verify(entryOperations, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(statsOperations, times(1)).execute();
+        // p1 goes from 1 to 2, p2 and p3 are new
+        assertEquals(4L, incOf("s1").get("activeStock"));
+        assertEquals(4L, incOf("s2").get("activeStock"));
+        assertEquals(8L, incOf(SellerCatalogStats.CATALOG_ID).get("activeStock"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(StatsEntry.class));
+    }
+
+    @Test
+    @DisplayName("Should re-read and retry when another writer replaced the entry first")
+    void refresh_Conflict() {
+        Products product = Products.builder().id("p1").userID("s1").price(1.0).quantity(5).active(true).build();
+        StatsEntry stale = entry("p1", 3, 1L);
+        StatsEntry current = entry("p1", 5, 2L);
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(List.of(product));
+        when(mongoTemplate.find(any(Query.class), eq(StatsEntry.class))).thenReturn(List.of(stale), List.of(current));
+
+        catalogStatsService.refresh(List.of("p1"));
+
+        // The other writer already counted the new quantity
+        verify(mongoTemplate, never()).bulkOps(BulkOperations.BulkMode.UNORDERED, SellerCatalogStats.class);
+    }
+
+    @Test
+    @DisplayName("Should count only the swaps that applied when a bulk write partly conflicts")
+    void refresh_PartialConflict() {
+        List<Products> products = List.of(
+                Products.builder().id("p1").userID("s1").price(1.0).quantity(2).active(true).build(),
+                Products.builder().id("p2").userID("s2").price(1.0).quantity(3).active(true).build()
+        );
+        List<Update> updates = new ArrayList<>();
+        when(entryOperations.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            updates.add(invocation.getArgument(1));
+            return entryOperations;
+        });
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(products, List.of(products.get(1)));
+        when(mongoTemplate.find(any(Query.class), eq(StatsEntry.class)))
+                .thenReturn(List.of(entry("p1", 1, 0L), entry("p2", 1, 0L)))
+                .thenAnswer(invocation -> {
+                    // p1 carries this refresh's marker; p2 was moved to its current quantity by someone else
+                    StatsEntry applied = entry("p1", 2, 1L);
+                    applied.setRefreshes(refreshesOf(updates.get(0)));
+                    StatsEntry other = entry("p2", 3, 1L);
+                    other.setRefreshes(List.of("another"));
+                    return List.of(applied, other);
+                })
+                .thenReturn(List.of(entry("p2", 3, 1L)));
+        when(entryResult.getModifiedCount()).thenReturn(1);
+
+        catalogStatsService.refresh(List.of("p1", "p2"));
+
+        assertEquals(1L, incOf("s1").get("activeStock"));
+        verify(statsOperations, never()).upsert(
+                argThat((Query query) -> "s2".equals(query.getQueryObject().get("_id"))), any(Update.class));
+    }
+
+    @Test
+    @DisplayName("Should leave the rebuild to the instance holding its lease")
+    void rebuild_SkippedWithoutLease() {
+        when(leases.tryAcquire(eq("catalog-stats-rebuild"), any(Duration.class))).thenReturn(false);
+
+        catalogStatsService.rebuild();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("Should only remove stats written neither by this rebuild nor since it started, by server time")
+    @SuppressWarnings("unchecked")
+    void rebuild_RemovesStaleByGeneration() {
+        Date serverStart = new Date(1_000_000L);
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        AggregateIterable<Document> aggregation = mock(AggregateIterable.class);
+        when(leases.tryAcquire(eq("catalog-stats-rebuild"), any(Duration.class))).thenReturn(true);
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(new Document("localTime", serverStart));
+        when(mongoTemplate.getCollectionName(any())).thenReturn("collection");
+        when(mongoTemplate.getCollection("collection")).thenReturn(collection);
+        when(collection.aggregate(anyList())).thenReturn(aggregation);
+
+        catalogStatsService.rebuild();
+
+        ArgumentCaptor<List<Document>> pipelines = ArgumentCaptor.forClass(List.class);
+        verify(collection, times(3)).aggregate(pipelines.capture());
+        Document set = pipelines.getAllValues().get(1).get(1).get("$set", Document.class);
+        String generation = set.getString("generation");
+        assertNotNull(generation);
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(SellerCatalogStats.class));
+        Document filter = removed.getValue().getQueryObject();
+        assertEquals(generation, filter.get("generation", Document.class).get("$ne"));
+        assertEquals(serverStart, filter.get("updatedAt", Document.class).get("$lt"));
+    }
+
+    @Test
+    @DisplayName("Should only show a seller's stats to that seller")
+    void getSellerStats_OwnerOnly() {
+        when(mongoTemplate.findById("s1", SellerCatalogStats.class)).thenReturn(SellerCatalogStats.builder().id("s1").build());
+
+        assertEquals(HttpStatus.OK.value(), catalogStatsService.getSellerStats("s1", requestFrom("s1")).getStatus());
+        assertEquals(HttpStatus.FORBIDDEN.value(), catalogStatsService.getSellerStats("s1", requestFrom("s2")).getStatus());
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), catalogStatsService.getSellerStats("s1", new MockHttpServletRequest()).getStatus());
+        verify(mongoTemplate, times(1)).findById("s1", SellerCatalogStats.class);
+    }
+
+    private static MockHttpServletRequest requestFrom(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("currentUser", UserDTO.builder().id(userId).role(Role.SELLER).build());
+        return request;
+    }
+
+    private static StatsEntry entry(String id, long quantity, long version) {
+        String sellerId = "p1".equals(id) ? "s1" : "s2";
+        return new StatsEntry(id, sellerId, CatalogStatsService.ACTIVE, quantity, quantity * 1.0, version, null);
+    }
+
+    private static List<String> refreshesOf(Update update) {
+        Document push = update.getUpdateObject().get("$push", Document.class);
+        Update.Modifiers modifiers = (Update.Modifiers) push.get("refreshes");
+        return modifiers.getModifiers().stream()
+                .filter(modifier -> "$each".equals(modifier.getKey()))
+                .flatMap(modifier -> Arrays.stream((Object[]) modifier.getValue()))
+                .map(String::valueOf)
+                .toList();
+    }
+
+    private Document incOf(String target) {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(statsOperations).upsert(
+                argThat((Query query) -> target.equals(query.getQueryObject().get("_id"))),
+                update.capture());
+        return update.getValue().getUpdateObject().get("$inc", Document.class);
+    }
+}
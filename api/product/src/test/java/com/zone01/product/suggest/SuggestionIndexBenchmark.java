@@ -0,0 +1,115 @@
+package com.zone01.product.suggest;
+
+import com.zone01.product.product.Products;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Manual latency and footprint benchmark of {@link SuggestionIndex}; not a test, so the build never runs it.
+ * Indexes generated names, then replays keystrokes (every prefix of random names) through the prefix
+ * cache and reports percentiles, plus the cost of uncached one- and two-letter prefixes.
+ * <p>
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.zone01.product.suggest.SuggestionIndexBenchmark -Dexec.args="1000000"}
+ */
+public final class SuggestionIndexBenchmark {
+    private static final String[] WORDS = {
+            "phone", "case", "charger", "laptop", "stand", "wireless", "mouse", "keyboard", "usb", "cable",
+            "screen", "protector", "headphones", "speaker", "bluetooth", "smart", "watch", "band", "camera", "lens",
+            "tripod", "bag", "backpack", "desk", "lamp", "led", "mini", "pro", "max", "ultra"
+    };
+    private static final int BATCH_SIZE = 10_000;
+    private static final int KEYSTROKE_NAMES = 20_000;
+
+    private SuggestionIndexBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        SuggestionIndex index = new SuggestionIndex(mongoTemplate, new SimpleMeterRegistry(), 10, 5000, 20000);
+
+        long heapBefore = usedHeap();
+        List<String> names = new ArrayList<>(size);
+        for (int from = 0; from < size; from += BATCH_SIZE) {
+            List<Products> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, size); i++) {
+                String name = name(random) + " " + i;
+                names.add(name);
+                batch.add(Products.builder().id(Integer.toHexString(i)).name(name).quantity(random.nextInt(5)).build());
+            }
+            when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(batch);
+            index.refresh(batch.stream().map(Products::getId).toList());
+        }
+        long heapAfter = usedHeap();
+        System.out.printf("indexed %d names, ~%d bytes per name%n", index.size(), (heapAfter - heapBefore) / size);
+
+        // Before any keystroke, so none of these prefixes is cached yet
+        long[] broad = new long[26 * 27];
+        int count = 0;
+        for (char first = 'a'; first <= 'z'; first++) {
+            broad[count++] = time(index, String.valueOf(first));
+            for (char second = 'a'; second <= 'z'; second++) broad[count++] = time(index, "" + first + second);
+        }
+        System.out.printf("uncached 1-2 letter prefixes: p50 %.1f us, max %.1f us%n",
+                percentile(broad, 0.50), percentile(broad, 1.0));
+
+        // Warm-up, then the measured run
+        keystrokes(index, names, random);
+        long[] latencies = keystrokes(index, names, random);
+        System.out.printf("keystrokes: %d lookups, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                latencies.length, percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0));
+    }
+
+    private static long[] keystrokes(SuggestionIndex index, List<String> names, Random random) {
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < KEYSTROKE_NAMES; i++) {
+            String name = names.get(random.nextInt(names.size()));
+            for (int length = 1; length <= Math.min(name.length(), 12); length++) {
+                latencies.add(time(index, name.substring(0, length)));
+            }
+        }
+        return latencies.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long time(SuggestionIndex index, String prefix) {
+        long start = System.nanoTime();
+        index.suggest(prefix, 10);
+        return System.nanoTime() - start;
+    }
+
+    private static double percentile(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int position = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, position)] / 1000.0;
+    }
+
+    private static String name(Random random) {
+        int words = 1 + random.nextInt(3);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) name.append(' ');
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
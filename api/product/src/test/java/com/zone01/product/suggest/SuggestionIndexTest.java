@@ -0,0 +1,92 @@
+package com.zone01.product.suggest;
+
+import com.zone01.product.model.Response;
+import com.zone01.product.model.dto.SuggestionDTO;
+import com.zone01.product.product.Products;
+import com.zone01.product.product.ProductsSoldEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SuggestionIndexTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SuggestionIndex suggestionIndex;
+
+    @BeforeEach
+    void setUp() {
+        suggestionIndex = new SuggestionIndex(mongoTemplate, new SimpleMeterRegistry(), 10, 20000, 100);
+        index(
+                Products.builder().id("prod1").name("Phone Case").quantity(3).build(),
+                Products.builder().id("prod2").name("Phone").quantity(0).build(),
+                Products.builder().id("prod3").name("phone  charger").quantity(8).build(),
+                Products.builder().id("prod4").name("Laptop").quantity(2).build()
+        );
+    }
+
+    @Test
+    @DisplayName("Should suggest in-stock names first, shortest first, ignoring case and spacing")
+    void suggest_RanksMatches() {
+        Response<List<SuggestionDTO>> result = suggestionIndex.suggest("  PHONE ", 10);
+
+        assertEquals(HttpStatus.OK.value(), result.getStatus());
+        assertEquals(List.of("prod1", "prod3", "prod2"),
+                result.getData().stream().map(SuggestionDTO::getProductId).toList());
+    }
+
+    @Test
+    @DisplayName("Should rank popular products first once sales are recorded")
+    void onProductsSold_RaisesRank() {
+        suggestionIndex.onProductsSold(new ProductsSoldEvent(Map.of("prod3", 5)));
+
+        List<SuggestionDTO> result = suggestionIndex.suggest("ph", 1).getData();
+
+        assertEquals("prod3", result.get(0).getProductId());
+    }
+
+    @Test
+    @DisplayName("Should re-rank cached prefixes as soon as a sale is recorded")
+    void onProductsSold_InvalidatesCachedPrefixes() {
+        assertEquals("prod1", suggestionIndex.suggest("ph", 1).getData().get(0).getProductId());
+
+        suggestionIndex.onProductsSold(new ProductsSoldEvent(Map.of("prod3", 5)));
+
+        assertEquals("prod3", suggestionIndex.suggest("ph", 1).getData().get(0).getProductId());
+    }
+
+    @Test
+    @DisplayName("Should drop cached suggestions when a product is removed")
+    void refresh_RemovesProduct() {
+        suggestionIndex.suggest("lap", 10);
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(List.of());
+
+        suggestionIndex.refresh(List.of("prod4"));
+
+        assertTrue(suggestionIndex.suggest("lap", 10).getData().isEmpty());
+        assertEquals(3, suggestionIndex.size());
+    }
+
+    private void index(Products... products) {
+        when(mongoTemplate.find(any(Query.class), eq(Products.class))).thenReturn(List.of(products));
+        suggestionIndex.refresh(Arrays.stream(products).map(Products::getId).toList());
+    }
+}
@@ -0,0 +1,30 @@
+package com.zone01.users.changes;
+
+import com.buy01.common.changes.ChangeStreamPublisher;
+import com.buy01.common.lease.Leases;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * Publishes the users collection's writes on {@value #TOPIC}, keyed by user id, from whichever instance holds its lease.
+ */
+@Configuration
+public class ChangeStreamConfig {
+    public static final String TOPIC = "user-changes";
+
+    @Bean
+    public ChangeStreamPublisher changeStreamPublisher(
+            MongoTemplate mongoTemplate,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            Leases leases,
+            @Value("${user.change-stream.enabled:true}") boolean enabled,
+            @Value("${user.change-stream.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${user.change-stream.retry-delay-ms:5000}") long retryDelayMs
+    ) {
+        return new ChangeStreamPublisher(mongoTemplate, kafkaTemplate, leases,
+                new ChangeStreamPublisher.Settings("users", TOPIC, enabled, flushIntervalMs, retryDelayMs));
+    }
+}
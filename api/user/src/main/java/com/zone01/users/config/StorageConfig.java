@@ -0,0 +1,48 @@
+package com.zone01.users.config;
+
+import com.buy01.common.storage.FileSystemStorage;
+import com.buy01.common.storage.ObjectStorage;
+import com.buy01.common.storage.S3Storage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Picks where avatars live: {@code user.storage.backend=filesystem} keeps them under the upload
+ * directory, {@code s3} in a bucket shared by every user replica.
+ */
+@Configuration
+@Slf4j
+public class StorageConfig {
+
+    @Bean
+    public ObjectStorage objectStorage(
+            @Value("${media.upload.base.dir}") String baseUploadDirectory,
+            @Value("${user.storage.backend:filesystem}") String backend,
+            @Value("${user.storage.s3.endpoint:}") String endpoint,
+            @Value("${user.storage.s3.public-endpoint:}") String publicEndpoint,
+            @Value("${user.storage.s3.region:us-east-1}") String region,
+            @Value("${user.storage.s3.bucket:avatars}") String bucket,
+            @Value("${user.storage.s3.access-key:}") String accessKey,
+            @Value("${user.storage.s3.secret-key:}") String secretKey,
+            @Value("${user.storage.s3.prefix:}") String prefix,
+            @Value("${user.storage.s3.path-style:true}") boolean pathStyle,
+            @Value("${user.storage.s3.part-size:8388608}") int partSize,
+            @Value("${user.storage.s3.timeout-ms:30000}") long timeoutMs
+    ) {
+        return switch (backend.toLowerCase(Locale.ROOT)) {
+            case "filesystem" -> new FileSystemStorage(baseUploadDirectory);
+            case "s3" -> {
+                if (endpoint.isBlank()) throw new IllegalArgumentException("user.storage.s3.endpoint is required with the s3 backend");
+                log.info("====== Storing avatars in bucket {} at {} ======", bucket, endpoint);
+                yield new S3Storage(endpoint, publicEndpoint, region, bucket, accessKey, secretKey, prefix, pathStyle, partSize,
+                        Duration.ofMillis(timeoutMs));
+            }
+            default -> throw new IllegalArgumentException("Unknown user.storage.backend: " + backend);
+        };
+    }
+}
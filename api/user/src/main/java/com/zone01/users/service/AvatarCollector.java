@@ -0,0 +1,185 @@
+package com.zone01.users.service;
+
+import com.buy01.common.lease.Leases;
+import com.buy01.common.storage.ObjectStorage;
+import com.zone01.users.user.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reclaims avatar files no user names any more: avatars replaced when an update failed half-way,
+ * files saved for a registration that was rejected, and avatars of users deleted longer than the
+ * retention ago (until then they are still served by the {@code /all} lookup).
+ * <p>
+ * The avatar store is listed at a bounded rate and checked against the users collection in
+ * batches. Files younger than the grace period are left alone, since an avatar is written before
+ * the user naming it is saved. With an archive directory, reclaimed avatars of a filesystem store
+ * are moved there; a bucket keeps them under its {@code archive/} prefix instead.
+ */
+@Component
+@Slf4j
+public class AvatarCollector {
+    private static final String ARCHIVE = "archive/";
+    private static final String LEASE = "avatar-gc";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectStorage storage;
+    private final Leases leases;
+    private final boolean enabled;
+    private final Duration leaseTtl;
+    private final Duration gracePeriod;
+    private final Duration deletedRetention;
+    private final int batchSize;
+    private final int maxFilesPerSecond;
+    private final Path archive;
+
+    public AvatarCollector(
+            MongoTemplate mongoTemplate,
+            ObjectStorage storage,
+            Leases leases,
+            @Value("${user.avatar-gc.enabled:true}") boolean enabled,
+            @Value("${user.avatar-gc.interval-ms:3600000}") long intervalMs,
+            @Value("${user.avatar-gc.grace-hours:24}") long graceHours,
+            @Value("${user.avatar-gc.deleted-retention-days:30}") long deletedRetentionDays,
+            @Value("${user.avatar-gc.batch-size:500}") int batchSize,
+            @Value("${user.avatar-gc.max-files-per-second:500}") int maxFilesPerSecond,
+            @Value("${user.avatar-gc.archive-dir:}") String archiveDirectory
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.storage = storage;
+        this.leases = leases;
+        this.enabled = enabled;
+        this.leaseTtl = Duration.ofMillis(intervalMs);
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.deletedRetention = Duration.ofDays(deletedRetentionDays);
+        this.batchSize = batchSize;
+        this.maxFilesPerSecond = maxFilesPerSecond;
+        this.archive = archiveDirectory.isBlank() ? null : Paths.get(archiveDirectory).toAbsolutePath().normalize();
+    }
+
+    @Scheduled(fixedDelayString = "${user.avatar-gc.interval-ms:3600000}", initialDelayString = "${user.avatar-gc.initial-delay-ms:300000}")
+    public void run() {
+        if (!enabled) return;
+        // Held for an interval and not released, so the other instances' runs of the same schedule are skipped
+        if (!leases.tryAcquire(LEASE, leaseTtl)) {
+            log.info("====== Avatars are being collected by another instance ======");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Instant now = Instant.now();
+        Instant graceCutoff = now.minus(gracePeriod);
+        long examined = 0;
+        long files = 0;
+        long bytes = 0;
+        try {
+            // Users deleted before deletedAt was recorded start their retention now
+            mongoTemplate.updateMulti(Query.query(Criteria.where("deleted").is(true).and("deletedAt").exists(false)),
+                    new Update().set("deletedAt", Date.from(now)), User.class);
+            Criteria live = new Criteria().orOperator(
+                    Criteria.where("deleted").is(false),
+                    Criteria.where("deletedAt").gt(Date.from(now.minus(deletedRetention))));
+
+            List<ObjectStorage.StoredObject> batch = new ArrayList<>();
+            try (Stream<ObjectStorage.StoredObject> listed = storage.list("")) {
+                for (Iterator<ObjectStorage.StoredObject> objects = listed.iterator(); objects.hasNext(); ) {
+                    ObjectStorage.StoredObject object = objects.next();
+                    // Avatars are stored flat; nested keys are archives or another service's files
+                    if (object.key().contains("/") || object.key().startsWith(".")) continue;
+                    pace(++examined, start);
+                    if (object.lastModified().isAfter(graceCutoff)) continue;
+                    batch.add(object);
+                    if (batch.size() < batchSize) continue;
+                    for (long freed : reclaim(batch, live)) {
+                        files++;
+                        bytes += freed;
+                    }
+                }
+            }
+            for (long freed : reclaim(batch, live)) {
+                files++;
+                bytes += freed;
+            }
+        } catch (IOException | UncheckedIOException | DataAccessException e) {
+            log.error("====== Avatar collection failed: {} ======", e.getMessage());
+        }
+        log.info("====== Avatar collection examined {} files, reclaimed {} ({} MB) in {} ms ======",
+                examined, files, bytes / 1024 / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @return the sizes of the files reclaimed from the batch
+     */
+    private List<Long> reclaim(List<ObjectStorage.StoredObject> batch, Criteria live) throws IOException {
+        if (batch.isEmpty()) return List.of();
+
+        List<String> names = batch.stream().map(ObjectStorage.StoredObject::key).toList();
+        Query query = Query.query(new Criteria().andOperator(Criteria.where("avatar").in(names), live));
+        Set<String> used = new HashSet<>(mongoTemplate.findDistinct(query, "avatar", User.class, String.class));
+
+        List<Long> reclaimed = new ArrayList<>();
+        for (ObjectStorage.StoredObject object : batch) {
+            if (used.contains(object.key())) continue;
+            try {
+                if (archive == null) {
+                    storage.delete(object.key());
+                } else if (!archive(object.key())) {
+                    continue; // Deleted meanwhile
+                }
+                reclaimed.add(object.size());
+            } catch (NoSuchFileException e) {
+                // Deleted meanwhile
+            }
+        }
+        batch.clear();
+        return reclaimed;
+    }
+
+    private boolean archive(String key) throws IOException {
+        Path file = storage.localFile(key);
+        if (file == null) return storage.move(key, ARCHIVE + key);
+
+        Files.createDirectories(archive);
+        Files.move(file, archive.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * Keeps the walk under {@code max-files-per-second}, sparing the disk and the database.
+     */
+    private void pace(long examined, long start) {
+        if (maxFilesPerSecond <= 0) return;
+        long ahead = examined * 1_000_000_000L / maxFilesPerSecond - (System.nanoTime() - start);
+        if (ahead <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(ahead);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.zone01.users.service;
 
+import com.buy01.common.storage.ObjectStorage;
 import com.zone01.users.model.Response;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
@@ -10,10 +11,9 @@ import org.springframework.web.multipart.MultipartFile;
 
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,16 +22,19 @@ import java.util.UUID;
 public class FileServices {
     private final long maxFileSize;
     private final List<String> allowedContentTypes;
-    private final String baseUploadDirectory;
+    private final ObjectStorage storage;
+    private final Duration presignTtl;
 
     public FileServices(
             @Value("${media.upload.max.file.size}") long maxFileSize,
             @Value("${media.allowed.content.types}") List<String> allowedContentTypes,
-            @Value("${media.upload.base.dir}") String baseUploadDirectory
+            ObjectStorage storage,
+            @Value("${user.storage.presign-ttl-seconds:3600}") long presignTtlSeconds
     ) {
         this.maxFileSize = maxFileSize;
         this.allowedContentTypes = allowedContentTypes;
-        this.baseUploadDirectory = baseUploadDirectory;
+        this.storage = storage;
+        this.presignTtl = Duration.ofSeconds(presignTtlSeconds);
     }
 
     public void validateFile(MultipartFile file) throws  IOException {
@@ -46,18 +49,14 @@ public class FileServices {
     }
 
     public String saveFile(MultipartFile file) throws IOException {
-        String uploadDir = baseUploadDirectory + "/";
-        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-        Files.createDirectories(uploadPath);
-
         String uniqueFilename = generateUniqueFilename(file);
-        Path targetLocation = uploadPath.resolve(uniqueFilename).normalize();
-
-        if (!targetLocation.startsWith(uploadPath)) {
+        if (!isAvatarName(uniqueFilename)) {
             throw new IOException("Invalid file path detected");
         }
 
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        try (InputStream input = file.getInputStream()) {
+            storage.put(uniqueFilename, input, file.getContentType());
+        }
         return uniqueFilename;
     }
 
@@ -91,12 +90,18 @@ public class FileServices {
                 .orElse("");
     }
 
+    /**
+     * Avatars are stored flat, keyed by their generated file name.
+     */
+    private static boolean isAvatarName(String avatar) {
+        return !avatar.isBlank() && !avatar.contains("/") && !avatar.contains("\\") && !avatar.startsWith(".");
+    }
+
     public void deleteOldAvatar(String avatar) throws IOException {
-        Path filePath = Paths.get(baseUploadDirectory).resolve(avatar).normalize();
-        if (!filePath.startsWith(Paths.get(baseUploadDirectory))) {
+        if (!isAvatarName(avatar)) {
             throw new IllegalArgumentException("Invalid file path");
         }
-        Files.deleteIfExists(filePath);
+        storage.delete(avatar);
     }
 
     public Response<Object> getAvatar(String avatar) {
@@ -105,20 +110,30 @@ public class FileServices {
                 return buildErrorResponse("Invalid avatar image path");
             }
 
-            Path filePath = Paths.get(baseUploadDirectory).resolve(avatar).normalize();
-            if (!filePath.startsWith(Paths.get(baseUploadDirectory))) {
+            if (!isAvatarName(avatar)) {
                 return buildErrorResponse("Invalid file path");
             }
 
-            Resource resource = new UrlResource(filePath.toUri());
-            if (!resource.exists() || !resource.isReadable()) {
-                return buildErrorResponse("Avatar file not found");
+            Path filePath = storage.localFile(avatar);
+            Object data;
+            if (filePath != null) {
+                Resource resource = new UrlResource(filePath.toUri());
+                if (!resource.exists() || !resource.isReadable()) {
+                    return buildErrorResponse("Avatar file not found");
+                }
+                data = resource;
+            } else {
+                // Served by the object store itself, the controller redirects there
+                if (storage.stat(avatar) == null) {
+                    return buildErrorResponse("Avatar file not found");
+                }
+                data = storage.presign(avatar, presignTtl);
             }
 
             return Response.<Object>builder()
                     .message("Success")
                     .status(HttpStatus.OK.value())
-                    .data(resource)
+                    .data(data)
                     .build();
         } catch (Exception e) {
             return buildErrorResponse("Failed to retrieve avatar file");
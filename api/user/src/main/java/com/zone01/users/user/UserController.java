@@ -9,6 +9,7 @@ import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -16,6 +17,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+
 @AllArgsConstructor
 @RestController
 @RequestMapping("/api/v1/user")
@@ -38,20 +41,20 @@ public class UserController {
     @GetMapping("/avatar/{filename}")
     public ResponseEntity<Object> getUserAvatar(@PathVariable String filename) {
         Response<Object> response = userService.getUserAvatar(filename);
-        if (response.isError()) return ResponseEntity.status(response.getStatus()).body(response);
-
-        Resource resource = (Resource) response.getData();
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.IMAGE_JPEG);
-        headers.setContentDispositionFormData("inline", resource.getFilename());
-
-        return ResponseEntity.status(response.getStatus()).headers(headers).body(resource);
+        return avatar(response);
     }
 
     @GetMapping("/avatar/{filename}/all")
     public ResponseEntity<Object> getUserAvatarEvenDeleted(@PathVariable String filename) {
         Response<Object> response = userService.getUserAvatarEvenDeleted(filename);
+        return avatar(response);
+    }
+
+    private static ResponseEntity<Object> avatar(Response<Object> response) {
         if (response.isError()) return ResponseEntity.status(response.getStatus()).body(response);
+        // The presigned URL expires, so the redirect to it must not outlive it in a cache
+        if (response.getData() instanceof URI location)
+            return ResponseEntity.status(HttpStatus.FOUND).cacheControl(CacheControl.noStore()).location(location).build();
 
         Resource resource = (Resource) response.getData();
         HttpHeaders headers = new HttpHeaders();
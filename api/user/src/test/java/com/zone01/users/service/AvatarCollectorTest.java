@@ -0,0 +1,144 @@
+package com.zone01.users.service;
+
+import com.buy01.common.lease.Leases;
+import com.buy01.common.storage.FileSystemStorage;
+import com.zone01.users.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvatarCollectorTest {
+
+    @TempDir
+    Path avatars;
+
+    @TempDir
+    Path archive;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private Leases leases;
+
+    private FileSystemStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new FileSystemStorage(avatars.toString());
+        lenient().when(leases.tryAcquire(eq("avatar-gc"), any(Duration.class))).thenReturn(true);
+    }
+
+    private AvatarCollector collector(String archiveDirectory) {
+        return new AvatarCollector(mongoTemplate, storage, leases, true, 3_600_000, 24, 30, 2, 0, archiveDirectory);
+    }
+
+    private Path write(String name, boolean old) throws IOException {
+        Path file = avatars.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, name);
+        if (old) Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return file;
+    }
+
+    @Test
+    @DisplayName("Should delete avatars no live user names once past the grace period, checking them in batches")
+    void run_DeletesUnreferenced() throws IOException {
+        Path used = write("used.png", true);
+        Path orphan = write("orphan.png", true);
+        Path other = write("other.jpg", true);
+        Path recent = write("recent.png", false);
+        when(mongoTemplate.findDistinct(any(Query.class), eq("avatar"), eq(User.class), eq(String.class)))
+                .thenReturn(List.of("used.png"));
+
+        collector("").run();
+
+        assertTrue(Files.exists(used));
+        assertTrue(Files.exists(recent));
+        assertFalse(Files.exists(orphan));
+        assertFalse(Files.exists(other));
+        // Three old avatars with batches of two
+        verify(mongoTemplate, times(2)).findDistinct(any(Query.class), eq("avatar"), eq(User.class), eq(String.class));
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(User.class));
+    }
+
+    @Test
+    @DisplayName("Should move unreferenced avatars to the archive directory when one is set")
+    void run_Archives() throws IOException {
+        Path orphan = write("orphan.png", true);
+        when(mongoTemplate.findDistinct(any(Query.class), eq("avatar"), eq(User.class), eq(String.class)))
+                .thenReturn(List.of());
+
+        collector(archive.toString()).run();
+
+        assertFalse(Files.exists(orphan));
+        assertEquals("orphan.png", Files.readString(archive.resolve("orphan.png")));
+    }
+
+    @Test
+    @DisplayName("Should leave nested keys and dot files alone")
+    void run_SkipsNestedKeys() throws IOException {
+        Path nested = write("archive/old.png", true);
+        Path hidden = write(".upload.tmp", true);
+
+        collector("").run();
+
+        assertTrue(Files.exists(nested));
+        assertTrue(Files.exists(hidden));
+        verify(mongoTemplate, never()).findDistinct(any(Query.class), anyString(), eq(User.class), eq(String.class));
+    }
+
+    @Test
+    @DisplayName("Should keep every avatar when the users collection can't be read")
+    void run_DatabaseDown() throws IOException {
+        Path orphan = write("orphan.png", true);
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(User.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertDoesNotThrow(() -> collector("").run());
+
+        assertTrue(Files.exists(orphan));
+    }
+
+    @Test
+    @DisplayName("Should do nothing when disabled")
+    void run_Disabled() {
+        new AvatarCollector(mongoTemplate, storage, leases, false, 3_600_000, 24, 30, 2, 0, "").run();
+
+        verifyNoInteractions(mongoTemplate);
+        verifyNoInteractions(leases);
+    }
+
+    @Test
+    @DisplayName("Should skip the run while another instance holds the collection lease")
+    void run_LeaseHeldElsewhere() throws IOException {
+        Path orphan = write("orphan.png", true);
+        when(leases.tryAcquire("avatar-gc", Duration.ofHours(1))).thenReturn(false);
+
+        collector("").run();
+
+        assertTrue(Files.exists(orphan));
+        verifyNoInteractions(mongoTemplate);
+    }
+}